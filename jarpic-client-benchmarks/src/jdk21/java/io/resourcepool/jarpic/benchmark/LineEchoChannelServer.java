@@ -0,0 +1,133 @@
+package io.resourcepool.jarpic.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Newline-delimited JSON RPC server, over TCP loopback or a Unix domain socket,
+ * answering every call at once with its method name as result. One virtual thread per connection.
+ * Both sockets get the same server, so that only the transports differ.
+ */
+class LineEchoChannelServer implements Closeable {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ServerSocketChannel server;
+  private final Path path;
+
+  /**
+   * @param server the bound server channel
+   * @param path   the socket file, or null for TCP
+   */
+  private LineEchoChannelServer(ServerSocketChannel server, Path path) {
+    this.server = server;
+    this.path = path;
+    executor.execute(this::accept);
+  }
+
+  /**
+   * @param path the socket file to create
+   * @return a server listening on a Unix domain socket
+   * @throws IOException if the socket could not be bound
+   */
+  static LineEchoChannelServer unix(Path path) throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(path));
+    return new LineEchoChannelServer(server, path);
+  }
+
+  /**
+   * @return a server listening on a random TCP loopback port
+   * @throws IOException if the socket could not be bound
+   */
+  static LineEchoChannelServer tcp() throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    return new LineEchoChannelServer(server, null);
+  }
+
+  /**
+   * @return the TCP port
+   * @throws IOException if the server is closed
+   */
+  int getPort() throws IOException {
+    return ((InetSocketAddress) server.getLocalAddress()).getPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    server.close();
+    executor.shutdownNow();
+    if (path != null) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * Accept connections until closed.
+   */
+  private void accept() {
+    try {
+      while (true) {
+        SocketChannel channel = server.accept();
+        executor.execute(() -> serve(channel));
+      }
+    } catch (IOException e) {
+      // Closed
+    }
+  }
+
+  /**
+   * Answer every line received on a connection, in order. Output is flushed once no more input is buffered,
+   * so that pipelined calls are answered in as few writes as possible.
+   *
+   * @param channel the connection
+   */
+  private void serve(SocketChannel channel) {
+    try (channel) {
+      if (path == null) {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      }
+      BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+      OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        JsonNode request = mapper.readTree(line);
+        if (request.has("id")) {
+          ObjectNode response = mapper.createObjectNode();
+          response.put("jsonrpc", "2.0");
+          response.set("id", request.get("id"));
+          response.put("result", request.get("method").asText());
+          out.write(mapper.writeValueAsBytes(response));
+          out.write('\n');
+        }
+        if (!reader.ready()) {
+          out.flush();
+        }
+      }
+    } catch (IOException e) {
+      // Connection closed
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package io.resourcepool.jarpic.benchmark;
+
+import io.resourcepool.jarpic.client.JsonRpcClient;
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.jdk21.UnixSocketTransport;
+import io.resourcepool.jarpic.model.IdGenerator;
+import io.resourcepool.jarpic.model.IdGenerators;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.transport.LineDelimitedTransport;
+import io.resourcepool.jarpic.transport.TcpTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Round trips through UnixSocketTransport and TcpTransport over loopback, against the same in-process server:
+ * - call: one call at a time, waiting for each response
+ * - pipelined: calls sent 64 at a time on the connection, then awaited together
+ * Both transports share the framing and the selector loop: the difference is the socket.
+ * The server runs in the same JVM, so its work is part of the figures, equally for both transports.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalTransportBenchmark {
+
+  private static final int PIPELINE_DEPTH = 64;
+
+  @Param({"unix", "tcp"})
+  public String socket;
+
+  private final IdGenerator ids = IdGenerators.counter();
+  private Path dir;
+  private LineEchoChannelServer server;
+  private LineDelimitedTransport transport;
+  private JsonRpcClient client;
+
+  /**
+   * Start the server and connect.
+   *
+   * @throws IOException if the server could not be started or reached
+   */
+  @Setup
+  public void setUp() throws IOException {
+    if ("unix".equals(socket)) {
+      dir = Files.createTempDirectory("jarpic-bench");
+      Path path = dir.resolve("rpc.sock");
+      server = LineEchoChannelServer.unix(path);
+      transport = UnixSocketTransport.builder(path).build();
+    } else {
+      server = LineEchoChannelServer.tcp();
+      transport = TcpTransport.builder("127.0.0.1", server.getPort()).build();
+    }
+    client = new TransportJsonRpcClient(transport);
+    // Connect before measuring
+    call();
+  }
+
+  /**
+   * @throws IOException if the socket file could not be removed
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    transport.close();
+    server.close();
+    if (dir != null) {
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  /**
+   * @return a request with a numeric id, cheaper to generate than a UUID
+   */
+  private JsonRpcRequest request() {
+    return JsonRpcRequest.builder().idGenerator(ids).method("cmd::bench").param("key", "value").build();
+  }
+
+  /**
+   * @return the response
+   * @throws IOException if the call failed
+   */
+  @Benchmark
+  public JsonRpcResponse<String> call() throws IOException {
+    return client.send(request(), String.class);
+  }
+
+  /**
+   * @return the responses
+   * @throws InterruptedException never
+   * @throws ExecutionException   if a call failed
+   * @throws TimeoutException     if the responses did not come back in time
+   */
+  @Benchmark
+  @OperationsPerInvocation(PIPELINE_DEPTH)
+  public List<JsonRpcResponse<String>> pipelined() throws InterruptedException, ExecutionException, TimeoutException {
+    List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>(PIPELINE_DEPTH);
+    for (int i = 0; i < PIPELINE_DEPTH; i++) {
+      futures.add(client.sendAsync(request(), String.class));
+    }
+    return JsonRpcFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,72 @@
+package io.resourcepool.jarpic.benchmark;
+
+import io.resourcepool.jarpic.model.IdGenerator;
+import io.resourcepool.jarpic.model.IdGenerators;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request id generation with the built-in generators, shared by the threads of the benchmark.
+ * Building a whole request is measured as well.
+ * It runs on one thread, as the baseline machine has a single CPU: threads sharing it would only add noise.
+ * Measure contention on a multicore machine with e.g. -t 4.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+
+  private final IdGenerator uuid = IdGenerators.uuid();
+  private final IdGenerator counter = IdGenerators.counter();
+  private final IdGenerator randomLong = IdGenerators.randomLong();
+
+  /**
+   * @return a new id
+   */
+  @Benchmark
+  public String uuid() {
+    return uuid.nextString();
+  }
+
+  /**
+   * @return a new id
+   */
+  @Benchmark
+  public long counter() {
+    return counter.nextLong();
+  }
+
+  /**
+   * @return a new id
+   */
+  @Benchmark
+  public long randomLong() {
+    return randomLong.nextLong();
+  }
+
+  /**
+   * @return a new request, with an id from the default generator
+   */
+  @Benchmark
+  public JsonRpcRequest buildRequest() {
+    return JsonRpcRequest.builder()
+        .method("account::balance")
+        .param("account", "FR76 3000 6000 0112 3456 7890 189")
+        .build();
+  }
+}
@@ -0,0 +1,90 @@
+package io.resourcepool.jarpic.benchmark;
+
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a single request and of a batch of 100, as streamed by the transports.
+ * The target stream is reused, so that only the encoding itself allocates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestEncodingBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private final JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+  private JsonRpcRequest request;
+  private List<JsonRpcRequest> batch;
+
+  /**
+   * Build the requests once: id generation is measured apart.
+   */
+  @Setup
+  public void setUp() {
+    request = request(0);
+    batch = new ArrayList<JsonRpcRequest>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batch.add(request(i));
+    }
+  }
+
+  /**
+   * @param i the request number
+   * @return a request with a few named params of common types
+   */
+  private static JsonRpcRequest request(int i) {
+    return JsonRpcRequest.builder()
+        .method("account::transfer")
+        .param("from", "FR76 3000 6000 0112 3456 7890 189")
+        .param("to", "FR76 3000 6000 0198 7654 3210 042")
+        .param("amount", 1250 + i)
+        .param("instant", true)
+        .build();
+  }
+
+  /**
+   * @return the amount of bytes written
+   * @throws IOException never, as the target is in memory
+   */
+  @Benchmark
+  public int encodeSingle() throws IOException {
+    out.reset();
+    new JsonRpcPayload(codec, request).writeTo(out);
+    return out.size();
+  }
+
+  /**
+   * @return the amount of bytes written
+   * @throws IOException never, as the target is in memory
+   */
+  @Benchmark
+  public int encodeBatch() throws IOException {
+    out.reset();
+    new JsonRpcPayload(codec, batch).writeTo(out);
+    return out.size();
+  }
+}
@@ -0,0 +1,142 @@
+package io.resourcepool.jarpic.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+import io.resourcepool.jarpic.parser.ResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, validation and binding of responses, in the single streaming pass used by the clients.
+ * Results are:
+ * - small: a short string
+ * - large: an array of 1000 integers, bound to a List
+ * - nested: objects nested 8 levels deep, bound to Maps
+ * Batches hold 100 responses, parsed at once or through a cursor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseParsingBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Param({"small", "large", "nested"})
+  public String result;
+
+  private final JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+  private JavaType resultType;
+  private byte[] single;
+  private byte[] batch;
+
+  /**
+   * Encode the responses once.
+   */
+  @Setup
+  public void setUp() {
+    String json;
+    if ("small".equals(result)) {
+      json = "\"ok\"";
+      resultType = codec.constructType(String.class);
+    } else if ("large".equals(result)) {
+      StringBuilder array = new StringBuilder("[");
+      for (int i = 0; i < 1000; i++) {
+        array.append(i == 0 ? "" : ",").append(i * 7919);
+      }
+      json = array.append(']').toString();
+      resultType = codec.constructType(new TypeReference<List<Integer>>() {
+      }.getType());
+    } else {
+      json = nested(8);
+      resultType = codec.constructType(new TypeReference<Map<String, Object>>() {
+      }.getType());
+    }
+    single = response(1, json).getBytes(UTF_8);
+    StringBuilder responses = new StringBuilder("[");
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      responses.append(i == 0 ? "" : ",").append(response(i, json));
+    }
+    batch = responses.append(']').toString().getBytes(UTF_8);
+  }
+
+  /**
+   * @param id     the response id
+   * @param result the JSON result
+   * @return the JSON response
+   */
+  private static String response(int id, String result) {
+    return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":" + result + "}";
+  }
+
+  /**
+   * @param depth the amount of levels
+   * @return a JSON object holding a few fields and a child, down to the given depth
+   */
+  private static String nested(int depth) {
+    String child = depth == 1 ? "null" : nested(depth - 1);
+    return "{\"id\":" + depth + ",\"name\":\"level-" + depth + "\",\"tags\":[\"a\",\"b\",\"c\"],\"active\":true,\"child\":" + child + "}";
+  }
+
+  /**
+   * @return the response
+   * @throws IOException    never, as the source is in memory
+   * @throws ParseException never, as the response is valid
+   */
+  @Benchmark
+  public JsonRpcResponse<Object> parseSingle() throws IOException, ParseException {
+    return ResponseParser.parseOne(codec, new ByteArrayInputStream(single), resultType);
+  }
+
+  /**
+   * @return the responses
+   * @throws IOException    never, as the source is in memory
+   * @throws ParseException never, as the responses are valid
+   */
+  @Benchmark
+  public List<JsonRpcResponse<Object>> parseBatch() throws IOException, ParseException {
+    return ResponseParser.parseList(codec, new ByteArrayInputStream(batch), resultType);
+  }
+
+  /**
+   * @param blackhole consumes the responses
+   * @throws IOException    never, as the source is in memory
+   * @throws ParseException never, as the responses are valid
+   */
+  @Benchmark
+  public void streamBatch(Blackhole blackhole) throws IOException, ParseException {
+    JsonRpcResponseCursor<Object> cursor = ResponseParser.stream(codec, new ByteArrayInputStream(batch), resultType);
+    try {
+      while (cursor.hasNext()) {
+        blackhole.consume(cursor.next());
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package io.resourcepool.jarpic.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.resourcepool.jarpic.validator.JsonRpc2SchemaValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema validation of JSON trees, as done for the tree-based parsing methods.
+ * The streaming parser validates on the fly instead: its cost is part of ResponseParsingBenchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+  private JsonNode request;
+  private JsonNode result;
+  private JsonNode error;
+
+  /**
+   * Parse the trees once.
+   *
+   * @throws IOException never, as the JSON is valid
+   */
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    request = mapper.readTree("{\"jsonrpc\":\"2.0\",\"id\":\"42\",\"method\":\"account::transfer\",\"params\":{\"amount\":1250,\"instant\":true}}");
+    result = mapper.readTree("{\"jsonrpc\":\"2.0\",\"id\":\"42\",\"result\":{\"status\":\"done\",\"balance\":8750}}");
+    error = mapper.readTree("{\"jsonrpc\":\"2.0\",\"id\":\"42\",\"error\":{\"code\":-32602,\"message\":\"Invalid params\",\"data\":\"amount\"}}");
+  }
+
+  /**
+   * @throws ParseException never, as the request is valid
+   */
+  @Benchmark
+  public void validateRequest() throws ParseException {
+    JsonRpc2SchemaValidator.assertValid(request);
+  }
+
+  /**
+   * @throws ParseException never, as the response is valid
+   */
+  @Benchmark
+  public void validateResult() throws ParseException {
+    JsonRpc2SchemaValidator.assertValid(result);
+  }
+
+  /**
+   * @throws ParseException never, as the response is valid
+   */
+  @Benchmark
+  public void validateError() throws ParseException {
+    JsonRpc2SchemaValidator.assertValid(error);
+  }
+}
@@ -0,0 +1,103 @@
+package io.resourcepool.jarpic.jdk21;
+
+import io.resourcepool.jarpic.transport.LineDelimitedTransport;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This transport speaks newline-delimited JSON over a Unix domain socket, for services running on the same host.
+ * It skips the TCP/IP stack and HTTP framing altogether, and is a drop-in replacement for TcpTransport:
+ * <pre>
+ * JsonRpcClient client = new TransportJsonRpcClient(UnixSocketTransport.builder(Path.of("/run/app.sock")).build());
+ * </pre>
+ */
+public class UnixSocketTransport extends LineDelimitedTransport {
+
+  private final UnixDomainSocketAddress address;
+
+  /**
+   * Construct a new UnixSocketTransport.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private UnixSocketTransport(Builder builder) {
+    super(builder.timeoutNanos, builder.maxLineSize);
+    this.address = builder.address;
+  }
+
+  /**
+   * @param path the path of the socket file
+   * @return a new Builder
+   */
+  public static Builder builder(Path path) {
+    return new Builder(UnixDomainSocketAddress.of(path));
+  }
+
+  @Override
+  protected SocketChannel openChannel() throws IOException {
+    SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      // Local connect: either immediate, or refused
+      channel.connect(address);
+      return channel;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "UnixSocketTransport[" + address.getPath() + "]";
+  }
+
+  public static class Builder {
+    private final UnixDomainSocketAddress address;
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(30);
+    private int maxLineSize = 16 * 1024 * 1024;
+
+    /**
+     * @param address the socket address
+     */
+    private Builder(UnixDomainSocketAddress address) {
+      this.address = address;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for a response. Defaults to 30s
+     * @param unit    the time unit
+     * @return the builder
+     */
+    public Builder timeout(long timeout, TimeUnit unit) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Timeout must be positive");
+      }
+      this.timeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @param bytes the maximum size of a received line: a longer one fails the connection. Defaults to 16 MiB
+     * @return the builder
+     */
+    public Builder maxLineSize(int bytes) {
+      if (bytes <= 0) {
+        throw new IllegalArgumentException("Max line size must be positive");
+      }
+      this.maxLineSize = bytes;
+      return this;
+    }
+
+    /**
+     * @return the UnixSocketTransport
+     */
+    public UnixSocketTransport build() {
+      return new UnixSocketTransport(this);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package io.resourcepool.jarpic.jdk21;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.client.AbstractJsonRpcClient;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.client.JsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This client runs the blocking calls of a delegate client on virtual threads.
+ * Every asynchronous call gets its own virtual thread, which blocks on the round trip, parses the response,
+ * then dispatches the callback. Blocking on a virtual thread only parks it, so tens of thousands of calls can be in flight
+ * with a handful of carrier threads.
+ * Synchronous calls run on the calling thread: they scale the same way when the caller itself is a virtual thread.
+ * Cancelling a future interrupts its virtual thread, which aborts the blocking socket read.
+ */
+public class VirtualThreadJsonRpcClient extends AbstractJsonRpcClient implements Closeable {
+
+  private final JsonRpcClient delegate;
+  private final ExecutorService executor;
+
+  /**
+   * Construct a new VirtualThreadJsonRpcClient, running one virtual thread per call.
+   *
+   * @param delegate the blocking client
+   */
+  public VirtualThreadJsonRpcClient(JsonRpcClient delegate) {
+    this(delegate, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jarpic-vthread-", 0).factory()));
+  }
+
+  /**
+   * Construct a new VirtualThreadJsonRpcClient.
+   *
+   * @param delegate the blocking client
+   * @param executor the executor running the calls, typically a virtual thread per task executor
+   */
+  public VirtualThreadJsonRpcClient(JsonRpcClient delegate, ExecutorService executor) {
+    super(codecOf(delegate));
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  /**
+   * Create a client sending HTTP calls from virtual threads.
+   *
+   * @param endpoint the target url endpoint
+   * @return the client
+   */
+  public static VirtualThreadJsonRpcClient create(String endpoint) {
+    return new VirtualThreadJsonRpcClient(new HttpJsonRpcClient(endpoint, VirtualThreads.okHttpClient()));
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    return delegate.send(req, resultType);
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, JavaType resultType, JsonRpcCallback<T> callback) {
+    executor.execute(() -> {
+      JsonRpcResponse<T> response;
+      try {
+        response = delegate.send(req, resultType);
+      } catch (IOException e) {
+        callback.onFailure(e);
+        return;
+      }
+      callback.onResponse(response);
+    });
+  }
+
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, JavaType resultType) {
+    JsonRpcFuture<JsonRpcResponse<T>> future = new JsonRpcFuture<>();
+    Future<?> task = executor.submit(() -> {
+      try {
+        future.complete(delegate.<T>send(req, resultType));
+      } catch (IOException e) {
+        future.fail(e);
+      }
+    });
+    future.onCancel(() -> task.cancel(true));
+    return future;
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.send(reqs, resultType);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback) {
+    executor.execute(() -> {
+      List<JsonRpcResponse<T>> responses;
+      try {
+        responses = delegate.send(reqs, resultType);
+      } catch (IOException e) {
+        callback.onFailure(e);
+        return;
+      }
+      callback.onResponse(responses);
+    });
+  }
+
+  @Override
+  public <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, JavaType resultType) {
+    JsonRpcFuture<List<JsonRpcResponse<T>>> future = new JsonRpcFuture<>();
+    Future<?> task = executor.submit(() -> {
+      try {
+        future.complete(delegate.<T>send(reqs, resultType));
+      } catch (IOException e) {
+        future.fail(e);
+      }
+    });
+    future.onCancel(() -> task.cancel(true));
+    return future;
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.stream(reqs, resultType);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcStreamCallback<T> callback) {
+    executor.execute(() -> {
+      JsonRpcResponseCursor<T> cursor = null;
+      try {
+        cursor = delegate.stream(reqs, resultType);
+        while (cursor != null && cursor.hasNext()) {
+          callback.onResponse(cursor.next());
+        }
+        callback.onComplete();
+      } catch (ParseException e) {
+        callback.onFailure(new IOException("Invalid JSON RPC 2.0 response: " + e.getMessage(), e));
+      } catch (IOException e) {
+        callback.onFailure(e);
+      } finally {
+        closeQuietly(cursor);
+      }
+    });
+  }
+
+  /**
+   * Stop accepting calls. Calls already running are completed.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * @param cursor the cursor to close, if any
+   */
+  private static void closeQuietly(JsonRpcResponseCursor<?> cursor) {
+    if (cursor == null) {
+      return;
+    }
+    try {
+      cursor.close();
+    } catch (IOException e) {
+      // Nothing more to read
+    }
+  }
+}
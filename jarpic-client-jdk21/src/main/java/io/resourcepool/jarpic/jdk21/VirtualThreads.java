@@ -0,0 +1,50 @@
+package io.resourcepool.jarpic.jdk21;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.Executors;
+
+/**
+ * This class builds OkHttp clients running their asynchronous calls on virtual threads.
+ * OkHttp callbacks, hence response parsing and JsonRpcCallback dispatch, then run on virtual threads as well.
+ */
+public abstract class VirtualThreads {
+
+  /**
+   * Default maximum amount of concurrent calls. OkHttp defaults to 64, and 5 per host.
+   */
+  public static final int DEFAULT_MAX_REQUESTS = 16384;
+
+  /**
+   * @return a new OkHttp dispatcher running calls on virtual threads, with the default limits
+   */
+  public static Dispatcher dispatcher() {
+    return dispatcher(DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS);
+  }
+
+  /**
+   * Build an OkHttp dispatcher running calls on virtual threads.
+   * Every in-flight call to the same host needs its own connection with HTTP/1.1, so the per host limit should match the server capacity.
+   *
+   * @param maxRequests        the maximum amount of concurrent calls
+   * @param maxRequestsPerHost the maximum amount of concurrent calls per host
+   * @return the dispatcher
+   */
+  public static Dispatcher dispatcher(int maxRequests, int maxRequestsPerHost) {
+    Dispatcher dispatcher = new Dispatcher(Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("jarpic-okhttp-", 0).factory()));
+    dispatcher.setMaxRequests(maxRequests);
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+    return dispatcher;
+  }
+
+  /**
+   * @return a new OkHttp client running asynchronous calls on virtual threads
+   */
+  public static OkHttpClient okHttpClient() {
+    return new OkHttpClient.Builder()
+        .dispatcher(dispatcher())
+        .build();
+  }
+}
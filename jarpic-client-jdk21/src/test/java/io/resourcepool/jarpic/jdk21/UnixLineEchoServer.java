@@ -0,0 +1,55 @@
+package io.resourcepool.jarpic.jdk21;
+
+import io.resourcepool.jarpic.server.LineEchoServer;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link LineEchoServer} listening on a Unix domain socket.
+ */
+class UnixLineEchoServer extends LineEchoServer {
+
+  private final ServerSocketChannel server;
+  private final Path path;
+
+  /**
+   * @param server the bound server channel
+   * @param path   the socket file
+   */
+  private UnixLineEchoServer(ServerSocketChannel server, Path path) {
+    super(server);
+    this.server = server;
+    this.path = path;
+    start();
+  }
+
+  /**
+   * @param path the socket file to create
+   * @return a server listening on the socket
+   * @throws IOException if the socket could not be bound
+   */
+  static UnixLineEchoServer bind(Path path) throws IOException {
+    ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(path));
+    return new UnixLineEchoServer(server, path);
+  }
+
+  @Override
+  protected Connection accept() throws IOException {
+    SocketChannel channel = server.accept();
+    return new Connection(Channels.newInputStream(channel), Channels.newOutputStream(channel), channel);
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    Files.deleteIfExists(path);
+  }
+}
@@ -0,0 +1,52 @@
+package io.resourcepool.jarpic.jdk21;
+
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the Unix domain socket transport.
+ */
+public class UnixSocketTransportTest {
+
+  @Test
+  public void pipelineOverUnixSocket() throws Exception {
+    Path dir = Files.createTempDirectory("jarpic");
+    Path socket = dir.resolve("rpc.sock");
+    try (UnixLineEchoServer server = UnixLineEchoServer.bind(socket);
+         UnixSocketTransport transport = UnixSocketTransport.builder(socket).build()) {
+      TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+      }
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+      for (int i = 0; i < 200; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+      Assert.assertEquals("cmd::sync", client.send(JsonRpcRequest.builder().method("cmd::sync").build(), String.class).getResult());
+      Assert.assertEquals(0, transport.getPendingCount());
+    } finally {
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void missingSocketFails() throws Exception {
+    Path socket = Files.createTempDirectory("jarpic").resolve("missing.sock");
+    try (UnixSocketTransport transport = UnixSocketTransport.builder(socket).build()) {
+      new TransportJsonRpcClient(transport).send(JsonRpcRequest.builder().method("cmd::none").build(), String.class);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package io.resourcepool.jarpic.jdk21;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every test records JFR pinning events, and fails if a virtual thread blocked while pinned to its carrier.
+ */
+public class VirtualThreadClientTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private MockWebServer server;
+  private Recording pinning;
+
+  @Before
+  public void startServer() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        try {
+          JsonNode body = mapper.readTree(request.getBody().inputStream());
+          if ("cmd::hang".equals(body.get("method").asText())) {
+            return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+          }
+          ObjectNode response = mapper.createObjectNode();
+          response.put("jsonrpc", "2.0");
+          response.set("id", body.get("id"));
+          response.put("result", body.get("method").asText());
+          return new MockResponse().setHeader("Content-Type", "application/json").setBody(response.toString());
+        } catch (IOException e) {
+          return new MockResponse().setResponseCode(500);
+        }
+      }
+    });
+    server.start();
+    pinning = new Recording();
+    pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+    pinning.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    server.shutdown();
+  }
+
+  @After
+  public void assertNoPinning() throws IOException {
+    pinning.stop();
+    Path dump = Files.createTempFile("pinning", ".jfr");
+    try {
+      pinning.dump(dump);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+      Assert.assertTrue("Virtual threads were pinned: " + events, events.isEmpty());
+    } finally {
+      pinning.close();
+      Files.delete(dump);
+    }
+  }
+
+  @Test
+  public void manyCallsInFlight() throws Exception {
+    try (VirtualThreadJsonRpcClient client = VirtualThreadJsonRpcClient.create(server.url("/").toString())) {
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+      }
+
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+
+      for (int i = 0; i < 500; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+    }
+  }
+
+  @Test
+  public void callbacksRunOnVirtualThreads() throws Exception {
+    try (VirtualThreadJsonRpcClient client = VirtualThreadJsonRpcClient.create(server.url("/").toString())) {
+      CountDownLatch done = new CountDownLatch(1);
+      boolean[] virtual = new boolean[1];
+      client.send(JsonRpcRequest.builder().method("cmd::a").build(), String.class, new JsonRpcCallback<String>() {
+        @Override
+        public void onResponse(JsonRpcResponse<String> result) {
+          virtual[0] = Thread.currentThread().isVirtual() && "cmd::a".equals(result.getResult());
+          done.countDown();
+        }
+
+        @Override
+        public void onFailure(IOException ex) {
+          done.countDown();
+        }
+      });
+
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(virtual[0]);
+    }
+  }
+
+  @Test
+  public void cancelInterruptsCall() throws Exception {
+    try (VirtualThreadJsonRpcClient client = VirtualThreadJsonRpcClient.create(server.url("/").toString())) {
+      JsonRpcFuture<JsonRpcResponse<String>> future = client.sendAsync(JsonRpcRequest.builder().method("cmd::hang").build(), String.class);
+      server.takeRequest(5, TimeUnit.SECONDS);
+
+      Assert.assertTrue(future.cancel(true));
+      Assert.assertTrue(future.isCancelled());
+    }
+  }
+}
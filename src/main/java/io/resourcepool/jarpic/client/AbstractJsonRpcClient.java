@@ -0,0 +1,254 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcBatchCallback;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * This class implements the derived JsonRpcClient methods on top of the core send and stream methods.
+ * Class and TypeReference calls are resolved once into a JavaType through the codec cache,
+ * so implementations only deal with JavaType.
+ */
+public abstract class AbstractJsonRpcClient implements JsonRpcClient {
+
+  protected final JsonRpcCodec codec;
+
+  /**
+   * @param codec the codec used to resolve result types
+   */
+  protected AbstractJsonRpcClient(JsonRpcCodec codec) {
+    if (codec == null) {
+      throw new IllegalArgumentException("Codec cannot be null");
+    }
+    this.codec = codec;
+  }
+
+  /**
+   * @return the codec used by this client
+   */
+  public JsonRpcCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * Find the codec of a client, so that decorators and adapters resolve result types the same way as the client they wrap.
+   *
+   * @param client the client, possibly null
+   * @return the codec of the client, or the default codec if it does not expose one
+   */
+  public static JsonRpcCodec codecOf(JsonRpcClient client) {
+    if (client instanceof AbstractJsonRpcClient) {
+      return ((AbstractJsonRpcClient) client).getCodec();
+    }
+    return JacksonJsonRpcCodec.getDefault();
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, Class<T> resultClass) throws IOException {
+    return send(req, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, TypeReference<T> resultType) throws IOException {
+    return send(req, codec.constructType(resultType.getType()));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void send(JsonRpcRequest req, Class resultClass, JsonRpcCallback callback) {
+    send(req, codec.constructType(resultClass), callback);
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, TypeReference<T> resultType, JsonRpcCallback<T> callback) {
+    send(req, codec.constructType(resultType.getType()), callback);
+  }
+
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, Class<T> resultClass) {
+    return sendAsync(req, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, TypeReference<T> resultType) {
+    return sendAsync(req, codec.constructType(resultType.getType()));
+  }
+
+  /**
+   * Default implementation, completing the future from the callback flavour.
+   * The future cannot cancel the request: implementations able to do so override it.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the future JsonRpcResponse
+   */
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, JavaType resultType) {
+    final JsonRpcFuture<JsonRpcResponse<T>> future = new JsonRpcFuture<JsonRpcResponse<T>>();
+    send(req, resultType, new JsonRpcCallback<T>() {
+      @Override
+      public void onResponse(JsonRpcResponse<T> result) {
+        future.complete(result);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        future.fail(ex);
+      }
+    });
+    return future;
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException {
+    return send(reqs, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException {
+    return send(reqs, codec.constructType(resultType.getType()));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void send(List<JsonRpcRequest> reqs, Class resultClass, JsonRpcMultiCallback callback) {
+    send(reqs, codec.constructType(resultClass), callback);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcMultiCallback<T> callback) {
+    send(reqs, codec.constructType(resultType.getType()), callback);
+  }
+
+  @Override
+  public <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, Class<T> resultClass) {
+    return sendAsync(reqs, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, TypeReference<T> resultType) {
+    return sendAsync(reqs, codec.constructType(resultType.getType()));
+  }
+
+  /**
+   * Default implementation, completing the future from the callback flavour.
+   * The future cannot cancel the request: implementations able to do so override it.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the future list of JsonRpcResponse objects
+   */
+  @Override
+  public <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, JavaType resultType) {
+    final JsonRpcFuture<List<JsonRpcResponse<T>>> future = new JsonRpcFuture<List<JsonRpcResponse<T>>>();
+    send(reqs, resultType, new JsonRpcMultiCallback<T>() {
+      @Override
+      public void onResponse(List<JsonRpcResponse<T>> results) {
+        future.complete(results);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        future.fail(ex);
+      }
+    });
+    return future;
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException {
+    return stream(reqs, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException {
+    return stream(reqs, codec.constructType(resultType.getType()));
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, Class<T> resultClass, JsonRpcStreamCallback<T> callback) {
+    stream(reqs, codec.constructType(resultClass), callback);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcStreamCallback<T> callback) {
+    stream(reqs, codec.constructType(resultType.getType()), callback);
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException {
+    return sendBatch(reqs, codec.constructType(resultClass));
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException {
+    return sendBatch(reqs, codec.constructType(resultType.getType()));
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    JsonRpcBatchResponse<T> batch = new JsonRpcBatchResponse<T>(reqs);
+    JsonRpcResponseCursor<T> cursor = stream(reqs, resultType);
+    if (cursor == null) {
+      // No JSON response. Every request expecting one is missing.
+      return batch;
+    }
+    try {
+      while (cursor.hasNext()) {
+        batch.add(cursor.next());
+      }
+    } catch (ParseException e) {
+      throw new IOException("Invalid JSON RPC 2.0 response: " + e.getMessage(), e);
+    } finally {
+      cursor.close();
+    }
+    return batch;
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, Class<T> resultClass, JsonRpcBatchCallback<T> callback) {
+    sendBatch(reqs, codec.constructType(resultClass), callback);
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcBatchCallback<T> callback) {
+    sendBatch(reqs, codec.constructType(resultType.getType()), callback);
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, JavaType resultType, final JsonRpcBatchCallback<T> callback) {
+    final JsonRpcBatchResponse<T> batch = new JsonRpcBatchResponse<T>(reqs);
+    stream(reqs, resultType, new JsonRpcStreamCallback<T>() {
+      @Override
+      public void onResponse(JsonRpcResponse<T> result) {
+        batch.add(result);
+      }
+
+      @Override
+      public void onComplete() {
+        callback.onResponse(batch);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        callback.onFailure(ex);
+      }
+    });
+  }
+}
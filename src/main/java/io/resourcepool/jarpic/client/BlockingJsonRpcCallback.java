@@ -0,0 +1,50 @@
+package io.resourcepool.jarpic.client;
+
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This callback lets a synchronous caller wait for the outcome of an asynchronous call.
+ */
+class BlockingJsonRpcCallback<T> implements JsonRpcCallback<T> {
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private JsonRpcResponse<T> result;
+  private IOException failure;
+
+  @Override
+  public void onResponse(@Nullable JsonRpcResponse<T> result) {
+    this.result = result;
+    latch.countDown();
+  }
+
+  @Override
+  public void onFailure(IOException ex) {
+    this.failure = ex;
+    latch.countDown();
+  }
+
+  /**
+   * Wait for the call to complete.
+   *
+   * @return the JsonRpcResponse, or null if none returned
+   * @throws IOException if the call failed, or if the current thread was interrupted while waiting
+   */
+  JsonRpcResponse<T> await() throws IOException {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for JSON RPC response");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,98 @@
+package io.resourcepool.jarpic.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds how the results of one method are cached by a CachingJsonRpcClient:
+ * how long they stay fresh, and how many entries or bytes they may hold at most.
+ */
+public final class CachePolicy {
+
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final long maxBytes;
+
+  /**
+   * @param builder the builder holding the configuration
+   */
+  private CachePolicy(Builder builder) {
+    this.ttlNanos = builder.ttlNanos;
+    this.maxEntries = builder.maxEntries;
+    this.maxBytes = builder.maxBytes;
+  }
+
+  /**
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public long getTtlNanos() {
+    return ttlNanos;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public static class Builder {
+    private long ttlNanos = TimeUnit.SECONDS.toNanos(5);
+    private int maxEntries = 10000;
+    private long maxBytes = Long.MAX_VALUE;
+
+    /**
+     * Private constructor, use CachePolicy.builder().
+     */
+    private Builder() {
+    }
+
+    /**
+     * @param ttl  how long a result stays fresh after it was received. Defaults to 5s
+     * @param unit the time unit
+     * @return the builder
+     */
+    public Builder ttl(long ttl, TimeUnit unit) {
+      if (ttl <= 0) {
+        throw new IllegalArgumentException("TTL must be positive");
+      }
+      this.ttlNanos = unit.toNanos(ttl);
+      return this;
+    }
+
+    /**
+     * @param maxEntries the maximum amount of cached results. Defaults to 10000
+     * @return the builder
+     */
+    public Builder maxEntries(int maxEntries) {
+      if (maxEntries < 1) {
+        throw new IllegalArgumentException("Max entries must be at least 1");
+      }
+      this.maxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * @param maxBytes the maximum size of cached results, keys included. Unbounded by default
+     * @return the builder
+     */
+    public Builder maxBytes(long maxBytes) {
+      if (maxBytes < 1) {
+        throw new IllegalArgumentException("Max bytes must be positive");
+      }
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * @return the CachePolicy
+     */
+    public CachePolicy build() {
+      return new CachePolicy(this);
+    }
+  }
+}
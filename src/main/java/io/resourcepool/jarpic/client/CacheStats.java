@@ -0,0 +1,87 @@
+package io.resourcepool.jarpic.client;
+
+/**
+ * This class is a snapshot of the statistics of a CachingJsonRpcClient, for one method or for all of them.
+ * Evictions count the entries dropped to honor the size limits, including new entries refused admission.
+ * Expirations count the entries dropped because their TTL elapsed.
+ */
+public final class CacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long expirationCount;
+  private final long entryCount;
+  private final long byteCount;
+
+  /**
+   * @param hitCount        the amount of calls answered from the cache
+   * @param missCount       the amount of calls sent to the delegate
+   * @param evictionCount   the amount of entries evicted
+   * @param expirationCount the amount of entries expired
+   * @param entryCount      the current amount of entries
+   * @param byteCount       the current size of the entries
+   */
+  public CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount, long entryCount, long byteCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.expirationCount = expirationCount;
+    this.entryCount = entryCount;
+    this.byteCount = byteCount;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getExpirationCount() {
+    return expirationCount;
+  }
+
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * @return the ratio of calls answered from the cache, or 0 if none was made
+   */
+  public double getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  /**
+   * @param other other statistics
+   * @return the sum of both statistics
+   */
+  public CacheStats plus(CacheStats other) {
+    return new CacheStats(hitCount + other.hitCount, missCount + other.missCount,
+        evictionCount + other.evictionCount, expirationCount + other.expirationCount,
+        entryCount + other.entryCount, byteCount + other.byteCount);
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{" +
+        "hits=" + hitCount +
+        ", misses=" + missCount +
+        ", evictions=" + evictionCount +
+        ", expirations=" + expirationCount +
+        ", entries=" + entryCount +
+        ", bytes=" + byteCount +
+        '}';
+  }
+}
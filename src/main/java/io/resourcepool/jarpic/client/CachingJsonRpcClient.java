@@ -0,0 +1,294 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.model.JsonRpcBatchCallback;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This client caches the results of idempotent methods, each one with its own CachePolicy.
+ * Calls are keyed by method and params, encoded canonically: object keys are sorted,
+ * so params built from differently ordered maps share the same entry.
+ * Results are kept encoded and bound again on every hit, so callers never share mutable results,
+ * and the response is stamped with the id of the request it answers.
+ * Only successful single calls are cached: errors, notifications, list, stream and batch calls
+ * are sent as-is to the delegate.
+ */
+public class CachingJsonRpcClient extends AbstractJsonRpcClient {
+
+  private final JsonRpcClient delegate;
+  private final Map<String, ResultCache> caches;
+
+  /**
+   * Construct a new CachingJsonRpcClient.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private CachingJsonRpcClient(Builder builder) {
+    super(codecOf(builder.delegate));
+    this.delegate = builder.delegate;
+    this.caches = new HashMap<String, ResultCache>();
+    for (Map.Entry<String, CachePolicy> policy : builder.policies.entrySet()) {
+      caches.put(policy.getKey(), new ResultCache(policy.getValue()));
+    }
+  }
+
+  /**
+   * @param delegate the client used on cache misses
+   * @return a new Builder
+   */
+  public static Builder builder(JsonRpcClient delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    ResultCache cache = cacheOf(req);
+    if (cache == null) {
+      return delegate.send(req, resultType);
+    }
+    CallKey key = CallKey.of(codec, req);
+    byte[] cached = cache.get(key);
+    if (cached != null) {
+      return hit(req, resultType, cached);
+    }
+    JsonRpcResponse<T> res = delegate.send(req, resultType);
+    store(cache, key, res);
+    return res;
+  }
+
+  @Override
+  public <T> void send(final JsonRpcRequest req, JavaType resultType, final JsonRpcCallback<T> callback) {
+    final ResultCache cache = cacheOf(req);
+    if (cache == null) {
+      delegate.send(req, resultType, callback);
+      return;
+    }
+    final CallKey key;
+    try {
+      key = CallKey.of(codec, req);
+      byte[] cached = cache.get(key);
+      if (cached != null) {
+        callback.onResponse(this.<T>hit(req, resultType, cached));
+        return;
+      }
+    } catch (IOException e) {
+      callback.onFailure(e);
+      return;
+    }
+    delegate.send(req, resultType, new JsonRpcCallback<T>() {
+      @Override
+      public void onResponse(JsonRpcResponse<T> res) {
+        store(cache, key, res);
+        callback.onResponse(res);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, JavaType resultType) {
+    final ResultCache cache = cacheOf(req);
+    if (cache == null) {
+      return delegate.sendAsync(req, resultType);
+    }
+    final CallKey key;
+    try {
+      key = CallKey.of(codec, req);
+      byte[] cached = cache.get(key);
+      if (cached != null) {
+        JsonRpcFuture<JsonRpcResponse<T>> future = new JsonRpcFuture<JsonRpcResponse<T>>();
+        future.complete(this.<T>hit(req, resultType, cached));
+        return future;
+      }
+    } catch (IOException e) {
+      JsonRpcFuture<JsonRpcResponse<T>> future = new JsonRpcFuture<JsonRpcResponse<T>>();
+      future.fail(e);
+      return future;
+    }
+    // Keep the delegate future, so that cancelling it still cancels the call
+    return delegate.<T>sendAsync(req, resultType).addListener(new JsonRpcFuture.Listener<JsonRpcResponse<T>>() {
+      @Override
+      public void onSuccess(JsonRpcResponse<T> res) {
+        store(cache, key, res);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        // Nothing to cache
+      }
+    });
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.send(reqs, resultType);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback) {
+    delegate.send(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.stream(reqs, resultType);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcStreamCallback<T> callback) {
+    delegate.stream(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.sendBatch(reqs, resultType);
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcBatchCallback<T> callback) {
+    delegate.sendBatch(reqs, resultType, callback);
+  }
+
+  /**
+   * @param method the method
+   * @return a snapshot of the statistics of the method, or null if it is not cached
+   */
+  public CacheStats getStats(String method) {
+    ResultCache cache = caches.get(method);
+    return cache == null ? null : cache.stats();
+  }
+
+  /**
+   * @return a snapshot of the statistics of every cached method, summed up
+   */
+  public CacheStats getStats() {
+    CacheStats total = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (ResultCache cache : caches.values()) {
+      total = total.plus(cache.stats());
+    }
+    return total;
+  }
+
+  /**
+   * Drop every cached result of a method.
+   *
+   * @param method the method
+   */
+  public void invalidate(String method) {
+    ResultCache cache = caches.get(method);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Drop every cached result.
+   */
+  public void invalidateAll() {
+    for (ResultCache cache : caches.values()) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * @param req the JsonRpcRequest
+   * @return the cache of the method, or null if the call must not be cached
+   */
+  private ResultCache cacheOf(JsonRpcRequest req) {
+    if (req.getId() == null) {
+      // Notifications get no result
+      return null;
+    }
+    return caches.get(req.getMethod());
+  }
+
+  /**
+   * Build the response of a cache hit.
+   *
+   * @param req        the JsonRpcRequest
+   * @param resultType the resolved type for the result
+   * @param cached     the encoded result
+   * @param <T>        The type inference for the result type
+   * @return the response, carrying the id of the request
+   * @throws IOException if the result cannot be bound
+   */
+  @SuppressWarnings("unchecked")
+  private <T> JsonRpcResponse<T> hit(JsonRpcRequest req, JavaType resultType, byte[] cached) throws IOException {
+    T result = codec.readerFor(resultType).readValue(cached);
+    return JsonRpcResponse.<T>builder().idOf(req).result(result).codec(codec).build();
+  }
+
+  /**
+   * Cache a successful response.
+   *
+   * @param cache the cache of the method
+   * @param key   the call key
+   * @param res   the response
+   */
+  private void store(ResultCache cache, CallKey key, JsonRpcResponse<?> res) {
+    if (res == null || res.getError() != null) {
+      return;
+    }
+    try {
+      byte[] value = codec.isLazyResults() ? res.getRawResult() : codec.getMapper().writeValueAsBytes(res.getResult());
+      if (value != null) {
+        cache.put(key, value);
+      }
+    } catch (IOException e) {
+      // Not encodable: simply not cached
+    }
+  }
+
+  public static class Builder {
+    private final JsonRpcClient delegate;
+    private final Map<String, CachePolicy> policies = new HashMap<String, CachePolicy>();
+
+    /**
+     * @param delegate the client used on cache misses
+     */
+    private Builder(JsonRpcClient delegate) {
+      if (delegate == null) {
+        throw new IllegalArgumentException("Delegate client cannot be null");
+      }
+      this.delegate = delegate;
+    }
+
+    /**
+     * Cache the results of a method. Only declare methods whose results do not depend on when they are called.
+     *
+     * @param method the method
+     * @param policy how its results are cached
+     * @return the builder
+     */
+    public Builder cache(String method, CachePolicy policy) {
+      if (method == null || policy == null) {
+        throw new IllegalArgumentException("Method and policy cannot be null");
+      }
+      policies.put(method, policy);
+      return this;
+    }
+
+    /**
+     * @return the CachingJsonRpcClient
+     */
+    public CachingJsonRpcClient build() {
+      return new CachingJsonRpcClient(this);
+    }
+  }
+}
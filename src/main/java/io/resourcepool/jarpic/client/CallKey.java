@@ -0,0 +1,123 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class identifies a call regardless of its id: its method and its canonically encoded params.
+ * Object keys are sorted, so params built from differently ordered maps, or equivalent raw JSON,
+ * give equal keys.
+ */
+final class CallKey {
+
+  private static final byte[] NO_PARAMS = new byte[0];
+
+  private final String method;
+  private final byte[] params;
+  private final int hash;
+
+  /**
+   * @param method the method
+   * @param params the canonical UTF-8 JSON params, or an empty array if there are none
+   */
+  private CallKey(String method, byte[] params) {
+    this.method = method;
+    this.params = params;
+    this.hash = 31 * method.hashCode() + Arrays.hashCode(params);
+  }
+
+  /**
+   * @param codec the codec used to encode the params
+   * @param req   the JsonRpcRequest
+   * @return the key of the call
+   * @throws IOException if the params cannot be encoded
+   */
+  static CallKey of(JsonRpcCodec codec, JsonRpcRequest req) throws IOException {
+    Object params = req.getParamsValue();
+    if (params == null) {
+      return new CallKey(req.getMethod(), NO_PARAMS);
+    }
+    JsonNode tree;
+    if (params instanceof RawValue) {
+      Object raw = ((RawValue) params).rawValue();
+      tree = raw instanceof SerializableString
+          ? codec.getMapper().readTree(((SerializableString) raw).asUnquotedUTF8())
+          : codec.getMapper().readTree(String.valueOf(raw));
+    } else {
+      tree = codec.getMapper().valueToTree(params);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+    JsonGenerator gen = codec.getFactory().createGenerator(out);
+    writeCanonical(gen, tree);
+    gen.close();
+    return new CallKey(req.getMethod(), out.toByteArray());
+  }
+
+  /**
+   * Write a JSON tree with the keys of every object sorted.
+   *
+   * @param gen  the generator
+   * @param node the JSON tree
+   * @throws IOException if the tree cannot be written
+   */
+  private static void writeCanonical(JsonGenerator gen, JsonNode node) throws IOException {
+    if (node.isObject()) {
+      List<String> names = new ArrayList<String>(node.size());
+      Iterator<String> it = node.fieldNames();
+      while (it.hasNext()) {
+        names.add(it.next());
+      }
+      Collections.sort(names);
+      gen.writeStartObject();
+      for (String name : names) {
+        gen.writeFieldName(name);
+        writeCanonical(gen, node.get(name));
+      }
+      gen.writeEndObject();
+    } else if (node.isArray()) {
+      gen.writeStartArray();
+      for (JsonNode element : node) {
+        writeCanonical(gen, element);
+      }
+      gen.writeEndArray();
+    } else {
+      gen.writeTree(node);
+    }
+  }
+
+  /**
+   * @return the approximate footprint of the key, in bytes
+   */
+  int size() {
+    return 2 * method.length() + params.length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CallKey)) {
+      return false;
+    }
+    CallKey other = (CallKey) o;
+    return hash == other.hash && method.equals(other.method) && Arrays.equals(params, other.params);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -0,0 +1,417 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.resourcepool.jarpic.model.JsonRpcBatchCallback;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This client coalesces concurrent single requests into JSON RPC batches.
+ * Single calls are held for a short window, or until a maximum batch size or byte size is reached,
+ * then sent as one batch through the delegate list path. Every caller gets back its own response, matched by id.
+ * Calls are grouped by result type, so every batch result is bound in a single pass.
+ * Batch calls are sent as-is to the delegate.
+ * A failure of the whole batch, e.g. an unparseable response or an HTTP error, fails every call of the batch
+ * with the same IOException, where a call sent alone could have received a JSON RPC error response instead.
+ * A callback throwing an exception does not prevent the other callers of the batch from being called.
+ */
+public class CoalescingJsonRpcClient extends AbstractJsonRpcClient implements Closeable {
+
+  private final JsonRpcClient delegate;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final long maxBatchBytes;
+  private final ScheduledExecutorService scheduler;
+  private final Map<JavaType, Batch> pending = new HashMap<JavaType, Batch>();
+  private boolean closed;
+
+  /**
+   * Construct a new CoalescingJsonRpcClient.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private CoalescingJsonRpcClient(Builder builder) {
+    super(codecOf(builder.delegate));
+    this.delegate = builder.delegate;
+    this.windowNanos = builder.windowNanos;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "jarpic-coalescer");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * @param delegate the client used to send the coalesced batches
+   * @return a new Builder
+   */
+  public static Builder builder(JsonRpcClient delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    BlockingJsonRpcCallback<T> callback = new BlockingJsonRpcCallback<T>();
+    send(req, resultType, callback);
+    return callback.await();
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, JavaType resultType, JsonRpcCallback<T> callback) {
+    List<Batch> ready = new ArrayList<Batch>(2);
+    synchronized (this) {
+      if (closed) {
+        ready = null;
+      } else {
+        Batch batch = pending.get(resultType);
+        if (batch != null && req.getId() != null && batch.ids.contains(req.getId())) {
+          // Same id already waiting: it must go in a separate batch
+          ready.add(detach(batch));
+          batch = null;
+        }
+        if (batch == null) {
+          batch = new Batch(resultType);
+          pending.put(resultType, batch);
+          batch.timer = scheduler.schedule(new Flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+        }
+        batch.add(req, callback);
+        if (batch.requests.size() >= maxBatchSize || batch.bytes >= maxBatchBytes) {
+          ready.add(detach(batch));
+        }
+      }
+    }
+    if (ready == null) {
+      callback.onFailure(new IOException("Client is closed"));
+      return;
+    }
+    for (Batch batch : ready) {
+      dispatch(batch);
+    }
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.send(reqs, resultType);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback) {
+    delegate.send(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.stream(reqs, resultType);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcStreamCallback<T> callback) {
+    delegate.stream(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.sendBatch(reqs, resultType);
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcBatchCallback<T> callback) {
+    delegate.sendBatch(reqs, resultType, callback);
+  }
+
+  /**
+   * Send every pending call, and stop accepting new ones.
+   */
+  @Override
+  public void close() {
+    List<Batch> ready;
+    synchronized (this) {
+      closed = true;
+      ready = new ArrayList<Batch>(pending.values());
+      for (Batch batch : ready) {
+        detach(batch);
+      }
+    }
+    for (Batch batch : ready) {
+      dispatch(batch);
+    }
+    scheduler.shutdown();
+  }
+
+  /**
+   * Remove a batch from the pending ones. Must be called while holding the lock.
+   *
+   * @param batch the batch
+   * @return the batch
+   */
+  private Batch detach(Batch batch) {
+    pending.remove(batch.resultType);
+    batch.timer.cancel(false);
+    return batch;
+  }
+
+  /**
+   * Send a batch through the delegate.
+   *
+   * @param batch the batch
+   */
+  @SuppressWarnings("unchecked")
+  private void dispatch(final Batch batch) {
+    if (batch.requests.size() == 1) {
+      // No need to wrap a lone call in an array
+      delegate.send(batch.requests.get(0), batch.resultType, batch.callbacks.get(0));
+      return;
+    }
+    delegate.sendBatch(batch.requests, batch.resultType, new JsonRpcBatchCallback() {
+      @Override
+      public void onResponse(JsonRpcBatchResponse results) {
+        batch.complete(results);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        batch.fail(ex);
+      }
+    });
+  }
+
+  /**
+   * Rough estimate of the encoded size of a request, used to cap the batch byte size without encoding twice.
+   *
+   * @param req the JsonRpcRequest
+   * @return the estimated size in bytes
+   */
+  private static long estimateSize(JsonRpcRequest req) {
+    long size = 48 + req.getMethod().length();
+    if (req.isNumericId()) {
+      size += 20;
+    } else if (req.getId() != null) {
+      size += req.getId().length();
+    }
+    Object params = req.getParamsValue();
+    if (params instanceof Map) {
+      for (Map.Entry<?, ?> param : ((Map<?, ?>) params).entrySet()) {
+        size += 6 + String.valueOf(param.getKey()).length() + estimateSize(param.getValue());
+      }
+    } else if (params instanceof List) {
+      for (Object param : (List<?>) params) {
+        size += 1 + estimateSize(param);
+      }
+    } else if (params instanceof RawValue) {
+      Object raw = ((RawValue) params).rawValue();
+      size += raw instanceof SerializableString ? ((SerializableString) raw).asUnquotedUTF8().length : String.valueOf(raw).length();
+    } else if (params != null) {
+      size += 64;
+    }
+    return size;
+  }
+
+  /**
+   * Rough estimate of the encoded size of a param value.
+   *
+   * @param value the param value
+   * @return the estimated size in bytes
+   */
+  private static long estimateSize(Object value) {
+    if (value instanceof CharSequence) {
+      return 2 + ((CharSequence) value).length();
+    }
+    if (value == null || value instanceof Number || value instanceof Boolean) {
+      return 8;
+    }
+    return 64;
+  }
+
+  /**
+   * Timer task sending a batch once its window is over.
+   */
+  private class Flush implements Runnable {
+    private final Batch batch;
+
+    /**
+     * @param batch the batch to send
+     */
+    Flush(Batch batch) {
+      this.batch = batch;
+    }
+
+    @Override
+    public void run() {
+      synchronized (CoalescingJsonRpcClient.this) {
+        if (pending.get(batch.resultType) != batch) {
+          // Already sent
+          return;
+        }
+        pending.remove(batch.resultType);
+      }
+      dispatch(batch);
+    }
+  }
+
+  /**
+   * A set of calls waiting to be sent together.
+   */
+  private static class Batch {
+    private final JavaType resultType;
+    private final List<JsonRpcRequest> requests = new ArrayList<JsonRpcRequest>();
+    private final List<JsonRpcCallback> callbacks = new ArrayList<JsonRpcCallback>();
+    private final Set<String> ids = new HashSet<String>();
+    private long bytes;
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param resultType the result type shared by every call of the batch
+     */
+    Batch(JavaType resultType) {
+      this.resultType = resultType;
+    }
+
+    /**
+     * Add a call to the batch.
+     *
+     * @param req      the JsonRpcRequest
+     * @param callback the callback of the caller
+     */
+    void add(JsonRpcRequest req, JsonRpcCallback callback) {
+      requests.add(req);
+      callbacks.add(callback);
+      bytes += estimateSize(req);
+      if (req.getId() != null) {
+        ids.add(req.getId());
+      }
+    }
+
+    /**
+     * Hand every caller its own response, matched by id.
+     *
+     * @param results the batch responses
+     */
+    @SuppressWarnings("unchecked")
+    void complete(JsonRpcBatchResponse results) {
+      for (int i = 0; i < callbacks.size(); i++) {
+        if (results.isMissing(i)) {
+          failQuietly(callbacks.get(i), new IOException("No response received for request " + requests.get(i).getId()));
+          continue;
+        }
+        try {
+          // Notifications get a null response, as when sent alone
+          callbacks.get(i).onResponse(results.getAt(i));
+        } catch (RuntimeException e) {
+          // The caller got its response: its own failure is no concern of the others
+        }
+      }
+    }
+
+    /**
+     * Forward a failure to every caller.
+     *
+     * @param ex the exception
+     */
+    void fail(IOException ex) {
+      for (JsonRpcCallback callback : callbacks) {
+        failQuietly(callback, ex);
+      }
+    }
+
+    /**
+     * Forward a failure to a caller, whatever its callback does with it.
+     *
+     * @param callback the callback of the caller
+     * @param ex       the exception
+     */
+    private static void failQuietly(JsonRpcCallback callback, IOException ex) {
+      try {
+        callback.onFailure(ex);
+      } catch (RuntimeException e) {
+        // The caller got its failure: its own failure is no concern of the others
+      }
+    }
+  }
+
+  public static class Builder {
+    private final JsonRpcClient delegate;
+    private long windowNanos = TimeUnit.MILLISECONDS.toNanos(5);
+    private int maxBatchSize = 100;
+    private long maxBatchBytes = 1024 * 1024;
+
+    /**
+     * @param delegate the client used to send the coalesced batches
+     */
+    private Builder(JsonRpcClient delegate) {
+      if (delegate == null) {
+        throw new IllegalArgumentException("Delegate client cannot be null");
+      }
+      this.delegate = delegate;
+    }
+
+    /**
+     * @param window the maximum time a call is held before its batch is sent. Defaults to 5ms
+     * @param unit   the time unit
+     * @return the builder
+     */
+    public Builder window(long window, TimeUnit unit) {
+      if (window <= 0) {
+        throw new IllegalArgumentException("Window must be positive");
+      }
+      this.windowNanos = unit.toNanos(window);
+      return this;
+    }
+
+    /**
+     * @param maxBatchSize the maximum number of calls per batch. Defaults to 100
+     * @return the builder
+     */
+    public Builder maxBatchSize(int maxBatchSize) {
+      if (maxBatchSize < 1) {
+        throw new IllegalArgumentException("Max batch size must be at least 1");
+      }
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * @param maxBatchBytes the approximate maximum encoded size of a batch. Defaults to 1MB
+     * @return the builder
+     */
+    public Builder maxBatchBytes(long maxBatchBytes) {
+      if (maxBatchBytes < 1) {
+        throw new IllegalArgumentException("Max batch bytes must be positive");
+      }
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * @return the CoalescingJsonRpcClient
+     */
+    public CoalescingJsonRpcClient build() {
+      return new CoalescingJsonRpcClient(this);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package io.resourcepool.jarpic.client;
+
+/**
+ * This class is a snapshot of the statistics of the OkHttp core shared by a JsonRpcClientFactory.
+ */
+public final class ConnectionPoolStats {
+
+  private final int connectionCount;
+  private final int idleConnectionCount;
+  private final int runningCallCount;
+  private final int queuedCallCount;
+  private final int threadCount;
+
+  /**
+   * @param connectionCount     the amount of open connections
+   * @param idleConnectionCount the amount of idle connections
+   * @param runningCallCount    the amount of calls running, synchronous ones included
+   * @param queuedCallCount     the amount of asynchronous calls waiting for a slot
+   * @param threadCount         the amount of dispatcher threads alive
+   */
+  public ConnectionPoolStats(int connectionCount, int idleConnectionCount, int runningCallCount, int queuedCallCount, int threadCount) {
+    this.connectionCount = connectionCount;
+    this.idleConnectionCount = idleConnectionCount;
+    this.runningCallCount = runningCallCount;
+    this.queuedCallCount = queuedCallCount;
+    this.threadCount = threadCount;
+  }
+
+  public int getConnectionCount() {
+    return connectionCount;
+  }
+
+  public int getIdleConnectionCount() {
+    return idleConnectionCount;
+  }
+
+  public int getRunningCallCount() {
+    return runningCallCount;
+  }
+
+  public int getQueuedCallCount() {
+    return queuedCallCount;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPoolStats{" +
+        "connections=" + connectionCount +
+        ", idle=" + idleConnectionCount +
+        ", running=" + runningCallCount +
+        ", queued=" + queuedCallCount +
+        ", threads=" + threadCount +
+        '}';
+  }
+}
@@ -1,9 +1,16 @@
 package io.resourcepool.jarpic.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.model.JsonRpcBatchCallback;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
 import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
 import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
 import io.resourcepool.jarpic.model.JsonRpcRequest;
 import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -11,6 +18,8 @@ import java.util.List;
 
 /**
  * @author Loïc Ortola on 11/03/2016.
+ *         Every call comes in three flavours: a Class for plain results, a TypeReference or a JavaType for generic results
+ *         such as {@code List<Order>}, which are then bound directly without any second conversion.
  */
 public interface JsonRpcClient {
 
@@ -27,6 +36,28 @@ public interface JsonRpcClient {
    */
   <T> JsonRpcResponse<T> send(JsonRpcRequest req, Class<T> resultClass) throws IOException;
 
+  /**
+   * Send synchronous Json RPC request to server, binding a generic result.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the JsonRpcResponse
+   * @throws IOException if request fails
+   */
+  <T> JsonRpcResponse<T> send(JsonRpcRequest req, TypeReference<T> resultType) throws IOException;
+
+  /**
+   * Send synchronous Json RPC request to server, binding a generic result.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the JsonRpcResponse
+   * @throws IOException if request fails
+   */
+  <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException;
+
   /**
    * Send asynchronous Json RPC request to server.
    * Response will be Deserialized as a Json RPC Response.
@@ -37,6 +68,59 @@ public interface JsonRpcClient {
    */
   void send(JsonRpcRequest req, Class resultClass, JsonRpcCallback callback);
 
+  /**
+   * Send asynchronous Json RPC request to server, binding a generic result.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the type reference for the result
+   * @param callback   the asynchronous callback which will return the response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void send(JsonRpcRequest req, TypeReference<T> resultType, JsonRpcCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request to server, binding a generic result.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the resolved type for the result
+   * @param callback   the asynchronous callback which will return the response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void send(JsonRpcRequest req, JavaType resultType, JsonRpcCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request to server.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param req         the JsonRpcRequest object
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param <T>         The type inference for the result class
+   * @return the future JsonRpcResponse, completed with null for notifications
+   */
+  <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, Class<T> resultClass);
+
+  /**
+   * Send asynchronous Json RPC request to server, binding a generic result.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the future JsonRpcResponse, completed with null for notifications
+   */
+  <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, TypeReference<T> resultType);
+
+  /**
+   * Send asynchronous Json RPC request to server, binding a generic result.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the future JsonRpcResponse, completed with null for notifications
+   */
+  <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, JavaType resultType);
+
   /**
    * Send Json RPC request array to server.
    * Deserialize response synchronously as Json RPC Response array
@@ -50,6 +134,30 @@ public interface JsonRpcClient {
   @Nullable
   <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException;
 
+  /**
+   * Send Json RPC request array to server, binding generic results.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the list of JsonRpcResponse objects
+   * @throws IOException if client request fails
+   */
+  @Nullable
+  <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException;
+
+  /**
+   * Send Json RPC request array to server, binding generic results.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the list of JsonRpcResponse objects
+   * @throws IOException if client request fails
+   */
+  @Nullable
+  <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException;
+
   /**
    * Send asynchronous Json RPC request array to server.
    * Response will be deserialize as Json RPC Response array.
@@ -60,5 +168,190 @@ public interface JsonRpcClient {
    */
   void send(List<JsonRpcRequest> reqs, Class resultClass, JsonRpcMultiCallback callback);
 
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param callback   the asynchronous callback which will return the response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void send(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcMultiCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param callback   the asynchronous callback which will return the response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param reqs        the list of JsonRpcRequest objects
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param <T>         The type inference for the result class
+   * @return the future list of JsonRpcResponse objects, completed with null if none returned
+   */
+  <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, Class<T> resultClass);
+
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the future list of JsonRpcResponse objects, completed with null if none returned
+   */
+  <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, TypeReference<T> resultType);
+
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results.
+   * Cancelling the returned future cancels the request.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the future list of JsonRpcResponse objects, completed with null if none returned
+   */
+  <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, JavaType resultType);
 
+  /**
+   * Send Json RPC request array to server.
+   * Responses are read one at a time from the returned cursor, as they are received, instead of being collected in memory.
+   * The cursor must be closed once done.
+   *
+   * @param reqs        the list of JsonRpcRequest objects
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param <T>         The type inference for the result class
+   * @return the cursor over the JsonRpcResponse objects
+   * @throws IOException if client request fails
+   */
+  @Nullable
+  <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException;
+
+  /**
+   * Send Json RPC request array to server, reading generic results one at a time from the returned cursor.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the cursor over the JsonRpcResponse objects
+   * @throws IOException if client request fails
+   */
+  @Nullable
+  <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException;
+
+  /**
+   * Send Json RPC request array to server, reading generic results one at a time from the returned cursor.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the cursor over the JsonRpcResponse objects
+   * @throws IOException if client request fails
+   */
+  @Nullable
+  <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException;
+
+  /**
+   * Send asynchronous Json RPC request array to server.
+   * Every response is handed out to the callback as soon as it has been read.
+   *
+   * @param reqs        the list of JsonRpcRequest objects
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param callback    the asynchronous callback which will receive the responses once read.
+   * @param <T>         The type inference for the result class
+   */
+  <T> void stream(List<JsonRpcRequest> reqs, Class<T> resultClass, JsonRpcStreamCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server, handing out generic results as soon as they have been read.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param callback   the asynchronous callback which will receive the responses once read.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void stream(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcStreamCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server, handing out generic results as soon as they have been read.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param callback   the asynchronous callback which will receive the responses once read.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcStreamCallback<T> callback);
+
+  /**
+   * Send Json RPC request array to server.
+   * Responses are correlated with the original requests by id, whatever order the server answered in.
+   *
+   * @param reqs        the list of JsonRpcRequest objects
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param <T>         The type inference for the result class
+   * @return the batch response, indexed by request id
+   * @throws IOException if client request fails
+   */
+  <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, Class<T> resultClass) throws IOException;
+
+  /**
+   * Send Json RPC request array to server, binding generic results correlated with the original requests by id.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param <T>        The type inference for the result type
+   * @return the batch response, indexed by request id
+   * @throws IOException if client request fails
+   */
+  <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, TypeReference<T> resultType) throws IOException;
+
+  /**
+   * Send Json RPC request array to server, binding generic results correlated with the original requests by id.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param <T>        The type inference for the result type
+   * @return the batch response, indexed by request id
+   * @throws IOException if client request fails
+   */
+  <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException;
+
+  /**
+   * Send asynchronous Json RPC request array to server.
+   * Responses are correlated with the original requests by id, whatever order the server answered in.
+   *
+   * @param reqs        the list of JsonRpcRequest objects
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param callback    the asynchronous callback which will return the batch response once received.
+   * @param <T>         The type inference for the result class
+   */
+  <T> void sendBatch(List<JsonRpcRequest> reqs, Class<T> resultClass, JsonRpcBatchCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results correlated with the original requests by id.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the type reference for the result
+   * @param callback   the asynchronous callback which will return the batch response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void sendBatch(List<JsonRpcRequest> reqs, TypeReference<T> resultType, JsonRpcBatchCallback<T> callback);
+
+  /**
+   * Send asynchronous Json RPC request array to server, binding generic results correlated with the original requests by id.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param callback   the asynchronous callback which will return the batch response once received.
+   * @param <T>        The type inference for the result type
+   */
+  <T> void sendBatch(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcBatchCallback<T> callback);
 }
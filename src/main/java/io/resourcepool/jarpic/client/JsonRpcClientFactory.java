@@ -0,0 +1,216 @@
+package io.resourcepool.jarpic.client;
+
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.transport.HttpTransport;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This factory owns one OkHttp core: connection pool, dispatcher and its threads.
+ * It hands out lightweight per-endpoint clients sharing this core, so that talking to many endpoints
+ * does not multiply idle sockets and threads.
+ * The dispatcher runs at most maxRequests calls at once, on at most as many threads, which die once idle.
+ */
+public class JsonRpcClientFactory implements Closeable {
+
+  private final OkHttpClient client;
+  private final JsonRpcCodec codec;
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Construct a new JsonRpcClientFactory.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private JsonRpcClientFactory(Builder builder) {
+    this.codec = builder.codec;
+    this.executor = new ThreadPoolExecutor(builder.maxRequests, builder.maxRequests,
+        builder.keepAliveNanos, TimeUnit.NANOSECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "jarpic-dispatcher-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    Dispatcher dispatcher = new Dispatcher(executor);
+    dispatcher.setMaxRequests(builder.maxRequests);
+    dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+    OkHttpClient.Builder base = builder.client == null ? new OkHttpClient.Builder() : builder.client.newBuilder();
+    this.client = base
+        .dispatcher(dispatcher)
+        .connectionPool(new ConnectionPool(builder.maxIdleConnections, builder.keepAliveNanos, TimeUnit.NANOSECONDS))
+        .build();
+  }
+
+  /**
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Create a client for an endpoint, sharing the core of this factory.
+   *
+   * @param endpoint the target url endpoint
+   * @return the client
+   */
+  public HttpJsonRpcClient create(String endpoint) {
+    return new HttpJsonRpcClient(endpoint, client, codec);
+  }
+
+  /**
+   * Create a client spreading calls over replicas of the same service, sharing the core of this factory.
+   *
+   * @param endpoints the url endpoints of the replicas
+   * @return the client
+   */
+  public HttpJsonRpcClient create(List<String> endpoints) {
+    return new HttpJsonRpcClient(endpoints, client, codec);
+  }
+
+  /**
+   * Create a transport for an endpoint, sharing the core of this factory, typically to wrap it in other layers.
+   *
+   * @param endpoint the target url endpoint
+   * @return the transport
+   */
+  public HttpTransport createTransport(String endpoint) {
+    return new HttpTransport(endpoint, client);
+  }
+
+  /**
+   * @return the shared OkHttp client
+   */
+  public OkHttpClient getClient() {
+    return client;
+  }
+
+  /**
+   * @return a snapshot of the statistics of the shared connection pool and dispatcher
+   */
+  public ConnectionPoolStats getStats() {
+    ConnectionPool pool = client.connectionPool();
+    Dispatcher dispatcher = client.dispatcher();
+    return new ConnectionPoolStats(pool.connectionCount(), pool.idleConnectionCount(),
+        dispatcher.runningCallsCount(), dispatcher.queuedCallsCount(), executor.getPoolSize());
+  }
+
+  /**
+   * Cancel every call, close idle connections and stop the dispatcher threads.
+   * Clients created by this factory cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    client.dispatcher().cancelAll();
+    executor.shutdown();
+    client.connectionPool().evictAll();
+  }
+
+  public static class Builder {
+    private OkHttpClient client;
+    private JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+    private int maxRequests = 64;
+    private int maxRequestsPerHost = 16;
+    private int maxIdleConnections = 16;
+    private long keepAliveNanos = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * Private constructor, use JsonRpcClientFactory.builder().
+     */
+    private Builder() {
+    }
+
+    /**
+     * @param client a client whose settings (timeouts, interceptors...) are inherited. Its pool and dispatcher are not
+     * @return the builder
+     */
+    public Builder client(OkHttpClient client) {
+      this.client = client;
+      return this;
+    }
+
+    /**
+     * @param codec the codec used by every client
+     * @return the builder
+     */
+    public Builder codec(JsonRpcCodec codec) {
+      if (codec == null) {
+        throw new IllegalArgumentException("Codec cannot be null");
+      }
+      this.codec = codec;
+      return this;
+    }
+
+    /**
+     * @param maxRequests the maximum amount of asynchronous calls running at once, and of dispatcher threads.
+     *                    Defaults to 64
+     * @return the builder
+     */
+    public Builder maxRequests(int maxRequests) {
+      if (maxRequests < 1) {
+        throw new IllegalArgumentException("Max requests must be at least 1");
+      }
+      this.maxRequests = maxRequests;
+      return this;
+    }
+
+    /**
+     * @param maxRequestsPerHost the maximum amount of asynchronous calls running at once per host. Defaults to 16
+     * @return the builder
+     */
+    public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+      if (maxRequestsPerHost < 1) {
+        throw new IllegalArgumentException("Max requests per host must be at least 1");
+      }
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      return this;
+    }
+
+    /**
+     * @param maxIdleConnections the maximum amount of idle connections kept, all hosts included. Defaults to 16
+     * @return the builder
+     */
+    public Builder maxIdleConnections(int maxIdleConnections) {
+      if (maxIdleConnections < 0) {
+        throw new IllegalArgumentException("Max idle connections cannot be negative");
+      }
+      this.maxIdleConnections = maxIdleConnections;
+      return this;
+    }
+
+    /**
+     * @param keepAlive how long idle connections and dispatcher threads are kept. Defaults to 5 minutes
+     * @param unit      the time unit
+     * @return the builder
+     */
+    public Builder keepAlive(long keepAlive, TimeUnit unit) {
+      if (keepAlive <= 0) {
+        throw new IllegalArgumentException("Keep-alive must be positive");
+      }
+      this.keepAliveNanos = unit.toNanos(keepAlive);
+      return this;
+    }
+
+    /**
+     * @return the JsonRpcClientFactory
+     */
+    public JsonRpcClientFactory build() {
+      return new JsonRpcClientFactory(this);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package io.resourcepool.jarpic.client;
+
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This OkHttp RequestBody streams one or several JsonRpcRequests directly into the request sink.
+ * No intermediate tree, String or byte array is built: the body is encoded as it is sent.
+ * As the length is not known in advance, the body is sent using chunked transfer encoding.
+ */
+public class JsonRpcRequestBody extends RequestBody {
+
+  static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+
+  private final JsonRpcPayload payload;
+  private final JsonRpcEventListener listener;
+
+  /**
+   * Construct a new body for a single request.
+   *
+   * @param codec   the codec used to create the JSON generator
+   * @param request the JsonRpcRequest
+   */
+  public JsonRpcRequestBody(JsonRpcCodec codec, JsonRpcRequest request) {
+    this(new JsonRpcPayload(codec, request));
+  }
+
+  /**
+   * Construct a new body for a batch of requests.
+   *
+   * @param codec    the codec used to create the JSON generator
+   * @param requests the list of JsonRpcRequest objects
+   */
+  public JsonRpcRequestBody(JsonRpcCodec codec, List<JsonRpcRequest> requests) {
+    this(new JsonRpcPayload(codec, requests));
+  }
+
+  /**
+   * Construct a new body for a payload.
+   *
+   * @param payload the payload
+   */
+  public JsonRpcRequestBody(JsonRpcPayload payload) {
+    this(payload, null);
+  }
+
+  /**
+   * Construct a new body for one attempt at sending a payload.
+   *
+   * @param payload  the payload
+   * @param listener the listener of the attempt (see JsonRpcPayload.startAttempt), or null to start a new attempt on every write
+   */
+  public JsonRpcRequestBody(JsonRpcPayload payload, JsonRpcEventListener listener) {
+    this.payload = payload;
+    this.listener = listener;
+  }
+
+  @Override
+  public MediaType contentType() {
+    return JSON;
+  }
+
+  @Override
+  public void writeTo(BufferedSink sink) throws IOException {
+    // The sink belongs to OkHttp: it flushes it when done
+    if (listener == null) {
+      payload.writeTo(sink.outputStream());
+    } else {
+      payload.writeTo(sink.outputStream(), listener);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package io.resourcepool.jarpic.client;
+
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.metrics.JsonRpcMetrics;
+import io.resourcepool.jarpic.model.Error;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reports one payload exchange to JsonRpcMetrics: calls started, then ended as their responses are read.
+ * Once the exchange is over, the calls left are ended at once, and the bytes exchanged are reported.
+ * The phases seen by the protocol layer (call, parse) are notified to the JsonRpcEventListener of the exchange.
+ * An exchange is used by one thread at a time, and ends only once: later reports are ignored.
+ */
+final class MeteredExchange implements JsonRpcResponseCursor.Observer {
+
+  private final JsonRpcMetrics metrics;
+  private final JsonRpcEventListener listener;
+  private final JsonRpcPayload payload;
+  private final List<JsonRpcRequest> requests;
+  private final long start;
+  private boolean[] answered;
+  private Map<String, Integer> positions;
+  private CountingInputStream body;
+  private boolean over;
+
+  /**
+   * Start the calls of a payload.
+   *
+   * @param metrics  the metrics to report to
+   * @param listener the listener of the exchange
+   * @param payload  the payload about to be handed to the transport
+   */
+  MeteredExchange(JsonRpcMetrics metrics, JsonRpcEventListener listener, JsonRpcPayload payload) {
+    this.metrics = metrics;
+    this.listener = listener;
+    this.payload = payload;
+    this.requests = payload.getRequests();
+    if (payload.isBatch()) {
+      metrics.onBatchSent(requests.size());
+    }
+    for (JsonRpcRequest req : requests) {
+      metrics.onCallStarted(req.getMethod());
+    }
+    this.start = System.nanoTime();
+    listener.callStart(start);
+  }
+
+  /**
+   * @param in the response body
+   * @return the body, counting the bytes read
+   */
+  InputStream meter(InputStream in) {
+    listener.parseStart(System.nanoTime());
+    body = new CountingInputStream(in);
+    return body;
+  }
+
+  /**
+   * End the call answered by a response.
+   *
+   * @param response the response, or null
+   */
+  @Override
+  public void onResponse(JsonRpcResponse<?> response) {
+    if (over || response == null) {
+      return;
+    }
+    int position = positionOf(response.getId());
+    if (position < 0 || answered[position]) {
+      return;
+    }
+    answered[position] = true;
+    metrics.onCallCompleted(requests.get(position).getMethod(), System.nanoTime() - start, response.getError());
+  }
+
+  @Override
+  public void onClose() {
+    complete(null);
+  }
+
+  /**
+   * End the exchange: calls left are ended with the given error.
+   *
+   * @param error the error applying to the calls left, or null
+   */
+  void complete(Error error) {
+    if (over) {
+      return;
+    }
+    over = true;
+    long end = System.nanoTime();
+    for (int i = 0; i < requests.size(); i++) {
+      if (answered == null || !answered[i]) {
+        metrics.onCallCompleted(requests.get(i).getMethod(), end - start, error);
+      }
+    }
+    report(end);
+    listener.callEnd(end);
+  }
+
+  /**
+   * End the exchange: calls left failed.
+   *
+   * @param failure the failure
+   */
+  void fail(Exception failure) {
+    if (over) {
+      return;
+    }
+    over = true;
+    long end = System.nanoTime();
+    for (int i = 0; i < requests.size(); i++) {
+      if (answered == null || !answered[i]) {
+        metrics.onCallFailed(requests.get(i).getMethod(), end - start, failure);
+      }
+    }
+    report(end);
+    listener.callFailed(end, failure);
+  }
+
+  /**
+   * Report the bytes exchanged, and the end of parsing if it started.
+   *
+   * @param end the end of the exchange
+   */
+  private void report(long end) {
+    long received = body == null ? 0 : body.count;
+    if (body != null) {
+      listener.parseEnd(end, received);
+    }
+    metrics.onExchangeCompleted(payload.getBytesWritten(), received);
+  }
+
+  /**
+   * @param id the id of a response
+   * @return the position of the request answered, or -1 if unknown
+   */
+  private int positionOf(String id) {
+    if (id == null) {
+      return -1;
+    }
+    if (answered == null) {
+      answered = new boolean[requests.size()];
+    }
+    if (requests.size() == 1) {
+      return id.equals(requests.get(0).getId()) ? 0 : -1;
+    }
+    if (positions == null) {
+      positions = new HashMap<String, Integer>(requests.size() * 2);
+      for (int i = 0; i < requests.size(); i++) {
+        String reqId = requests.get(i).getId();
+        if (reqId != null && !positions.containsKey(reqId)) {
+          positions.put(reqId, i);
+        }
+      }
+    }
+    Integer position = positions.get(id);
+    return position == null ? -1 : position;
+  }
+
+  /**
+   * Stream counting the bytes read through it. The parser reads whole buffers, so counting costs little.
+   */
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    /**
+     * @param in the stream to read from
+     */
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+  }
+}
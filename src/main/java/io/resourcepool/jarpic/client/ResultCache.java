@@ -0,0 +1,262 @@
+package io.resourcepool.jarpic.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class holds the cached results of one method, bounded by a CachePolicy.
+ * Eviction follows W-TinyLFU: new entries land in a small LRU window. When it overflows, its eldest entry
+ * only enters the main LRU area if it was requested more often than the entry it would evict there,
+ * as estimated by a count-min sketch whose counters are halved periodically so that old popularity fades.
+ * One-off calls thus cannot flush the results that are actually reused.
+ * Expired entries are dropped when looked up, or evicted first when room is needed.
+ */
+class ResultCache {
+
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private final CachePolicy policy;
+  private final int windowMax;
+  private final int mainMax;
+  private final LinkedHashMap<CallKey, Entry> window = new LinkedHashMap<CallKey, Entry>(16, 0.75f, true);
+  private final LinkedHashMap<CallKey, Entry> main = new LinkedHashMap<CallKey, Entry>(16, 0.75f, true);
+  private final FrequencySketch sketch;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  /**
+   * @param policy the bounds of the cache
+   */
+  ResultCache(CachePolicy policy) {
+    this.policy = policy;
+    this.windowMax = Math.max(1, policy.getMaxEntries() / 100);
+    this.mainMax = policy.getMaxEntries() - windowMax;
+    this.sketch = new FrequencySketch(policy.getMaxEntries());
+  }
+
+  /**
+   * Look up a fresh result, and record the access.
+   *
+   * @param key the call key
+   * @return the encoded result, or null if none is cached
+   */
+  synchronized byte[] get(CallKey key) {
+    sketch.increment(key.hashCode());
+    LinkedHashMap<CallKey, Entry> area = window;
+    Entry entry = window.get(key);
+    if (entry == null) {
+      area = main;
+      entry = main.get(key);
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (entry.isExpired(System.nanoTime())) {
+      area.remove(key);
+      bytes -= entry.size;
+      expirations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Cache a result, replacing any previous one for the same key.
+   *
+   * @param key   the call key
+   * @param value the encoded result
+   */
+  synchronized void put(CallKey key, byte[] value) {
+    Entry previous = window.remove(key);
+    if (previous == null) {
+      previous = main.remove(key);
+    }
+    if (previous != null) {
+      bytes -= previous.size;
+    }
+    Entry entry = new Entry(key, value, System.nanoTime() + policy.getTtlNanos());
+    if (entry.size > policy.getMaxBytes()) {
+      // Could never fit
+      evictions++;
+      return;
+    }
+    window.put(key, entry);
+    bytes += entry.size;
+    while (window.size() > windowMax) {
+      admit(removeEldest(window));
+    }
+    while (bytes > policy.getMaxBytes()) {
+      evict(removeEldest(main.isEmpty() ? window : main));
+    }
+  }
+
+  /**
+   * Drop every entry.
+   */
+  synchronized void clear() {
+    window.clear();
+    main.clear();
+    bytes = 0;
+  }
+
+  /**
+   * @return a snapshot of the statistics
+   */
+  synchronized CacheStats stats() {
+    return new CacheStats(hits, misses, evictions, expirations, window.size() + main.size(), bytes);
+  }
+
+  /**
+   * Move an entry leaving the window into the main area, if it is more popular than the entry it would evict there.
+   *
+   * @param candidate the entry leaving the window
+   */
+  private void admit(Entry candidate) {
+    if (main.size() < mainMax) {
+      main.put(candidate.key, candidate);
+      return;
+    }
+    if (main.isEmpty()) {
+      evict(candidate);
+      return;
+    }
+    Entry victim = main.entrySet().iterator().next().getValue();
+    long now = System.nanoTime();
+    if (!victim.isExpired(now) && (candidate.isExpired(now) || sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode()))) {
+      evict(candidate);
+      return;
+    }
+    main.remove(victim.key);
+    evict(victim);
+    main.put(candidate.key, candidate);
+  }
+
+  /**
+   * @param area the window or main area
+   * @return the least recently used entry of the area, removed from it
+   */
+  private static Entry removeEldest(LinkedHashMap<CallKey, Entry> area) {
+    Iterator<Map.Entry<CallKey, Entry>> it = area.entrySet().iterator();
+    Entry eldest = it.next().getValue();
+    it.remove();
+    return eldest;
+  }
+
+  /**
+   * Account for an entry leaving the cache. The entry must already be removed from its area.
+   *
+   * @param entry the entry
+   */
+  private void evict(Entry entry) {
+    bytes -= entry.size;
+    if (entry.isExpired(System.nanoTime())) {
+      expirations++;
+    } else {
+      evictions++;
+    }
+  }
+
+  /**
+   * A cached result.
+   */
+  private static final class Entry {
+    private final CallKey key;
+    private final byte[] value;
+    private final long expiresAt;
+    private final long size;
+
+    /**
+     * @param key       the call key
+     * @param value     the encoded result
+     * @param expiresAt the nanoTime after which the result is stale
+     */
+    Entry(CallKey key, byte[] value, long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.size = ENTRY_OVERHEAD + key.size() + value.length;
+    }
+
+    /**
+     * @param now the current nanoTime
+     * @return true if the result is stale
+     */
+    boolean isExpired(long now) {
+      return now - expiresAt >= 0;
+    }
+  }
+
+  /**
+   * A count-min sketch of small counters, capped at 15, estimating how often keys were requested.
+   * Every counter is halved once the amount of recorded accesses reaches ten times the cache size.
+   */
+  private static final class FrequencySketch {
+    private static final int[] SEEDS = {0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0x5bd1e995};
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param maxEntries the cache size
+     */
+    FrequencySketch(int maxEntries) {
+      // Eight counters per entry keep collisions rare enough for the estimates to rank keys
+      int length = Integer.highestOneBit(Math.max(8, Math.min(maxEntries, 1 << 22)) - 1) << 4;
+      this.table = new byte[length];
+      this.mask = length - 1;
+      this.sampleSize = 10 * Math.max(16, maxEntries);
+    }
+
+    /**
+     * @param hash the key hash
+     * @param i    the row
+     * @return the index of the counter of the key in the row
+     */
+    private int indexOf(int hash, int i) {
+      int h = (hash ^ SEEDS[i]) * SEEDS[i];
+      return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Record an access.
+     *
+     * @param hash the key hash
+     */
+    void increment(int hash) {
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = indexOf(hash, i);
+        if (table[index] < MAX_COUNT) {
+          table[index]++;
+        }
+      }
+      if (++additions >= sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (byte) (table[i] >> 1);
+        }
+        additions /= 2;
+      }
+    }
+
+    /**
+     * @param hash the key hash
+     * @return the estimated amount of recent accesses
+     */
+    int frequency(int hash) {
+      int min = MAX_COUNT;
+      for (int i = 0; i < SEEDS.length; i++) {
+        min = Math.min(min, table[indexOf(hash, i)]);
+      }
+      return min;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.model.JsonRpcBatchCallback;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This client sends identical concurrent calls only once.
+ * While a call is in flight, later calls with the same method, params and result type attach to it
+ * instead of being sent, and every caller gets the one response, stamped with the id of its own request.
+ * Params are compared canonically, whatever the order of their keys.
+ * Callers share the bound result, and the buffered JSON of lazy results: it must not be mutated.
+ * A callback throwing never keeps the other callers from being completed.
+ * Notifications, list, stream and batch calls are sent as-is to the delegate.
+ */
+public class SingleFlightJsonRpcClient extends AbstractJsonRpcClient {
+
+  private final JsonRpcClient delegate;
+  private final Map<FlightKey, Flight> flights = new HashMap<FlightKey, Flight>();
+
+  /**
+   * Construct a new SingleFlightJsonRpcClient.
+   *
+   * @param delegate the client used to send the calls
+   */
+  public SingleFlightJsonRpcClient(JsonRpcClient delegate) {
+    super(codecOf(delegate));
+    if (delegate == null) {
+      throw new IllegalArgumentException("Delegate client cannot be null");
+    }
+    this.delegate = delegate;
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    if (req.getId() == null) {
+      return delegate.send(req, resultType);
+    }
+    FlightKey key = new FlightKey(CallKey.of(codec, req), resultType);
+    BlockingJsonRpcCallback<T> follower = new BlockingJsonRpcCallback<T>();
+    Flight flight = join(key, req, follower);
+    if (flight == null) {
+      return follower.await();
+    }
+    // Leader: send on the calling thread
+    JsonRpcResponse<T> res;
+    try {
+      res = delegate.send(req, resultType);
+    } catch (IOException e) {
+      land(key, flight).fail(e);
+      throw e;
+    } catch (RuntimeException e) {
+      // Never leave attached callers waiting
+      land(key, flight).fail(new IOException(e));
+      throw e;
+    }
+    land(key, flight).complete(res);
+    return res;
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, JavaType resultType, final JsonRpcCallback<T> callback) {
+    if (req.getId() == null) {
+      delegate.send(req, resultType, callback);
+      return;
+    }
+    final FlightKey key;
+    try {
+      key = new FlightKey(CallKey.of(codec, req), resultType);
+    } catch (IOException e) {
+      callback.onFailure(e);
+      return;
+    }
+    final Flight flight = join(key, req, callback);
+    if (flight == null) {
+      return;
+    }
+    delegate.send(req, resultType, new JsonRpcCallback<T>() {
+      @Override
+      public void onResponse(JsonRpcResponse<T> res) {
+        land(key, flight).complete(res);
+        callback.onResponse(res);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        land(key, flight).fail(ex);
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.send(reqs, resultType);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback) {
+    delegate.send(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.stream(reqs, resultType);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcStreamCallback<T> callback) {
+    delegate.stream(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcBatchResponse<T> sendBatch(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    return delegate.sendBatch(reqs, resultType);
+  }
+
+  @Override
+  public <T> void sendBatch(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcBatchCallback<T> callback) {
+    delegate.sendBatch(reqs, resultType, callback);
+  }
+
+  /**
+   * @return the amount of distinct calls currently in flight
+   */
+  public synchronized int getInFlightCount() {
+    return flights.size();
+  }
+
+  /**
+   * Attach a call to the identical one in flight, or start a new flight.
+   *
+   * @param key      the flight key
+   * @param req      the JsonRpcRequest
+   * @param callback the callback of the caller, used if the call is attached
+   * @return the new flight if the caller must send the call, or null if it was attached
+   */
+  private synchronized Flight join(FlightKey key, JsonRpcRequest req, JsonRpcCallback<?> callback) {
+    Flight flight = flights.get(key);
+    if (flight != null) {
+      flight.attach(req, callback);
+      return null;
+    }
+    flight = new Flight();
+    flights.put(key, flight);
+    return flight;
+  }
+
+  /**
+   * Remove a flight, so that no caller attaches to it any more.
+   *
+   * @param key    the flight key
+   * @param flight the flight
+   * @return the flight
+   */
+  private synchronized Flight land(FlightKey key, Flight flight) {
+    if (flights.get(key) == flight) {
+      flights.remove(key);
+    }
+    return flight;
+  }
+
+  /**
+   * Identifies identical calls: same method and params, bound to the same type.
+   */
+  private static final class FlightKey {
+    private final CallKey call;
+    private final JavaType resultType;
+
+    /**
+     * @param call       the method and params
+     * @param resultType the resolved type for the result
+     */
+    FlightKey(CallKey call, JavaType resultType) {
+      this.call = call;
+      this.resultType = resultType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey other = (FlightKey) o;
+      return call.equals(other.call) && resultType.equals(other.resultType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * call.hashCode() + resultType.hashCode();
+    }
+  }
+
+  /**
+   * The callers attached to a call in flight.
+   */
+  private static final class Flight {
+    private final List<JsonRpcRequest> requests = new ArrayList<JsonRpcRequest>(2);
+    private final List<JsonRpcCallback> callbacks = new ArrayList<JsonRpcCallback>(2);
+
+    /**
+     * Attach a caller. Must be called while holding the client lock, before the flight lands.
+     *
+     * @param req      the JsonRpcRequest of the caller
+     * @param callback the callback of the caller
+     */
+    void attach(JsonRpcRequest req, JsonRpcCallback<?> callback) {
+      requests.add(req);
+      callbacks.add(callback);
+    }
+
+    /**
+     * Hand the response to every attached caller, with the id of its own request.
+     * A lazy result is bound once, up front: if it cannot be bound, every caller gets the failure instead.
+     * Never throws, so that the caller sending the call always gets its own response.
+     *
+     * @param res the response of the call
+     */
+    @SuppressWarnings("unchecked")
+    void complete(JsonRpcResponse res) {
+      if (callbacks.isEmpty()) {
+        return;
+      }
+      if (res != null) {
+        try {
+          res.getResult();
+        } catch (RuntimeException e) {
+          fail(new IOException("Could not bind result: " + e.getMessage(), e));
+          return;
+        }
+      }
+      for (int i = 0; i < callbacks.size(); i++) {
+        JsonRpcResponse copy;
+        try {
+          copy = res == null ? null : JsonRpcResponse.builder().idOf(requests.get(i)).resultOf(res).error(res.getError()).build();
+        } catch (RuntimeException e) {
+          failQuietly(callbacks.get(i), new IOException(e));
+          continue;
+        }
+        try {
+          callbacks.get(i).onResponse(copy);
+        } catch (RuntimeException e) {
+          // The caller got its response: its own failure is no concern of the others
+        }
+      }
+    }
+
+    /**
+     * Forward a failure to every attached caller.
+     *
+     * @param ex the exception
+     */
+    void fail(IOException ex) {
+      for (JsonRpcCallback callback : callbacks) {
+        failQuietly(callback, ex);
+      }
+    }
+
+    /**
+     * Forward a failure to a caller, whatever its callback does with it.
+     *
+     * @param callback the callback of the caller
+     * @param ex       the exception
+     */
+    private static void failQuietly(JsonRpcCallback callback, IOException ex) {
+      try {
+        callback.onFailure(ex);
+      } catch (RuntimeException e) {
+        // The caller got its failure: its own failure is no concern of the others
+      }
+    }
+  }
+}
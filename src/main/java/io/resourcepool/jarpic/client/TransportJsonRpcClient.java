@@ -0,0 +1,482 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.metrics.DefaultJsonRpcMetrics;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.metrics.JsonRpcMetrics;
+import io.resourcepool.jarpic.model.Error;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+import io.resourcepool.jarpic.parser.ResponseParser;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import io.resourcepool.jarpic.transport.JsonRpcTransport;
+import io.resourcepool.jarpic.transport.JsonRpcTransportResponse;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This implementation is the JSON RPC 2.0 protocol layer: it encodes requests, parses responses,
+ * and maps transport errors to JSON RPC errors. Carrying the bytes is left to a JsonRpcTransport.
+ * Every exchange is reported to JsonRpcMetrics: by default, a DefaultJsonRpcMetrics of its own.
+ * Calls streamed through a cursor end as their responses are read, the exchange once the cursor is closed.
+ * Optionally, the phases of every exchange are notified to a JsonRpcEventListener.
+ */
+public class TransportJsonRpcClient extends AbstractJsonRpcClient {
+
+  private static final Error PARSE_ERROR = new Error(-32700, "Parse error", null);
+
+  protected final JsonRpcTransport transport;
+  private final JsonRpcMetrics metrics;
+  private final JsonRpcEventListener.Factory eventListenerFactory;
+
+  /**
+   * Construct a new TransportJsonRpcClient.
+   *
+   * @param transport the transport carrying the payloads
+   */
+  public TransportJsonRpcClient(JsonRpcTransport transport) {
+    this(transport, JacksonJsonRpcCodec.getDefault());
+  }
+
+  /**
+   * Construct a new TransportJsonRpcClient.
+   *
+   * @param transport the transport carrying the payloads
+   * @param codec     the codec used to encode requests and decode responses
+   */
+  public TransportJsonRpcClient(JsonRpcTransport transport, JsonRpcCodec codec) {
+    this(transport, codec, new DefaultJsonRpcMetrics());
+  }
+
+  /**
+   * Construct a new TransportJsonRpcClient.
+   *
+   * @param transport the transport carrying the payloads
+   * @param codec     the codec used to encode requests and decode responses
+   * @param metrics   the metrics every exchange is reported to
+   */
+  public TransportJsonRpcClient(JsonRpcTransport transport, JsonRpcCodec codec, JsonRpcMetrics metrics) {
+    this(transport, codec, metrics, null);
+  }
+
+  /**
+   * Construct a new TransportJsonRpcClient.
+   *
+   * @param transport            the transport carrying the payloads
+   * @param codec                the codec used to encode requests and decode responses
+   * @param metrics              the metrics every exchange is reported to
+   * @param eventListenerFactory the factory of the listeners notified of the phases of every exchange, or null
+   */
+  public TransportJsonRpcClient(JsonRpcTransport transport, JsonRpcCodec codec, JsonRpcMetrics metrics, JsonRpcEventListener.Factory eventListenerFactory) {
+    super(codec);
+    if (transport == null) {
+      throw new IllegalArgumentException("Transport cannot be null");
+    }
+    if (metrics == null) {
+      throw new IllegalArgumentException("Metrics cannot be null");
+    }
+    this.transport = transport;
+    this.metrics = metrics;
+    this.eventListenerFactory = eventListenerFactory;
+  }
+
+  public JsonRpcTransport getTransport() {
+    return transport;
+  }
+
+  public JsonRpcMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, req);
+    MeteredExchange exchange = exchange(payload);
+    return readOne(req, execute(payload, exchange), resultType, exchange);
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, JavaType resultType, JsonRpcCallback<T> callback) {
+    enqueue(req, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcFuture<JsonRpcResponse<T>> sendAsync(JsonRpcRequest req, JavaType resultType) {
+    final JsonRpcFuture<JsonRpcResponse<T>> future = new JsonRpcFuture<JsonRpcResponse<T>>();
+    final JsonRpcTransport.Cancellable call = enqueue(req, resultType, new JsonRpcCallback<T>() {
+      @Override
+      public void onResponse(JsonRpcResponse<T> result) {
+        future.complete(result);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        future.fail(ex);
+      }
+    });
+    future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        call.cancel();
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Enqueue a request, handing out the response to the callback.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param resultType the resolved type for the result
+   * @param callback   the callback
+   * @param <T>        the type inference for the result
+   * @return the handle on the transport exchange
+   */
+  private <T> JsonRpcTransport.Cancellable enqueue(final JsonRpcRequest req, final JavaType resultType, final JsonRpcCallback<T> callback) {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, req);
+    final MeteredExchange exchange = exchange(payload);
+    return transport.enqueue(payload, new JsonRpcTransport.Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        JsonRpcResponse<T> result;
+        try {
+          result = readOne(req, response, resultType, exchange);
+        } catch (IOException e) {
+          callback.onFailure(e);
+          return;
+        }
+        callback.onResponse(result);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        exchange.fail(ex);
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, reqs);
+    MeteredExchange exchange = exchange(payload);
+    return readList(reqs, execute(payload, exchange), resultType, exchange);
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, JsonRpcMultiCallback<T> callback) {
+    enqueue(reqs, resultType, callback);
+  }
+
+  @Override
+  public <T> JsonRpcFuture<List<JsonRpcResponse<T>>> sendAsync(List<JsonRpcRequest> reqs, JavaType resultType) {
+    final JsonRpcFuture<List<JsonRpcResponse<T>>> future = new JsonRpcFuture<List<JsonRpcResponse<T>>>();
+    final JsonRpcTransport.Cancellable call = enqueue(reqs, resultType, new JsonRpcMultiCallback<T>() {
+      @Override
+      public void onResponse(List<JsonRpcResponse<T>> results) {
+        future.complete(results);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        future.fail(ex);
+      }
+    });
+    future.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        call.cancel();
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Enqueue a request array, handing out the responses to the callback.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param resultType the resolved type for the result
+   * @param callback   the callback
+   * @param <T>        the type inference for the result
+   * @return the handle on the transport exchange
+   */
+  private <T> JsonRpcTransport.Cancellable enqueue(final List<JsonRpcRequest> reqs, final JavaType resultType, final JsonRpcMultiCallback<T> callback) {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, reqs);
+    final MeteredExchange exchange = exchange(payload);
+    return transport.enqueue(payload, new JsonRpcTransport.Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        List<JsonRpcResponse<T>> results;
+        try {
+          results = TransportJsonRpcClient.this.<T>readList(reqs, response, resultType, exchange);
+        } catch (IOException e) {
+          callback.onFailure(e);
+          return;
+        }
+        callback.onResponse(results);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        exchange.fail(ex);
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, reqs);
+    MeteredExchange exchange = exchange(payload);
+    JsonRpcTransportResponse response = execute(payload, exchange);
+    if (response.getError() != null) {
+      exchange.complete(response.getError());
+      return JsonRpcResponseCursor.of(this.<T>buildErrors(reqs, response.getError()));
+    }
+    if (response.getBody() == null) {
+      // No response: we assume it was a notification.
+      exchange.complete(null);
+      return null;
+    }
+    JsonRpcResponseCursor<T> cursor;
+    try {
+      cursor = ResponseParser.stream(codec, exchange.meter(response.getBody()), resultType);
+    } catch (ParseException e) {
+      exchange.complete(PARSE_ERROR);
+      return JsonRpcResponseCursor.of(this.<T>buildErrors(reqs, PARSE_ERROR));
+    } catch (IOException e) {
+      exchange.fail(e);
+      throw e;
+    }
+    if (cursor == null) {
+      exchange.complete(null);
+      return null;
+    }
+    return cursor.observe(exchange);
+  }
+
+  @Override
+  public <T> void stream(final List<JsonRpcRequest> reqs, final JavaType resultType, final JsonRpcStreamCallback<T> callback) {
+    JsonRpcPayload payload = new JsonRpcPayload(codec, reqs);
+    final MeteredExchange exchange = exchange(payload);
+    transport.enqueue(payload, new JsonRpcTransport.Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        if (response.getError() != null) {
+          exchange.complete(response.getError());
+          for (JsonRpcResponse<T> error : TransportJsonRpcClient.this.<T>buildErrors(reqs, response.getError())) {
+            callback.onResponse(error);
+          }
+          callback.onComplete();
+          return;
+        }
+        if (response.getBody() == null) {
+          // No response: we assume it was a notification.
+          exchange.complete(null);
+          callback.onComplete();
+          return;
+        }
+        JsonRpcResponseCursor<T> cursor = null;
+        try {
+          cursor = ResponseParser.stream(codec, exchange.meter(response.getBody()), resultType);
+          if (cursor != null) {
+            cursor.observe(exchange);
+          }
+          while (cursor != null && cursor.hasNext()) {
+            callback.onResponse(cursor.next());
+          }
+          exchange.complete(null);
+          callback.onComplete();
+        } catch (ParseException e) {
+          exchange.complete(PARSE_ERROR);
+          callback.onFailure(new IOException("Invalid JSON RPC 2.0 response: " + e.getMessage(), e));
+        } catch (IOException e) {
+          exchange.fail(e);
+          callback.onFailure(e);
+        } finally {
+          closeQuietly(cursor);
+          response.close();
+        }
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        exchange.fail(ex);
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  /**
+   * Start the metered exchange of a payload, with its event listener.
+   *
+   * @param payload the payload about to be handed to the transport
+   * @return the metered exchange
+   */
+  private MeteredExchange exchange(JsonRpcPayload payload) {
+    JsonRpcEventListener listener = null;
+    if (eventListenerFactory != null) {
+      listener = eventListenerFactory.create(payload);
+    }
+    if (listener == null) {
+      listener = JsonRpcEventListener.NONE;
+    }
+    payload.setEventListener(listener);
+    return new MeteredExchange(metrics, listener, payload);
+  }
+
+  /**
+   * Execute a payload, reporting the exchange as failed if the transport fails.
+   *
+   * @param payload  the payload
+   * @param exchange the metered exchange
+   * @return the transport response
+   * @throws IOException if the transport failed
+   */
+  private JsonRpcTransportResponse execute(JsonRpcPayload payload, MeteredExchange exchange) throws IOException {
+    try {
+      return transport.execute(payload);
+    } catch (IOException e) {
+      exchange.fail(e);
+      throw e;
+    } catch (RuntimeException e) {
+      exchange.fail(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Close a cursor, ignoring failures: the transport response is released anyway.
+   *
+   * @param cursor the cursor, or null
+   */
+  private static void closeQuietly(JsonRpcResponseCursor<?> cursor) {
+    if (cursor != null) {
+      try {
+        cursor.close();
+      } catch (IOException e) {
+        // Released with the transport response
+      }
+    }
+  }
+
+  /**
+   * Map the transport response of a single request.
+   *
+   * @param req        the JsonRpcRequest object
+   * @param response   the transport response
+   * @param resultType the resolved type for the result
+   * @param exchange   the metered exchange
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse, or null if none returned
+   * @throws IOException if response is parsing error occurs
+   */
+  @SuppressWarnings("unchecked")
+  private <T> JsonRpcResponse<T> readOne(JsonRpcRequest req, JsonRpcTransportResponse response, JavaType resultType, MeteredExchange exchange) throws IOException {
+    if (response.getError() != null) {
+      exchange.complete(response.getError());
+      return buildError(req, response.getError());
+    }
+    if (response.getBody() == null) {
+      // No response: we assume it was a notification.
+      exchange.complete(null);
+      return null;
+    }
+    try {
+      JsonRpcResponse<T> result = ResponseParser.parseOne(codec, exchange.meter(response.getBody()), resultType);
+      exchange.complete(result == null ? null : result.getError());
+      return result;
+    } catch (ParseException e) {
+      exchange.complete(PARSE_ERROR);
+      return buildError(req, PARSE_ERROR);
+    } catch (IOException e) {
+      exchange.fail(e);
+      throw e;
+    } finally {
+      response.close();
+    }
+  }
+
+  /**
+   * Map the transport response of a request array.
+   *
+   * @param reqs       the list of JsonRpcRequest objects
+   * @param response   the transport response
+   * @param resultType the resolved type for the result
+   * @param exchange   the metered exchange
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse List, or null if none returned
+   * @throws IOException if response is parsing error occurs
+   */
+  private <T> List<JsonRpcResponse<T>> readList(List<JsonRpcRequest> reqs, JsonRpcTransportResponse response, JavaType resultType, MeteredExchange exchange) throws IOException {
+    if (response.getError() != null) {
+      exchange.complete(response.getError());
+      return buildErrors(reqs, response.getError());
+    }
+    if (response.getBody() == null) {
+      // No response: we assume it was a notification.
+      exchange.complete(null);
+      return null;
+    }
+    try {
+      List<JsonRpcResponse<T>> results = ResponseParser.parseList(codec, exchange.meter(response.getBody()), resultType);
+      if (results != null) {
+        for (JsonRpcResponse<T> result : results) {
+          exchange.onResponse(result);
+        }
+      }
+      exchange.complete(null);
+      return results;
+    } catch (ParseException e) {
+      exchange.complete(PARSE_ERROR);
+      return buildErrors(reqs, PARSE_ERROR);
+    } catch (IOException e) {
+      exchange.fail(e);
+      throw e;
+    } finally {
+      response.close();
+    }
+  }
+
+  /**
+   * Build Error Responses for every request of a batch.
+   *
+   * @param reqs  the list of JsonRpcRequest objects
+   * @param error the error
+   * @param <T>   the type inference for the result
+   * @return the list of error responses
+   */
+  @SuppressWarnings("unchecked")
+  private <T> List<JsonRpcResponse<T>> buildErrors(List<JsonRpcRequest> reqs, Error error) {
+    List<JsonRpcResponse<T>> responses = new ArrayList<JsonRpcResponse<T>>(reqs.size());
+    for (JsonRpcRequest req : reqs) {
+      responses.add(buildError(req, error));
+    }
+    return responses;
+  }
+
+  /**
+   * Build Error Response.
+   *
+   * @param req   the JsonRpcRequest object
+   * @param error the error
+   * @return the error response
+   */
+  private JsonRpcResponse buildError(JsonRpcRequest req, Error error) {
+    return JsonRpcResponse
+        .builder()
+        .idOf(req)
+        .error(error)
+        .build();
+  }
+}
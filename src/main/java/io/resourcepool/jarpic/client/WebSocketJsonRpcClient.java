@@ -0,0 +1,664 @@
+package io.resourcepool.jarpic.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.Error;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcMultiCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.JsonRpcStreamCallback;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+import io.resourcepool.jarpic.parser.ResponseParser;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.Buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This implementation sends JSON RPC 2.0 calls over one long-lived WebSocket connection.
+ * Many calls can be in flight at once: each one is registered by id in the pending-call table of the connection,
+ * and completed when the response with the same id comes back, whatever the order.
+ * A call is removed from the table when it completes, when it times out, or when its connection is lost.
+ * Timeouts are enforced by a periodic sweep of the table, every tenth of the timeout, rather than by one timer per call.
+ * Responses are parsed straight from the message text: only the ids are read ahead, to find the call.
+ * The connection is opened on first use, and opened again by the first call following a disconnection.
+ * Callbacks run on the OkHttp WebSocket reader thread, so they must not block.
+ */
+public class WebSocketJsonRpcClient extends AbstractJsonRpcClient implements Closeable {
+
+  private static final long MIN_SWEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long MAX_SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final OkHttpClient client;
+  private final Request handshake;
+  private final long timeoutNanos;
+  private final ScheduledExecutorService scheduler;
+  private Connection connection;
+  private boolean closed;
+
+  /**
+   * Construct a new WebSocketJsonRpcClient.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private WebSocketJsonRpcClient(Builder builder) {
+    super(builder.codec);
+    this.client = builder.client;
+    this.handshake = new Request.Builder().url(builder.url).build();
+    this.timeoutNanos = builder.timeoutNanos;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "jarpic-websocket-timeout");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    long period = Math.min(Math.max(timeoutNanos / 10, MIN_SWEEP_NANOS), MAX_SWEEP_NANOS);
+    scheduler.scheduleWithFixedDelay(new Sweep(), period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param url the WebSocket endpoint (ws:// or wss://)
+   * @return a new Builder
+   */
+  public static Builder builder(String url) {
+    return new Builder(url);
+  }
+
+  @Override
+  public <T> JsonRpcResponse<T> send(JsonRpcRequest req, JavaType resultType) throws IOException {
+    BlockingJsonRpcCallback<T> callback = new BlockingJsonRpcCallback<T>();
+    send(req, resultType, callback);
+    return callback.await();
+  }
+
+  @Override
+  public <T> void send(JsonRpcRequest req, JavaType resultType, final JsonRpcCallback<T> callback) {
+    final List<JsonRpcRequest> reqs = new ArrayList<JsonRpcRequest>(1);
+    reqs.add(req);
+    call(req, reqs, new Pending(resultType, reqs, false) {
+      @SuppressWarnings("unchecked")
+      @Override
+      void onMessage(String message) throws IOException, ParseException {
+        callback.onResponse(ResponseParser.<T>parseOne(codec, message, resultType));
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      void onInvalidMessage() {
+        callback.onResponse(JsonRpcResponse.builder().idOf(requests.get(0)).error(new Error(-32700, "Parse error", null)).build());
+      }
+
+      @Override
+      void onNoResponse() {
+        callback.onResponse(null);
+      }
+
+      @Override
+      void onFailure(IOException ex) {
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> List<JsonRpcResponse<T>> send(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    BlockingMultiCallback<T> callback = new BlockingMultiCallback<T>();
+    send(reqs, resultType, callback);
+    return callback.await();
+  }
+
+  @Override
+  public <T> void send(List<JsonRpcRequest> reqs, JavaType resultType, final JsonRpcMultiCallback<T> callback) {
+    call(null, reqs, new Pending(resultType, reqs, true) {
+      @Override
+      void onMessage(String message) throws IOException, ParseException {
+        callback.onResponse(ResponseParser.<T>parseList(codec, message, resultType));
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      void onInvalidMessage() {
+        List<JsonRpcResponse<T>> errors = new ArrayList<JsonRpcResponse<T>>(requests.size());
+        for (JsonRpcRequest req : requests) {
+          errors.add(JsonRpcResponse.builder().idOf(req).error(new Error(-32700, "Parse error", null)).build());
+        }
+        callback.onResponse(errors);
+      }
+
+      @Override
+      void onNoResponse() {
+        callback.onResponse(null);
+      }
+
+      @Override
+      void onFailure(IOException ex) {
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  @Override
+  public <T> JsonRpcResponseCursor<T> stream(List<JsonRpcRequest> reqs, JavaType resultType) throws IOException {
+    // WebSocket messages are received whole: nothing to gain from incremental reading
+    List<JsonRpcResponse<T>> responses = send(reqs, resultType);
+    return responses == null ? null : JsonRpcResponseCursor.of(responses);
+  }
+
+  @Override
+  public <T> void stream(List<JsonRpcRequest> reqs, JavaType resultType, final JsonRpcStreamCallback<T> callback) {
+    send(reqs, resultType, new JsonRpcMultiCallback<T>() {
+      @Override
+      public void onResponse(List<JsonRpcResponse<T>> results) {
+        if (results != null) {
+          for (JsonRpcResponse<T> result : results) {
+            callback.onResponse(result);
+          }
+        }
+        callback.onComplete();
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        callback.onFailure(ex);
+      }
+    });
+  }
+
+  /**
+   * Close the connection, and fail every pending call.
+   */
+  @Override
+  public void close() {
+    Connection current;
+    synchronized (this) {
+      closed = true;
+      current = connection;
+      connection = null;
+    }
+    if (current != null) {
+      current.socket.close(1000, null);
+      current.fail(new IOException("Client is closed"));
+    }
+    scheduler.shutdown();
+  }
+
+  /**
+   * @return the amount of calls waiting for their response
+   */
+  public int getPendingCount() {
+    Connection current;
+    synchronized (this) {
+      current = connection;
+    }
+    return current == null ? 0 : current.pending.size();
+  }
+
+  /**
+   * Register a call in the pending-call table, then send it.
+   *
+   * @param req     the single request, or null for a batch
+   * @param reqs    the requests of the call
+   * @param pending the pending call
+   */
+  private void call(JsonRpcRequest req, List<JsonRpcRequest> reqs, Pending pending) {
+    String message;
+    try {
+      Buffer buffer = new Buffer();
+      JsonRpcRequestBody body = req != null ? new JsonRpcRequestBody(codec, req) : new JsonRpcRequestBody(codec, reqs);
+      body.writeTo(buffer);
+      message = buffer.readUtf8();
+    } catch (IOException e) {
+      pending.fail(e);
+      return;
+    }
+    Connection current = connect();
+    if (current == null) {
+      pending.fail(new IOException("Client is closed"));
+      return;
+    }
+    if (!current.register(pending)) {
+      return;
+    }
+    if (!current.socket.send(message)) {
+      // Connection closing: the message will never be sent
+      current.unregister(pending);
+      pending.fail(new IOException("WebSocket connection is closed"));
+      return;
+    }
+    if (pending.keys.isEmpty()) {
+      // Notifications only: no response expected
+      pending.complete();
+    }
+  }
+
+  /**
+   * @return the current connection, opened if needed, or null if the client is closed
+   */
+  private synchronized Connection connect() {
+    if (closed) {
+      return null;
+    }
+    if (connection == null) {
+      connection = new Connection();
+      connection.socket = client.newWebSocket(handshake, connection);
+    }
+    return connection;
+  }
+
+  /**
+   * Forget a lost connection, so that the next call opens a new one.
+   *
+   * @param lost the lost connection
+   */
+  private synchronized void disconnected(Connection lost) {
+    if (connection == lost) {
+      connection = null;
+    }
+  }
+
+  /**
+   * @param req the request
+   * @return the key of the request id in the pending-call table
+   */
+  private static Object keyOf(JsonRpcRequest req) {
+    return req.isNumericId() ? Long.valueOf(req.getNumericId()) : req.getId();
+  }
+
+  /**
+   * Read the id of a response object, skipping its other members.
+   *
+   * @param parser the parser, on the start of the response object
+   * @return the key of the response id in the pending-call table, with the parser on the id value,
+   * or null if none, with the parser on the end of the response object
+   * @throws IOException if the message is not valid JSON
+   */
+  private static Object keyOf(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ("id".equals(field) && token != JsonToken.VALUE_NULL && token.isScalarValue()) {
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+          return Long.valueOf(parser.getLongValue());
+        }
+        return parser.getText();
+      }
+      parser.skipChildren();
+    }
+    return null;
+  }
+
+  /**
+   * Fail the calls of the current connection which got no response in time.
+   */
+  private class Sweep implements Runnable {
+    @Override
+    public void run() {
+      Connection current;
+      synchronized (WebSocketJsonRpcClient.this) {
+        current = connection;
+      }
+      if (current != null) {
+        current.expire(System.nanoTime());
+      }
+    }
+  }
+
+  /**
+   * One WebSocket connection, with the calls waiting for a response on it.
+   */
+  private class Connection extends WebSocketListener {
+    private final ConcurrentMap<Object, Pending> pending = new ConcurrentHashMap<Object, Pending>();
+    private volatile boolean lost;
+    private WebSocket socket;
+
+    /**
+     * Register a call under every id it expects a response for.
+     *
+     * @param call the pending call
+     * @return true if registered, false if it has been failed instead
+     */
+    boolean register(Pending call) {
+      call.deadline = System.nanoTime() + timeoutNanos;
+      for (int i = 0; i < call.keys.size(); i++) {
+        if (pending.putIfAbsent(call.keys.get(i), call) != null) {
+          for (int j = 0; j < i; j++) {
+            pending.remove(call.keys.get(j), call);
+          }
+          call.fail(new IOException("A call with id " + call.keys.get(i) + " is already in flight"));
+          return false;
+        }
+      }
+      if (lost) {
+        // Lost while registering: the failure sweep may have missed this call
+        unregister(call);
+        call.fail(new IOException("WebSocket connection lost"));
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Fail the calls past their deadline.
+     *
+     * @param now the current System.nanoTime()
+     */
+    void expire(long now) {
+      for (Pending call : pending.values()) {
+        if (now - call.deadline >= 0) {
+          unregister(call);
+          call.fail(new SocketTimeoutException("No response received in time"));
+        }
+      }
+    }
+
+    /**
+     * Remove a call from the pending-call table.
+     *
+     * @param call the pending call
+     */
+    void unregister(Pending call) {
+      for (Object key : call.keys) {
+        pending.remove(key, call);
+      }
+    }
+
+    /**
+     * Fail every pending call.
+     *
+     * @param ex the failure
+     */
+    void fail(IOException ex) {
+      lost = true;
+      disconnected(this);
+      for (Pending call : pending.values()) {
+        unregister(call);
+        call.fail(ex);
+      }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+      Pending call;
+      try {
+        call = find(text);
+      } catch (IOException e) {
+        // Not JSON: no way to tell which call it belongs to
+        return;
+      }
+      if (call == null) {
+        // Unknown, timed out, or server level error without id
+        return;
+      }
+      unregister(call);
+      call.deliver(text);
+    }
+
+    /**
+     * Find the call a message answers, reading the ids ahead without building a tree.
+     *
+     * @param text the message
+     * @return the pending call, or null if none matches the message
+     * @throws IOException if the message is not valid JSON
+     */
+    private Pending find(String text) throws IOException {
+      JsonParser parser = codec.getFactory().createParser(text);
+      try {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+          Object key = keyOf(parser);
+          Pending call = key == null ? null : pending.get(key);
+          return call != null && !call.batch ? call : null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+          return null;
+        }
+        // Any id of the batch leads to the batch call
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          Object key = keyOf(parser);
+          if (key == null) {
+            continue;
+          }
+          Pending call = pending.get(key);
+          if (call != null) {
+            return call.batch ? call : null;
+          }
+          // Skip the members following the id
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+          }
+        }
+        return null;
+      } finally {
+        parser.close();
+      }
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+      webSocket.close(1000, null);
+      fail(new IOException("WebSocket connection closed by server: " + code + " " + reason));
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+      fail(new IOException("WebSocket connection closed: " + code + " " + reason));
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+      fail(t instanceof IOException ? (IOException) t : new IOException(t));
+    }
+  }
+
+  /**
+   * A call waiting for its response.
+   */
+  private abstract static class Pending {
+    protected final JavaType resultType;
+    protected final List<JsonRpcRequest> requests;
+    private final boolean batch;
+    private final List<Object> keys;
+    private final AtomicBoolean done = new AtomicBoolean();
+    /**
+     * System.nanoTime() past which the call times out. Set before registration, which publishes it to the sweep.
+     */
+    private long deadline;
+
+    /**
+     * @param resultType the resolved type for the result
+     * @param requests   the requests of the call
+     * @param batch      true if sent as an array
+     */
+    Pending(JavaType resultType, List<JsonRpcRequest> requests, boolean batch) {
+      this.resultType = resultType;
+      this.requests = requests;
+      this.batch = batch;
+      this.keys = new ArrayList<Object>(requests.size());
+      for (JsonRpcRequest req : requests) {
+        if (req.getId() != null) {
+          keys.add(keyOf(req));
+        }
+      }
+    }
+
+    /**
+     * @return true if this call completed the pending call
+     */
+    private boolean finish() {
+      return done.compareAndSet(false, true);
+    }
+
+    /**
+     * Complete with the received message.
+     *
+     * @param message the response message
+     */
+    void deliver(String message) {
+      if (!finish()) {
+        return;
+      }
+      try {
+        onMessage(message);
+      } catch (ParseException e) {
+        onInvalidMessage();
+      } catch (IOException e) {
+        onFailure(e);
+      }
+    }
+
+    /**
+     * Complete without response, as expected for notifications.
+     */
+    void complete() {
+      if (finish()) {
+        onNoResponse();
+      }
+    }
+
+    /**
+     * Complete with a failure.
+     *
+     * @param ex the failure
+     */
+    void fail(IOException ex) {
+      if (finish()) {
+        onFailure(ex);
+      }
+    }
+
+    /**
+     * Parse the message and hand it out.
+     *
+     * @param message the response message
+     * @throws IOException    if response is parsing error occurs
+     * @throws ParseException if response is invalid
+     */
+    abstract void onMessage(String message) throws IOException, ParseException;
+
+    /**
+     * Hand out parse error responses.
+     */
+    abstract void onInvalidMessage();
+
+    /**
+     * Hand out the lack of response.
+     */
+    abstract void onNoResponse();
+
+    /**
+     * Hand out a failure.
+     *
+     * @param ex the failure
+     */
+    abstract void onFailure(IOException ex);
+  }
+
+  /**
+   * Multi callback letting a synchronous caller wait for the outcome of an asynchronous call.
+   */
+  private static class BlockingMultiCallback<T> implements JsonRpcMultiCallback<T> {
+    private final BlockingJsonRpcCallback<List<JsonRpcResponse<T>>> latch = new BlockingJsonRpcCallback<List<JsonRpcResponse<T>>>();
+    private List<JsonRpcResponse<T>> results;
+
+    @Override
+    public void onResponse(List<JsonRpcResponse<T>> results) {
+      this.results = results;
+      latch.onResponse(null);
+    }
+
+    @Override
+    public void onFailure(IOException ex) {
+      latch.onFailure(ex);
+    }
+
+    /**
+     * @return the responses
+     * @throws IOException if the call failed
+     */
+    List<JsonRpcResponse<T>> await() throws IOException {
+      latch.await();
+      return results;
+    }
+  }
+
+  public static class Builder {
+    private final String url;
+    private OkHttpClient client;
+    private JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * @param url the WebSocket endpoint
+     */
+    private Builder(String url) {
+      if (url == null) {
+        throw new IllegalArgumentException("URL cannot be null");
+      }
+      this.url = url;
+    }
+
+    /**
+     * @param client the http client instance
+     * @return the builder
+     */
+    public Builder client(OkHttpClient client) {
+      this.client = client;
+      return this;
+    }
+
+    /**
+     * @param codec the codec used to encode requests and decode responses
+     * @return the builder
+     */
+    public Builder codec(JsonRpcCodec codec) {
+      this.codec = codec;
+      return this;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for a response. Defaults to 30s
+     * @param unit    the time unit
+     * @return the builder
+     */
+    public Builder timeout(long timeout, TimeUnit unit) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Timeout must be positive");
+      }
+      this.timeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @return the WebSocketJsonRpcClient
+     */
+    public WebSocketJsonRpcClient build() {
+      if (client == null) {
+        client = new OkHttpClient();
+      }
+      return new WebSocketJsonRpcClient(this);
+    }
+  }
+}
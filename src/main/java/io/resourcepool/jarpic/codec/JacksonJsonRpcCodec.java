@@ -0,0 +1,134 @@
+package io.resourcepool.jarpic.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This implementation shares one ObjectMapper and caches ObjectReader/ObjectWriter instances per class.
+ * ObjectReader and ObjectWriter are immutable, so they can safely be reused across threads.
+ * Generic types are resolved once, and their readers cached as well, so that generic results bind in a single pass.
+ */
+public class JacksonJsonRpcCodec implements JsonRpcCodec {
+
+  private static final JacksonJsonRpcCodec DEFAULT = new JacksonJsonRpcCodec();
+
+  private final ObjectMapper mapper;
+  private final boolean lazyResults;
+  private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+  private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+  private final ConcurrentMap<JavaType, ObjectReader> typeReaders = new ConcurrentHashMap<JavaType, ObjectReader>();
+  private final ConcurrentMap<Type, JavaType> types = new ConcurrentHashMap<Type, JavaType>();
+
+  /**
+   * Construct a new codec with a default ObjectMapper.
+   */
+  public JacksonJsonRpcCodec() {
+    this(new ObjectMapper());
+  }
+
+  /**
+   * Construct a new codec with a preconfigured ObjectMapper.
+   * The mapper must not be reconfigured afterwards, as readers and writers are cached.
+   *
+   * @param mapper the Jackson ObjectMapper
+   */
+  public JacksonJsonRpcCodec(ObjectMapper mapper) {
+    this(mapper, false);
+  }
+
+  /**
+   * Construct a new codec with a preconfigured ObjectMapper.
+   * The mapper must not be reconfigured afterwards, as readers and writers are cached.
+   *
+   * @param mapper      the Jackson ObjectMapper
+   * @param lazyResults true to keep response results as buffered JSON, only bound when accessed
+   */
+  public JacksonJsonRpcCodec(ObjectMapper mapper, boolean lazyResults) {
+    if (mapper == null) {
+      throw new IllegalArgumentException("ObjectMapper cannot be null");
+    }
+    this.mapper = mapper;
+    this.lazyResults = lazyResults;
+  }
+
+  /**
+   * @return the shared default codec instance
+   */
+  public static JacksonJsonRpcCodec getDefault() {
+    return DEFAULT;
+  }
+
+  @Override
+  public ObjectMapper getMapper() {
+    return mapper;
+  }
+
+  @Override
+  public JsonFactory getFactory() {
+    return mapper.getFactory();
+  }
+
+  @Override
+  public boolean isLazyResults() {
+    return lazyResults;
+  }
+
+  @Override
+  public ObjectReader readerFor(Class<?> type) {
+    ObjectReader reader = readers.get(type);
+    if (reader == null) {
+      reader = mapper.readerFor(type);
+      ObjectReader existing = readers.putIfAbsent(type, reader);
+      if (existing != null) {
+        reader = existing;
+      }
+    }
+    return reader;
+  }
+
+  @Override
+  public ObjectReader readerFor(JavaType type) {
+    ObjectReader reader = typeReaders.get(type);
+    if (reader == null) {
+      reader = mapper.readerFor(type);
+      ObjectReader existing = typeReaders.putIfAbsent(type, reader);
+      if (existing != null) {
+        reader = existing;
+      }
+    }
+    return reader;
+  }
+
+  @Override
+  public JavaType constructType(Type type) {
+    JavaType javaType = types.get(type);
+    if (javaType == null) {
+      javaType = mapper.getTypeFactory().constructType(type);
+      JavaType existing = types.putIfAbsent(type, javaType);
+      if (existing != null) {
+        javaType = existing;
+      }
+    }
+    return javaType;
+  }
+
+  @Override
+  public ObjectWriter writerFor(Class<?> type) {
+    ObjectWriter writer = writers.get(type);
+    if (writer == null) {
+      writer = mapper.writerFor(type);
+      ObjectWriter existing = writers.putIfAbsent(type, writer);
+      if (existing != null) {
+        writer = existing;
+      }
+    }
+    return writer;
+  }
+}
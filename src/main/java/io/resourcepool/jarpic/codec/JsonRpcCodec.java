@@ -0,0 +1,63 @@
+package io.resourcepool.jarpic.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.lang.reflect.Type;
+
+/**
+ * This interface describes the JSON encoding and decoding layer used by the client.
+ * Implementations must be thread-safe, as a single codec is shared by every call of a client.
+ */
+public interface JsonRpcCodec {
+
+  /**
+   * @return the configured Jackson ObjectMapper. It must not be reconfigured once the codec is in use
+   */
+  ObjectMapper getMapper();
+
+  /**
+   * @return the Jackson JsonFactory used to create parsers and generators
+   */
+  JsonFactory getFactory();
+
+  /**
+   * Retrieve the ObjectReader bound to the provided type.
+   *
+   * @param type the target type
+   * @return the (cached) ObjectReader
+   */
+  ObjectReader readerFor(Class<?> type);
+
+  /**
+   * Retrieve the ObjectReader bound to the provided generic type.
+   *
+   * @param type the target type
+   * @return the (cached) ObjectReader
+   */
+  ObjectReader readerFor(JavaType type);
+
+  /**
+   * Resolve a Java type (Class, or generic type such as the one held by a TypeReference) into a Jackson JavaType.
+   *
+   * @param type the Java type
+   * @return the (cached) JavaType
+   */
+  JavaType constructType(Type type);
+
+  /**
+   * @return true if response results are kept as buffered JSON, and only bound when accessed
+   */
+  boolean isLazyResults();
+
+  /**
+   * Retrieve the ObjectWriter bound to the provided type.
+   *
+   * @param type the source type
+   * @return the (cached) ObjectWriter
+   */
+  ObjectWriter writerFor(Class<?> type);
+}
@@ -0,0 +1,125 @@
+package io.resourcepool.jarpic.metrics;
+
+import io.resourcepool.jarpic.model.Error;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This implementation keeps the metrics in memory, without any dependency, so that they can always be on.
+ * Calls are recorded by method: latency histogram, calls in flight, errors by code, failures.
+ * Batches are recorded by size, and exchanges by the amount of bytes sent and received.
+ * Recording is lock-free. Metrics are never reset: read them periodically and compute rates from the deltas.
+ * One instance may be shared by several clients.
+ */
+public class DefaultJsonRpcMetrics implements JsonRpcMetrics {
+
+  private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<String, MethodMetrics>();
+  private final Histogram batchSizes = new Histogram();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong bytesReceived = new AtomicLong();
+
+  @Override
+  public void onCallStarted(String method) {
+    metricsOf(method).started();
+  }
+
+  @Override
+  public void onCallCompleted(String method, long latencyNanos, Error error) {
+    metricsOf(method).completed(latencyNanos, error);
+  }
+
+  @Override
+  public void onCallFailed(String method, long latencyNanos, Exception failure) {
+    metricsOf(method).failed(latencyNanos);
+  }
+
+  @Override
+  public void onBatchSent(int size) {
+    batchSizes.record(size);
+  }
+
+  @Override
+  public void onExchangeCompleted(long bytesSent, long bytesReceived) {
+    this.bytesSent.addAndGet(bytesSent);
+    this.bytesReceived.addAndGet(bytesReceived);
+  }
+
+  /**
+   * @param method the method
+   * @return the metrics of the method, or null if it was never called
+   */
+  public MethodMetrics getMethod(String method) {
+    return methods.get(method);
+  }
+
+  /**
+   * @return the metrics of every method called, by method
+   */
+  public Map<String, MethodMetrics> getMethods() {
+    return Collections.unmodifiableMap(methods);
+  }
+
+  /**
+   * @return the histogram of the batch sizes. Its count is the amount of batches sent
+   */
+  public Histogram getBatchSizes() {
+    return batchSizes;
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * @return the amount of calls in flight, over every method
+   */
+  public long getInFlightCount() {
+    long count = 0;
+    for (MethodMetrics metrics : methods.values()) {
+      count += metrics.getInFlightCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return the amount of calls answered with an error, by error code, over every method
+   */
+  public Map<Integer, Long> getErrorCounts() {
+    Map<Integer, Long> counts = new HashMap<Integer, Long>();
+    for (MethodMetrics metrics : methods.values()) {
+      for (Map.Entry<Integer, Long> entry : metrics.getErrorCounts().entrySet()) {
+        Long count = counts.get(entry.getKey());
+        counts.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * @param method the method. Requests built without method are recorded under the empty string
+   * @return the metrics of the method, created on first call
+   */
+  private MethodMetrics metricsOf(String method) {
+    if (method == null) {
+      method = "";
+    }
+    MethodMetrics metrics = methods.get(method);
+    if (metrics == null) {
+      MethodMetrics created = new MethodMetrics(method);
+      metrics = methods.putIfAbsent(method, created);
+      if (metrics == null) {
+        metrics = created;
+      }
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,125 @@
+package io.resourcepool.jarpic.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a lock-free histogram of positive long values, such as latencies in nanoseconds.
+ * Like an HDR histogram, buckets are log-linear: each power of two is split in 32 buckets,
+ * so that values are recorded with a relative error under 3.2% whatever their magnitude, in constant memory.
+ * Recording costs a few atomic increments. Reading while recording is allowed, and sees an approximate snapshot.
+ */
+public final class Histogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record a value. Negative values are recorded as 0.
+   *
+   * @param value the value
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(indexOf(v));
+    count.incrementAndGet();
+    total.addAndGet(v);
+    long current = max.get();
+    while (v > current && !max.compareAndSet(current, v)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * @return the amount of values recorded
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return the highest value recorded, or 0 if none was
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return the average of the values recorded, or 0 if none was
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) total.get() / n;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the value under which this percentage of the values fall, or 0 if none was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    long[] snapshot = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      n += snapshot[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * @param value a positive value
+   * @return the index of its bucket
+   */
+  static int indexOf(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+    return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+  }
+
+  /**
+   * @param index the index of a bucket
+   * @return the highest value recorded in this bucket
+   */
+  static long highestValueOf(int index) {
+    if (index < SUB_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_COUNT - 1;
+    long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram{" +
+        "count=" + getCount() +
+        ", mean=" + (long) getMean() +
+        ", p50=" + getValueAtPercentile(50) +
+        ", p99=" + getValueAtPercentile(99) +
+        ", max=" + getMax() +
+        '}';
+  }
+}
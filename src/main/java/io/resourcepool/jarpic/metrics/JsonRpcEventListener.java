@@ -0,0 +1,157 @@
+package io.resourcepool.jarpic.metrics;
+
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+
+/**
+ * This listener is notified of the phases of one exchange, with a System.nanoTime() timestamp each:
+ * - callStart, once the payload is handed to the transport
+ * - attempt, every time the transport starts sending the payload, which returns the listener of the attempt
+ * - writeStart / writeEnd, while the payload is encoded into the stream of the transport. As it is streamed,
+ * this includes writing to the network, and waiting for it to accept more bytes
+ * - dns, connect, secureConnect, requestSent and responseStart (first byte), for HTTP exchanges
+ * made by an OkHttpClient using the HttpEventListenerFactory
+ * - parseStart / parseEnd, while the response is parsed. Validation and result binding happen in the same pass.
+ * When results are bound lazily, binding happens later, as they are accessed.
+ * - callEnd or callFailed, once the exchange is over
+ * Notifications come from the calling thread and the transport threads.
+ * The events of one attempt, from writeStart to responseStart, go to the listener returned by attempt(), one at a time.
+ * The attempts of a hedged exchange run at the same time though: by default, they all notify this listener,
+ * which must then be thread-safe. Return a new listener for every attempt to tell them apart.
+ * All methods do nothing by default: override the ones needed.
+ */
+public abstract class JsonRpcEventListener {
+
+  /**
+   * A listener ignoring every event.
+   */
+  public static final JsonRpcEventListener NONE = new JsonRpcEventListener() {
+  };
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void callStart(long nanos) {
+  }
+
+  /**
+   * The transport starts sending the payload, for the first time or again (retry or hedged duplicate).
+   *
+   * @param index the index of the attempt, from 0
+   * @return the listener of the events of the attempt. Defaults to this listener
+   */
+  public JsonRpcEventListener attempt(int index) {
+    return this;
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void writeStart(long nanos) {
+  }
+
+  /**
+   * @param nanos        the timestamp
+   * @param bytesWritten the size of the encoded payload
+   */
+  public void writeEnd(long nanos, long bytesWritten) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void dnsStart(long nanos) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void dnsEnd(long nanos) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void connectStart(long nanos) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void secureConnectStart(long nanos) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void secureConnectEnd(long nanos) {
+  }
+
+  /**
+   * @param nanos   the timestamp
+   * @param failure the connection failure, or null if connected
+   */
+  public void connectEnd(long nanos, Exception failure) {
+  }
+
+  /**
+   * A connection was obtained, new or reused from the pool.
+   *
+   * @param nanos the timestamp
+   */
+  public void connectionAcquired(long nanos) {
+  }
+
+  /**
+   * The request was fully sent: from now on, the server is working.
+   *
+   * @param nanos the timestamp
+   */
+  public void requestSent(long nanos) {
+  }
+
+  /**
+   * The first byte of the response was received, along with its headers.
+   *
+   * @param nanos the timestamp
+   */
+  public void responseStart(long nanos) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void parseStart(long nanos) {
+  }
+
+  /**
+   * @param nanos         the timestamp
+   * @param bytesReceived the amount of bytes parsed
+   */
+  public void parseEnd(long nanos, long bytesReceived) {
+  }
+
+  /**
+   * @param nanos the timestamp
+   */
+  public void callEnd(long nanos) {
+  }
+
+  /**
+   * @param nanos   the timestamp
+   * @param failure the failure
+   */
+  public void callFailed(long nanos, Exception failure) {
+  }
+
+  /**
+   * This interface creates a listener for every exchange.
+   */
+  public interface Factory {
+
+    /**
+     * @param payload the payload about to be exchanged
+     * @return the listener of the exchange, or NONE
+     */
+    JsonRpcEventListener create(JsonRpcPayload payload);
+  }
+}
@@ -0,0 +1,55 @@
+package io.resourcepool.jarpic.metrics;
+
+import io.resourcepool.jarpic.model.Error;
+
+import javax.annotation.Nullable;
+
+/**
+ * This interface receives what a client measures while calling.
+ * Each request is a call, even within a batch: it starts when its payload is handed to the transport,
+ * and ends once its response is read, or the exchange is over without one (notifications), or the exchange failed.
+ * Methods are invoked on the calling threads and on the transport threads: implementations must be thread-safe,
+ * and fast, as they run on the hot path. A zero-dependency implementation is provided by {@link DefaultJsonRpcMetrics}.
+ */
+public interface JsonRpcMetrics {
+
+  /**
+   * A call was handed to the transport.
+   *
+   * @param method the method called
+   */
+  void onCallStarted(String method);
+
+  /**
+   * A call ended with a response, possibly an error one, or with no response at all.
+   *
+   * @param method       the method called
+   * @param latencyNanos the time elapsed since the call started
+   * @param error        the JSON RPC error of the response, including errors mapped by the transport, or null
+   */
+  void onCallCompleted(String method, long latencyNanos, @Nullable Error error);
+
+  /**
+   * A call ended without response, as the exchange failed (I/O error, timeout, cancellation...).
+   *
+   * @param method       the method called
+   * @param latencyNanos the time elapsed since the call started
+   * @param failure      the failure
+   */
+  void onCallFailed(String method, long latencyNanos, Exception failure);
+
+  /**
+   * A batch was handed to the transport. Its calls are reported as well.
+   *
+   * @param size the amount of requests in the batch
+   */
+  void onBatchSent(int size);
+
+  /**
+   * An exchange is over.
+   *
+   * @param bytesSent     the amount of JSON bytes sent, over every attempt of the transport
+   * @param bytesReceived the amount of JSON bytes read from the response
+   */
+  void onExchangeCompleted(long bytesSent, long bytesReceived);
+}
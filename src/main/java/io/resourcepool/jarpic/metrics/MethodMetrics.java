@@ -0,0 +1,129 @@
+package io.resourcepool.jarpic.metrics;
+
+import io.resourcepool.jarpic.model.Error;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the live metrics of one method, as recorded by a DefaultJsonRpcMetrics.
+ * The latency histogram covers every call which ended, whether with a response, an error, or a failure.
+ */
+public final class MethodMetrics {
+
+  private final String method;
+  private final Histogram latency = new Histogram();
+  private final AtomicLong inFlight = new AtomicLong();
+  private final AtomicLong errorCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+  private final ConcurrentMap<Integer, AtomicLong> errorCodes = new ConcurrentHashMap<Integer, AtomicLong>();
+
+  /**
+   * @param method the method
+   */
+  MethodMetrics(String method) {
+    this.method = method;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public Histogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the amount of calls started and not ended yet
+   */
+  public long getInFlightCount() {
+    return inFlight.get();
+  }
+
+  /**
+   * @return the amount of calls ended
+   */
+  public long getCallCount() {
+    return latency.getCount();
+  }
+
+  /**
+   * @return the amount of calls answered with an error
+   */
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /**
+   * @return the amount of calls which failed without response
+   */
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  /**
+   * @return the amount of calls answered with an error, by error code
+   */
+  public Map<Integer, Long> getErrorCounts() {
+    Map<Integer, Long> counts = new HashMap<Integer, Long>();
+    for (Map.Entry<Integer, AtomicLong> entry : errorCodes.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().get());
+    }
+    return counts;
+  }
+
+  /**
+   * Record the start of a call.
+   */
+  void started() {
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Record the end of a call.
+   *
+   * @param latencyNanos the latency of the call
+   * @param error        the error of the response, or null
+   */
+  void completed(long latencyNanos, Error error) {
+    inFlight.decrementAndGet();
+    latency.record(latencyNanos);
+    if (error != null) {
+      errorCount.incrementAndGet();
+      AtomicLong count = errorCodes.get(error.getCode());
+      if (count == null) {
+        AtomicLong created = new AtomicLong();
+        count = errorCodes.putIfAbsent(error.getCode(), created);
+        if (count == null) {
+          count = created;
+        }
+      }
+      count.incrementAndGet();
+    }
+  }
+
+  /**
+   * Record the failure of a call.
+   *
+   * @param latencyNanos the latency of the call
+   */
+  void failed(long latencyNanos) {
+    inFlight.decrementAndGet();
+    latency.record(latencyNanos);
+    failureCount.incrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return "MethodMetrics{" +
+        "method='" + method + '\'' +
+        ", inFlight=" + getInFlightCount() +
+        ", errors=" + getErrorCount() +
+        ", failures=" + getFailureCount() +
+        ", latency=" + latency +
+        '}';
+  }
+}
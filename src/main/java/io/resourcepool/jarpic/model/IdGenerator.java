@@ -0,0 +1,27 @@
+package io.resourcepool.jarpic.model;
+
+/**
+ * This interface generates the ids of JSON RPC requests.
+ * A generator is either numeric (ids are carried as primitive longs) or textual.
+ * Implementations must be thread-safe, and ids must stay unique among the calls in flight.
+ * Built-in implementations are available in {@link IdGenerators}.
+ */
+public interface IdGenerator {
+
+  /**
+   * @return true if this generator produces numeric ids, through {@link #nextLong()}
+   */
+  boolean isNumeric();
+
+  /**
+   * @return the next numeric id. Only called if {@link #isNumeric()} returns true
+   * @throws UnsupportedOperationException if this generator is not numeric
+   */
+  long nextLong();
+
+  /**
+   * @return the next textual id. Only called if {@link #isNumeric()} returns false,
+   * numeric generators return their next numeric id as a string
+   */
+  String nextString();
+}
@@ -0,0 +1,145 @@
+package io.resourcepool.jarpic.model;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class provides the built-in request id generators.
+ */
+public abstract class IdGenerators {
+
+  private static final IdGenerator UUID_GENERATOR = new IdGenerator() {
+    @Override
+    public boolean isNumeric() {
+      return false;
+    }
+
+    @Override
+    public long nextLong() {
+      throw new UnsupportedOperationException("UUID ids are textual: check isNumeric() before calling nextLong()");
+    }
+
+    @Override
+    public String nextString() {
+      return UUID.randomUUID().toString();
+    }
+  };
+
+  /**
+   * Random ids are kept within 53 bits, so that they survive servers parsing numbers as doubles.
+   */
+  private static final long SAFE_INTEGER_MASK = (1L << 53) - 1;
+
+  private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(8682522807148012L);
+
+  /**
+   * Generate random UUID strings. This is the default, and is contended across threads as it relies on a shared SecureRandom.
+   *
+   * @return the generator
+   */
+  public static IdGenerator uuid() {
+    return UUID_GENERATOR;
+  }
+
+  /**
+   * Generate monotonic numeric ids, starting at 1.
+   * Every thread reserves a block of ids at once from a shared counter, so threads never contend for each id.
+   * Ids are unique across threads, and increasing within each thread.
+   *
+   * @return a new generator
+   */
+  public static IdGenerator counter() {
+    return new StripedCounter(1024);
+  }
+
+  /**
+   * Generate random positive numeric ids of at most 53 bits, from a per-thread pseudo-random sequence.
+   * No lock nor shared state is involved once a thread has been seeded.
+   *
+   * @return a new generator
+   */
+  public static IdGenerator randomLong() {
+    return new ThreadLocalRandomLong();
+  }
+
+  /**
+   * Monotonic counter, handing out blocks of ids to every thread.
+   */
+  private static class StripedCounter implements IdGenerator {
+    private final AtomicLong blocks = new AtomicLong(1);
+    private final int blockSize;
+    private final ThreadLocal<long[]> ranges = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+        // [next, limit)
+        return new long[2];
+      }
+    };
+
+    /**
+     * @param blockSize the amount of ids reserved by a thread at once
+     */
+    StripedCounter(int blockSize) {
+      this.blockSize = blockSize;
+    }
+
+    @Override
+    public boolean isNumeric() {
+      return true;
+    }
+
+    @Override
+    public long nextLong() {
+      long[] range = ranges.get();
+      if (range[0] == range[1]) {
+        range[0] = blocks.getAndAdd(blockSize);
+        range[1] = range[0] + blockSize;
+      }
+      return range[0]++;
+    }
+
+    @Override
+    public String nextString() {
+      return String.valueOf(nextLong());
+    }
+  }
+
+  /**
+   * Per-thread xorshift64* sequence.
+   */
+  private static class ThreadLocalRandomLong implements IdGenerator {
+    private final ThreadLocal<long[]> states = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+        long seed = SEED_UNIQUIFIER.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime() ^ Thread.currentThread().getId();
+        return new long[]{seed != 0 ? seed : 1};
+      }
+    };
+
+    @Override
+    public boolean isNumeric() {
+      return true;
+    }
+
+    @Override
+    public long nextLong() {
+      long[] state = states.get();
+      long x = state[0];
+      long id;
+      do {
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        // Masking may leave nothing: ids are positive
+        id = (x * 0x2545F4914F6CDD1DL) & SAFE_INTEGER_MASK;
+      } while (id == 0);
+      state[0] = x;
+      return id;
+    }
+
+    @Override
+    public String nextString() {
+      return String.valueOf(nextLong());
+    }
+  }
+}
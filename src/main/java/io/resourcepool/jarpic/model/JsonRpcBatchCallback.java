@@ -0,0 +1,23 @@
+package io.resourcepool.jarpic.model;
+
+import java.io.IOException;
+
+/**
+ * This class allows for a set of JSON RPC requests to be made asynchronously, with responses correlated by id.
+ * The client will call either onResponse with the correlated responses, or onFailure with the relevant exception if failed.
+ */
+public interface JsonRpcBatchCallback<T> {
+  /**
+   * Called when the whole batch response has been received and correlated.
+   *
+   * @param results the batch response, indexed by request id
+   */
+  void onResponse(JsonRpcBatchResponse<T> results);
+
+  /**
+   * Called when an error occured during the Http Request, or while reading the responses.
+   *
+   * @param ex the exception
+   */
+  void onFailure(IOException ex);
+}
@@ -0,0 +1,177 @@
+package io.resourcepool.jarpic.model;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the responses of a batch, correlated with the original requests by id.
+ * The JSON RPC 2.0 specification allows servers to answer a batch in any order, and to omit notifications.
+ * Responses are indexed once as they are added, so lookups by id or by request index are O(1).
+ */
+public class JsonRpcBatchResponse<T> {
+
+  private final List<JsonRpcRequest> requests;
+  private final Map<Object, Integer> indexes;
+  private final JsonRpcResponse<T>[] responses;
+  private final Set<String> duplicateIds = new LinkedHashSet<String>(0);
+  private final List<JsonRpcResponse<T>> unmatched = new ArrayList<JsonRpcResponse<T>>(0);
+
+  /**
+   * Construct a new, empty batch response for the provided requests.
+   *
+   * @param requests the list of JsonRpcRequest objects, in the order they were sent
+   */
+  @SuppressWarnings("unchecked")
+  public JsonRpcBatchResponse(List<JsonRpcRequest> requests) {
+    this.requests = requests;
+    this.indexes = new HashMap<Object, Integer>(Math.max(16, (int) (requests.size() / 0.75f) + 1));
+    this.responses = new JsonRpcResponse[requests.size()];
+    for (int i = 0; i < requests.size(); i++) {
+      Object key = requests.get(i).idKey();
+      if (key == null) {
+        continue;
+      }
+      Integer previous = indexes.put(key, i);
+      if (previous != null) {
+        // Keep the first request with this id
+        indexes.put(key, previous);
+        duplicateIds.add(requests.get(i).getId());
+      }
+    }
+  }
+
+  /**
+   * Correlate a list of responses with the original requests.
+   *
+   * @param requests  the list of JsonRpcRequest objects, in the order they were sent
+   * @param responses the list of JsonRpcResponse objects, in any order, or null if none returned
+   * @param <T>       the type inference for the result
+   * @return the batch response
+   */
+  public static <T> JsonRpcBatchResponse<T> of(List<JsonRpcRequest> requests, @Nullable List<JsonRpcResponse<T>> responses) {
+    JsonRpcBatchResponse<T> batch = new JsonRpcBatchResponse<T>(requests);
+    if (responses != null) {
+      for (JsonRpcResponse<T> response : responses) {
+        batch.add(response);
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Add a response received for this batch.
+   * Responses with an unknown id are kept apart as unmatched. When several responses share an id, the first one is kept.
+   *
+   * @param response the JsonRpcResponse
+   */
+  public void add(JsonRpcResponse<T> response) {
+    Object key = response.idKey();
+    Integer index = key != null ? indexes.get(key) : null;
+    if (index == null) {
+      unmatched.add(response);
+    } else if (responses[index] != null) {
+      duplicateIds.add(response.getId());
+    } else {
+      responses[index] = response;
+    }
+  }
+
+  /**
+   * @param id the textual request id
+   * @return the response to the request with this id, or null if none was received
+   */
+  @Nullable
+  public JsonRpcResponse<T> getById(String id) {
+    Integer index = indexes.get(id);
+    return index != null ? responses[index] : null;
+  }
+
+  /**
+   * @param id the numeric request id
+   * @return the response to the request with this id, or null if none was received
+   */
+  @Nullable
+  public JsonRpcResponse<T> getById(long id) {
+    Integer index = indexes.get(id);
+    return index != null ? responses[index] : null;
+  }
+
+  /**
+   * @param index the index of the request in the original list
+   * @return the response to this request, or null if it is a notification or if no response was received
+   */
+  @Nullable
+  public JsonRpcResponse<T> getAt(int index) {
+    return responses[index];
+  }
+
+  /**
+   * @param index the index of the request in the original list
+   * @return true if the request expected a response, and none was received
+   */
+  public boolean isMissing(int index) {
+    return responses[index] == null && requests.get(index).idKey() != null;
+  }
+
+  /**
+   * @return the requests which expected a response, and received none
+   */
+  public List<JsonRpcRequest> getMissing() {
+    List<JsonRpcRequest> missing = new ArrayList<JsonRpcRequest>(0);
+    for (int i = 0; i < responses.length; i++) {
+      if (isMissing(i)) {
+        missing.add(requests.get(i));
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * @return true if every request expecting a response received exactly one
+   */
+  public boolean isComplete() {
+    return duplicateIds.isEmpty() && unmatched.isEmpty() && getMissing().isEmpty();
+  }
+
+  /**
+   * @return the ids shared by several requests, or answered by several responses
+   */
+  public Set<String> getDuplicateIds() {
+    return Collections.unmodifiableSet(duplicateIds);
+  }
+
+  /**
+   * @return the responses whose id does not match any request (for instance, errors with a null id)
+   */
+  public List<JsonRpcResponse<T>> getUnmatched() {
+    return Collections.unmodifiableList(unmatched);
+  }
+
+  /**
+   * @return the original requests
+   */
+  public List<JsonRpcRequest> getRequests() {
+    return requests;
+  }
+
+  /**
+   * @return the responses aligned with the original requests. Entries are null for notifications and missing responses
+   */
+  public List<JsonRpcResponse<T>> asList() {
+    return Collections.unmodifiableList(Arrays.asList(responses));
+  }
+
+  /**
+   * @return the amount of requests in the batch
+   */
+  public int size() {
+    return responses.length;
+  }
+}
@@ -0,0 +1,261 @@
+package io.resourcepool.jarpic.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This future holds the outcome of an asynchronous JSON RPC call.
+ * Listeners are notified on completion, so calls can be composed without parking a thread on each of them.
+ * Cancelling the future cancels the underlying call.
+ */
+public class JsonRpcFuture<V> implements Future<V> {
+
+  private static final int PENDING = 0;
+  private static final int SUCCEEDED = 1;
+  private static final int FAILED = 2;
+  private static final int CANCELLED = 3;
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private List<Listener<? super V>> listeners = new ArrayList<Listener<? super V>>(1);
+  private int state = PENDING;
+  private V value;
+  private IOException failure;
+  private Runnable cancelHandler;
+
+  /**
+   * Create a future completed once every provided future has completed.
+   * It fails as soon as one of them fails, and cancels the remaining ones in that case.
+   *
+   * @param futures the futures
+   * @param <V>     the type inference for the values
+   * @return the future holding every value, in the same order
+   */
+  public static <V> JsonRpcFuture<List<V>> allOf(final List<JsonRpcFuture<V>> futures) {
+    final JsonRpcFuture<List<V>> all = new JsonRpcFuture<List<V>>();
+    if (futures.isEmpty()) {
+      all.complete(Collections.<V>emptyList());
+      return all;
+    }
+    final AtomicInteger remaining = new AtomicInteger(futures.size());
+    for (JsonRpcFuture<V> future : futures) {
+      future.addListener(new Listener<V>() {
+        @Override
+        public void onSuccess(V result) {
+          if (remaining.decrementAndGet() == 0) {
+            List<V> values = new ArrayList<V>(futures.size());
+            for (JsonRpcFuture<V> f : futures) {
+              values.add(f.value);
+            }
+            all.complete(values);
+          }
+        }
+
+        @Override
+        public void onFailure(IOException ex) {
+          if (all.fail(ex)) {
+            for (JsonRpcFuture<V> f : futures) {
+              f.cancel(true);
+            }
+          }
+        }
+      });
+    }
+    all.onCancel(new Runnable() {
+      @Override
+      public void run() {
+        for (JsonRpcFuture<V> f : futures) {
+          f.cancel(true);
+        }
+      }
+    });
+    return all;
+  }
+
+  /**
+   * Register a listener, called once the future completes. If already completed, it is called immediately.
+   * Listeners are called on the thread completing the future, so they must not block.
+   *
+   * @param listener the listener
+   * @return this future
+   */
+  public JsonRpcFuture<V> addListener(Listener<? super V> listener) {
+    synchronized (this) {
+      if (state == PENDING) {
+        listeners.add(listener);
+        return this;
+      }
+    }
+    fire(listener);
+    return this;
+  }
+
+  /**
+   * Register the action cancelling the underlying call. If already cancelled, it is run immediately.
+   * Only the last registered action is kept.
+   *
+   * @param handler the cancel action
+   */
+  public void onCancel(Runnable handler) {
+    synchronized (this) {
+      if (state == PENDING) {
+        cancelHandler = handler;
+        return;
+      }
+      if (state != CANCELLED) {
+        return;
+      }
+    }
+    handler.run();
+  }
+
+  /**
+   * Complete the future with a value.
+   *
+   * @param result the value
+   * @return true if this call completed the future
+   */
+  public boolean complete(V result) {
+    synchronized (this) {
+      if (state != PENDING) {
+        return false;
+      }
+      value = result;
+      state = SUCCEEDED;
+    }
+    done();
+    return true;
+  }
+
+  /**
+   * Complete the future with a failure.
+   *
+   * @param ex the failure
+   * @return true if this call completed the future
+   */
+  public boolean fail(IOException ex) {
+    synchronized (this) {
+      if (state != PENDING) {
+        return false;
+      }
+      failure = ex;
+      state = FAILED;
+    }
+    done();
+    return true;
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    Runnable handler;
+    synchronized (this) {
+      if (state != PENDING) {
+        return false;
+      }
+      failure = new IOException("Canceled");
+      state = CANCELLED;
+      handler = cancelHandler;
+    }
+    if (handler != null) {
+      handler.run();
+    }
+    done();
+    return true;
+  }
+
+  @Override
+  public synchronized boolean isCancelled() {
+    return state == CANCELLED;
+  }
+
+  @Override
+  public synchronized boolean isDone() {
+    return state != PENDING;
+  }
+
+  @Override
+  public V get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return outcome();
+  }
+
+  @Override
+  public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return outcome();
+  }
+
+  /**
+   * @return the value of the completed future
+   * @throws ExecutionException if the future failed
+   */
+  private synchronized V outcome() throws ExecutionException {
+    if (state == CANCELLED) {
+      throw new CancellationException();
+    }
+    if (state == FAILED) {
+      throw new ExecutionException(failure);
+    }
+    return value;
+  }
+
+  /**
+   * Release the waiting threads and notify the listeners.
+   */
+  private void done() {
+    List<Listener<? super V>> toNotify;
+    synchronized (this) {
+      toNotify = listeners;
+      listeners = null;
+      cancelHandler = null;
+    }
+    latch.countDown();
+    for (Listener<? super V> listener : toNotify) {
+      fire(listener);
+    }
+  }
+
+  /**
+   * Notify a listener of the outcome of the completed future.
+   *
+   * @param listener the listener
+   */
+  private void fire(Listener<? super V> listener) {
+    if (state == SUCCEEDED) {
+      listener.onSuccess(value);
+    } else {
+      listener.onFailure(failure);
+    }
+  }
+
+  /**
+   * Listener notified once a future completes.
+   *
+   * @param <V> the type of the value
+   */
+  public interface Listener<V> {
+    /**
+     * Called when the future completed with a value.
+     *
+     * @param result the value
+     */
+    void onSuccess(V result);
+
+    /**
+     * Called when the future failed or was cancelled.
+     *
+     * @param ex the exception
+     */
+    void onFailure(IOException ex);
+  }
+}
@@ -1,10 +1,11 @@
 package io.resourcepool.jarpic.model;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * @author Loïc Ortola on 11/03/2016.
@@ -15,22 +16,79 @@ public class JsonRpcRequest {
   }
 
   protected String method;
-  protected Map<String, String> params;
+  protected Object params;
   protected String id;
+  protected long numericId;
+  protected boolean numeric;
   protected Type type;
 
+  private static volatile IdGenerator defaultIdGenerator = IdGenerators.uuid();
+
   public String getMethod() {
     return method;
   }
 
+  /**
+   * Named params, as set with param(String, String). Values set as other objects are not converted:
+   * use {@link #getParamsValue()} for requests built with the other param methods.
+   *
+   * @return the named params, or null if the params are not a Map
+   */
+  @SuppressWarnings("unchecked")
   public Map<String, String> getParams() {
+    return params instanceof Map ? (Map<String, String>) params : null;
+  }
+
+  /**
+   * @return the params: a Map for named params, a List for positional params, a RawValue for pre-encoded JSON, or any POJO
+   */
+  public Object getParamsValue() {
     return params;
   }
 
+  /**
+   * @return the request id as a String. Numeric ids are converted
+   */
   public String getId() {
+    if (id == null && numeric) {
+      id = Long.toString(numericId);
+    }
     return id;
   }
 
+  /**
+   * @return true if the request id is numeric, and available as a primitive through {@link #getNumericId()}
+   */
+  public boolean isNumericId() {
+    return numeric;
+  }
+
+  /**
+   * @return the numeric request id. Only meaningful if {@link #isNumericId()} returns true
+   */
+  public long getNumericId() {
+    return numericId;
+  }
+
+  /**
+   * @return the key identifying this request id, without converting numeric ids
+   */
+  Object idKey() {
+    return numeric ? Long.valueOf(numericId) : id;
+  }
+
+  /**
+   * Set the id generator used by builders which were not given one.
+   *
+   * @param generator the id generator
+   */
+  public static void setDefaultIdGenerator(IdGenerator generator) {
+    if (generator == null) {
+      throw new IllegalArgumentException("Id generator cannot be null");
+    }
+    defaultIdGenerator = generator;
+  }
+
   public Type getType() {
     return type;
   }
@@ -62,6 +120,8 @@ public class JsonRpcRequest {
     JsonRpcRequest request = (JsonRpcRequest) o;
 
     if (method != null ? !method.equals(request.method) : request.method != null) return false;
+    if (numeric != request.numeric) return false;
+    if (numeric) return numericId == request.numericId;
     return !(id != null ? !id.equals(request.id) : request.id != null);
 
   }
@@ -69,7 +129,8 @@ public class JsonRpcRequest {
   @Override
   public int hashCode() {
     int result = method != null ? method.hashCode() : 0;
-    result = 31 * result + (id != null ? id.hashCode() : 0);
+    Object key = idKey();
+    result = 31 * result + (key != null ? key.hashCode() : 0);
     return result;
   }
 
@@ -78,7 +139,7 @@ public class JsonRpcRequest {
     return "Request{" +
       "method='" + method + '\'' +
       ", params=" + params +
-      ", id='" + id + '\'' +
+      ", id='" + getId() + '\'' +
       ", type=" + type +
       '}';
   }
@@ -100,9 +161,16 @@ public class JsonRpcRequest {
 
   public static class Builder {
     protected String method;
-    protected Map<String, String> params;
+    protected Object params;
     protected String id;
+    protected long numericId;
+    protected boolean numeric;
+    protected IdGenerator idGenerator;
     protected Type type;
+    /**
+     * True once params holds a map created by this builder, which param() may then fill in place.
+     */
+    private boolean ownsParams;
 
     private Builder(Type t) {
       this.type = t;
@@ -114,10 +182,91 @@ public class JsonRpcRequest {
     }
 
     public Builder param(String key, String value) {
-      if (this.params == null) {
-        this.params = new HashMap<String, String>();
+      return param(key, (Object) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Builder param(String key, Object value) {
+      if (!ownsParams) {
+        if (this.params == null) {
+          this.params = new HashMap<String, Object>();
+        } else if (this.params instanceof Map) {
+          // Never fill in the caller's own map
+          this.params = new HashMap<String, Object>((Map<String, Object>) this.params);
+        } else {
+          throw new IllegalStateException("Named params cannot be mixed with positional, raw or POJO params");
+        }
+        ownsParams = true;
+      }
+      ((Map<String, Object>) this.params).put(key, value);
+      return this;
+    }
+
+    /**
+     * @param params the params object: a POJO or Map for named params, a Collection or array for positional params.
+     *               JSON RPC params must be structured: scalars such as strings, numbers or booleans are rejected
+     * @return the builder
+     * @throws IllegalArgumentException if the params are a scalar
+     */
+    public Builder params(Object params) {
+      if (params instanceof String || params instanceof Number || params instanceof Boolean || params instanceof Character) {
+        throw new IllegalArgumentException("Params must be an object or an array, not a " + params.getClass().getSimpleName()
+          + ": wrap a single positional param in a List");
       }
-      this.params.put(key, value);
+      this.params = params;
+      this.ownsParams = false;
+      return this;
+    }
+
+    /**
+     * @param params the positional params
+     * @return the builder
+     */
+    public Builder params(Object... params) {
+      List<Object> positional = new ArrayList<Object>(params.length);
+      for (Object param : params) {
+        positional.add(param);
+      }
+      this.params = positional;
+      this.ownsParams = false;
+      return this;
+    }
+
+    /**
+     * @param json the already encoded params object or array. It is written verbatim, without being parsed again
+     * @return the builder
+     */
+    public Builder rawParams(String json) {
+      this.params = new RawValue(json);
+      this.ownsParams = false;
+      return this;
+    }
+
+    /**
+     * @param utf8Json the already encoded UTF-8 params object or array. It is written verbatim, without being parsed again
+     * @return the builder
+     */
+    public Builder rawParams(byte[] utf8Json) {
+      this.params = new RawValue(new RawJsonBytes(utf8Json));
+      this.ownsParams = false;
+      return this;
+    }
+
+    public Builder id(String id) {
+      this.id = id;
+      this.numeric = false;
+      return this;
+    }
+
+    public Builder id(long id) {
+      this.id = null;
+      this.numericId = id;
+      this.numeric = true;
+      return this;
+    }
+
+    public Builder idGenerator(IdGenerator idGenerator) {
+      this.idGenerator = idGenerator;
       return this;
     }
 
@@ -125,8 +274,22 @@ public class JsonRpcRequest {
       JsonRpcRequest request = new JsonRpcRequest();
       request.method = method;
       request.params = params;
-      request.id = Type.REQUEST.equals(type) ? UUID.randomUUID().toString() : null;
       request.type = type;
+      if (Type.REQUEST.equals(type)) {
+        if (id != null || numeric) {
+          request.id = id;
+          request.numericId = numericId;
+          request.numeric = numeric;
+        } else {
+          IdGenerator generator = idGenerator != null ? idGenerator : defaultIdGenerator;
+          if (generator.isNumeric()) {
+            request.numericId = generator.nextLong();
+            request.numeric = true;
+          } else {
+            request.id = generator.nextString();
+          }
+        }
+      }
       return request;
     }
   }
@@ -1,21 +1,149 @@
 package io.resourcepool.jarpic.model;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+
+import java.io.IOException;
+
 /**
  * @author Loïc Ortola on 11/03/2016.
+ *         When read with a lazy codec, the result is kept as buffered JSON and only bound once accessed.
+ *         The lazy result is bound at most once, even if several threads access it at the same time.
  */
 public class JsonRpcResponse<T> {
   protected String id;
-  protected T result;
+  protected long numericId;
+  protected boolean numeric;
+  protected volatile T result;
+  protected volatile LazyResult<T> lazyResult;
+  protected volatile boolean bound;
   protected Error error;
+  protected JsonRpcCodec codec;
 
+  /**
+   * @return the response id as a String. Numeric ids are converted
+   */
   public String getId() {
+    if (id == null && numeric) {
+      id = Long.toString(numericId);
+    }
     return id;
   }
 
+  /**
+   * @return true if the response id is numeric, and available as a primitive through {@link #getNumericId()}
+   */
+  public boolean isNumericId() {
+    return numeric;
+  }
+
+  /**
+   * @return the numeric response id. Only meaningful if {@link #isNumericId()} returns true
+   */
+  public long getNumericId() {
+    return numericId;
+  }
+
+  /**
+   * @return the key identifying this response id, without converting numeric ids
+   */
+  Object idKey() {
+    return numeric ? Long.valueOf(numericId) : id;
+  }
+
+  /**
+   * Retrieve the result, bound to the type requested by the call.
+   * With a lazy codec, the result is bound on first access.
+   *
+   * @return the result
+   * @throws IllegalStateException if a lazy result cannot be bound
+   */
   public T getResult() {
+    LazyResult<T> lazy = lazyResult;
+    if (lazy != null && !bound) {
+      synchronized (this) {
+        if (!bound) {
+          try {
+            result = lazy.bind();
+          } catch (IOException e) {
+            throw new IllegalStateException("Could not bind result: " + e.getMessage(), e);
+          }
+          bound = true;
+        }
+      }
+    }
     return result;
   }
 
+  /**
+   * @return the buffered result, if read with a lazy codec. It is kept once bound, to be bound again to other types or encoded as-is
+   */
+  public LazyResult<T> getLazyResult() {
+    return lazyResult;
+  }
+
+  /**
+   * @return the mapper of the codec this response was read with, or the default one
+   */
+  private ObjectMapper mapper() {
+    return codec != null ? codec.getMapper() : JacksonJsonRpcCodec.getDefault().getMapper();
+  }
+
+  /**
+   * Retrieve the result, bound to another type than the one requested by the call.
+   *
+   * @param type the target type
+   * @param <R>  the type inference for the result
+   * @return the result
+   * @throws IOException if the result cannot be bound
+   */
+  public <R> R getResult(Class<R> type) throws IOException {
+    LazyResult<T> lazy = lazyResult;
+    if (lazy != null) {
+      return lazy.bind(lazy.getCodec().readerFor(type));
+    }
+    // Already bound: convert
+    return mapper().convertValue(result, type);
+  }
+
+  /**
+   * Retrieve the result, bound to another generic type than the one requested by the call.
+   *
+   * @param type the target type
+   * @param <R>  the type inference for the result
+   * @return the result
+   * @throws IOException if the result cannot be bound
+   */
+  public <R> R getResult(TypeReference<R> type) throws IOException {
+    LazyResult<T> lazy = lazyResult;
+    if (lazy != null) {
+      JsonRpcCodec lazyCodec = lazy.getCodec();
+      return lazy.bind(lazyCodec.readerFor(lazyCodec.constructType(type.getType())));
+    }
+    // Already bound: convert
+    return mapper().convertValue(result, type);
+  }
+
+  /**
+   * Retrieve the result as UTF-8 JSON, typically to pass it on as-is.
+   * With a lazy codec, the result is never bound.
+   *
+   * @return the encoded result, or null if the response holds no result
+   * @throws IOException if the result cannot be encoded
+   */
+  public byte[] getRawResult() throws IOException {
+    LazyResult<T> lazy = lazyResult;
+    if (lazy != null) {
+      return lazy.toBytes();
+    }
+    if (result == null && error != null) {
+      return null;
+    }
+    return mapper().writeValueAsBytes(result);
+  }
+
   public Error getError() {
     return error;
   }
@@ -29,6 +157,8 @@ public class JsonRpcResponse<T> {
 
     JsonRpcResponse response = (JsonRpcResponse) o;
 
+    if (numeric != response.numeric) return false;
+    if (numeric) return numericId == response.numericId;
     return !(id != null ? !id.equals(response.id) : response.id != null);
 
   }
@@ -37,14 +167,15 @@ public class JsonRpcResponse<T> {
 
   @Override
   public int hashCode() {
-    return id != null ? id.hashCode() : 0;
+    Object key = idKey();
+    return key != null ? key.hashCode() : 0;
   }
 
   @Override
   public String toString() {
     return "Response{" +
-      "id='" + id + '\'' +
-      ", result=" + result +
+      "id='" + getId() + '\'' +
+      ", result=" + (lazyResult != null && !bound ? lazyResult : result) +
       ", error=" + error +
       '}';
   }
@@ -59,8 +190,13 @@ public class JsonRpcResponse<T> {
 
   public static class Builder<T> {
     protected String id;
+    protected long numericId;
+    protected boolean numeric;
     protected T result;
+    protected LazyResult<T> lazyResult;
+    protected boolean bound;
     protected Error error;
+    protected JsonRpcCodec codec;
 
 
     private Builder() {
@@ -69,11 +205,52 @@ public class JsonRpcResponse<T> {
 
     public Builder id(String id) {
       this.id = id;
+      this.numeric = false;
       return this;
     }
 
+    public Builder id(long id) {
+      this.id = null;
+      this.numericId = id;
+      this.numeric = true;
+      return this;
+    }
+
+    public Builder idOf(JsonRpcRequest request) {
+      if (request.isNumericId()) {
+        return id(request.getNumericId());
+      }
+      return id(request.getId());
+    }
+
     public Builder result(T result) {
       this.result = result;
+      this.lazyResult = null;
+      this.bound = false;
+      return this;
+    }
+
+    public Builder lazyResult(LazyResult<T> lazyResult) {
+      this.result = null;
+      this.lazyResult = lazyResult;
+      this.bound = false;
+      return this;
+    }
+
+    /**
+     * Share the result of another response: its bound result, its buffered JSON if read with a lazy codec, and its codec.
+     * A lazy result is bound first, so that both responses hold the same result instance.
+     *
+     * @param response the response holding the result
+     * @return the builder
+     * @throws IllegalStateException if a lazy result cannot be bound
+     */
+    public Builder resultOf(JsonRpcResponse<T> response) {
+      LazyResult<T> lazy = response.lazyResult;
+      this.result = response.getResult();
+      this.lazyResult = lazy;
+      this.bound = lazy != null;
+      this.codec = response.codec;
       return this;
     }
 
@@ -82,11 +259,25 @@ public class JsonRpcResponse<T> {
       return this;
     }
 
+    /**
+     * @param codec the codec the response was read with, used to convert or encode a bound result
+     * @return the builder
+     */
+    public Builder codec(JsonRpcCodec codec) {
+      this.codec = codec;
+      return this;
+    }
+
     public JsonRpcResponse build() {
       JsonRpcResponse response = new JsonRpcResponse<T>();
       response.id = id;
+      response.numericId = numericId;
+      response.numeric = numeric;
       response.result = result;
+      response.lazyResult = lazyResult;
+      response.bound = bound;
       response.error = error;
+      response.codec = lazyResult != null ? lazyResult.getCodec() : codec;
       return response;
     }
   }
@@ -0,0 +1,28 @@
+package io.resourcepool.jarpic.model;
+
+import java.io.IOException;
+
+/**
+ * This class allows for a set of JSON RPC requests to be made asynchronously, with responses handed out one at a time.
+ * The client will call onResponse for every response as soon as it has been read, then either onComplete or onFailure.
+ */
+public interface JsonRpcStreamCallback<T> {
+  /**
+   * Called for every response of the batch, in wire order.
+   *
+   * @param result the parsed JsonRpcResponse
+   */
+  void onResponse(JsonRpcResponse<T> result);
+
+  /**
+   * Called once every response of the batch has been handed out.
+   */
+  void onComplete();
+
+  /**
+   * Called when an error occured during the Http Request, or while reading the responses.
+   *
+   * @param ex the exception
+   */
+  void onFailure(IOException ex);
+}
@@ -0,0 +1,86 @@
+package io.resourcepool.jarpic.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+
+import java.io.IOException;
+
+/**
+ * This class holds the result of a response as buffered JSON tokens, until it is actually needed.
+ * Buffering only copies the tokens: no object is created, and no deserializer is involved.
+ * The result is bound on demand, to the type requested by the call or to any other one, or encoded back to raw JSON bytes.
+ */
+public class LazyResult<T> {
+
+  private final JsonRpcCodec codec;
+  private final ObjectReader reader;
+  private final TokenBuffer buffer;
+  private volatile byte[] raw;
+
+  /**
+   * @param codec  the codec used to bind or encode the result
+   * @param reader the reader for the type requested by the call
+   * @param buffer the buffered result tokens
+   */
+  public LazyResult(JsonRpcCodec codec, ObjectReader reader, TokenBuffer buffer) {
+    this.codec = codec;
+    this.reader = reader;
+    this.buffer = buffer;
+  }
+
+  /**
+   * @return the codec used to bind or encode the result
+   */
+  public JsonRpcCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * Bind the result to the type requested by the call.
+   *
+   * @return the bound result
+   * @throws IOException if the result cannot be bound
+   */
+  public T bind() throws IOException {
+    return bind(reader);
+  }
+
+  /**
+   * Bind the result with the provided reader.
+   *
+   * @param reader the reader for the target type
+   * @param <R>    the type inference for the result
+   * @return the bound result
+   * @throws IOException if the result cannot be bound
+   */
+  public <R> R bind(ObjectReader reader) throws IOException {
+    return reader.readValue(buffer.asParser());
+  }
+
+  /**
+   * @return the result, encoded as UTF-8 JSON. The bytes are encoded once, and must not be modified
+   * @throws IOException if the result cannot be encoded
+   */
+  public byte[] toBytes() throws IOException {
+    if (raw == null) {
+      ByteArrayBuilder bytes = new ByteArrayBuilder();
+      JsonGenerator gen = codec.getFactory().createGenerator(bytes);
+      buffer.serialize(gen);
+      gen.close();
+      raw = bytes.toByteArray();
+    }
+    return raw;
+  }
+
+  @Override
+  public String toString() {
+    try {
+      return new String(toBytes(), "UTF-8");
+    } catch (IOException e) {
+      return "<unreadable result>";
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package io.resourcepool.jarpic.model;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class wraps already encoded UTF-8 JSON, so that it is written verbatim by UTF-8 generators.
+ * Only the unquoted UTF-8 forms use the bytes directly; other forms fall back on the decoded String.
+ */
+class RawJsonBytes implements SerializableString {
+
+  private final byte[] json;
+  private SerializedString decoded;
+
+  /**
+   * @param json the UTF-8 encoded JSON
+   */
+  RawJsonBytes(byte[] json) {
+    this.json = json;
+  }
+
+  /**
+   * @return the decoded JSON as a SerializedString
+   */
+  private SerializedString decoded() {
+    if (decoded == null) {
+      try {
+        decoded = new SerializedString(new String(json, "UTF-8"));
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return decoded;
+  }
+
+  @Override
+  public String getValue() {
+    return decoded().getValue();
+  }
+
+  @Override
+  public int charLength() {
+    return decoded().charLength();
+  }
+
+  @Override
+  public char[] asQuotedChars() {
+    return decoded().asQuotedChars();
+  }
+
+  @Override
+  public byte[] asUnquotedUTF8() {
+    return json;
+  }
+
+  @Override
+  public byte[] asQuotedUTF8() {
+    return decoded().asQuotedUTF8();
+  }
+
+  @Override
+  public int appendQuotedUTF8(byte[] buffer, int offset) {
+    return decoded().appendQuotedUTF8(buffer, offset);
+  }
+
+  @Override
+  public int appendQuoted(char[] buffer, int offset) {
+    return decoded().appendQuoted(buffer, offset);
+  }
+
+  @Override
+  public int appendUnquotedUTF8(byte[] buffer, int offset) {
+    if (offset + json.length > buffer.length) {
+      return -1;
+    }
+    System.arraycopy(json, 0, buffer, offset, json.length);
+    return json.length;
+  }
+
+  @Override
+  public int appendUnquoted(char[] buffer, int offset) {
+    return decoded().appendUnquoted(buffer, offset);
+  }
+
+  @Override
+  public int writeQuotedUTF8(OutputStream out) throws IOException {
+    return decoded().writeQuotedUTF8(out);
+  }
+
+  @Override
+  public int writeUnquotedUTF8(OutputStream out) throws IOException {
+    out.write(json);
+    return json.length;
+  }
+
+  @Override
+  public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+    return decoded().putQuotedUTF8(buffer);
+  }
+
+  @Override
+  public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+    if (json.length > buffer.remaining()) {
+      return -1;
+    }
+    buffer.put(json);
+    return json.length;
+  }
+
+  @Override
+  public String toString() {
+    return getValue();
+  }
+}
@@ -0,0 +1,163 @@
+package io.resourcepool.jarpic.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This cursor reads the responses of a batch one at a time, as the array elements come off the stream.
+ * Only the current response is held in memory. The cursor must be closed once done, as it holds the underlying stream.
+ */
+public class JsonRpcResponseCursor<T> implements Closeable {
+
+  private final JsonRpcCodec codec;
+  private final JsonParser parser;
+  private final ObjectReader resultReader;
+  private final Iterator<JsonRpcResponse<T>> responses;
+  private JsonToken next;
+  private boolean done;
+  private Observer observer;
+
+  /**
+   * Construct a new cursor reading from a JSON parser.
+   * Parser must be positioned on the START_ARRAY token.
+   *
+   * @param codec        the codec holding the cached readers
+   * @param parser       the JSON parser
+   * @param resultReader the reader for the result payload
+   */
+  JsonRpcResponseCursor(JsonRpcCodec codec, JsonParser parser, ObjectReader resultReader) {
+    this.codec = codec;
+    this.parser = parser;
+    this.resultReader = resultReader;
+    this.responses = null;
+  }
+
+  /**
+   * Construct a new cursor iterating over already built responses.
+   *
+   * @param responses the responses
+   */
+  private JsonRpcResponseCursor(List<JsonRpcResponse<T>> responses) {
+    this.codec = null;
+    this.parser = null;
+    this.resultReader = null;
+    this.responses = responses.iterator();
+  }
+
+  /**
+   * Create a cursor over already built responses.
+   *
+   * @param responses the responses
+   * @param <T>       the type inference for the result
+   * @return the cursor
+   */
+  public static <T> JsonRpcResponseCursor<T> of(List<JsonRpcResponse<T>> responses) {
+    return new JsonRpcResponseCursor<T>(responses);
+  }
+
+  /**
+   * Notify an observer of the responses read, and of the closing of this cursor.
+   *
+   * @param observer the observer, replacing any previous one
+   * @return this cursor
+   */
+  public JsonRpcResponseCursor<T> observe(Observer observer) {
+    this.observer = observer;
+    return this;
+  }
+
+  /**
+   * Check whether another response is available. This may block until the next array element is received.
+   * The cursor is closed automatically once the end of the batch is reached.
+   *
+   * @return true if another response is available
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is not a valid array element
+   */
+  public boolean hasNext() throws IOException, ParseException {
+    if (responses != null) {
+      return responses.hasNext();
+    }
+    if (done) {
+      return false;
+    }
+    if (next == null) {
+      next = parser.nextToken();
+    }
+    if (next == null || next == JsonToken.END_ARRAY) {
+      close();
+      return false;
+    }
+    if (next != JsonToken.START_OBJECT) {
+      throw new ParseException("The provided JSON is not an Object", 0);
+    }
+    return true;
+  }
+
+  /**
+   * Read the next response of the batch.
+   *
+   * @return the JsonRpcResponse
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null, empty, or invalid
+   */
+  public JsonRpcResponse<T> next() throws IOException, ParseException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    JsonRpcResponse<T> response;
+    if (responses != null) {
+      response = responses.next();
+    } else {
+      next = null;
+      response = ResponseParser.read(codec, parser, resultReader);
+    }
+    if (observer != null) {
+      observer.onResponse(response);
+    }
+    return response;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (done) {
+      return;
+    }
+    done = true;
+    try {
+      if (parser != null) {
+        parser.close();
+      }
+    } finally {
+      if (observer != null) {
+        observer.onClose();
+      }
+    }
+  }
+
+  /**
+   * This interface is notified as a cursor is consumed, e.g. to record metrics.
+   */
+  public interface Observer {
+
+    /**
+     * @param response a response read from the cursor
+     */
+    void onResponse(JsonRpcResponse<?> response);
+
+    /**
+     * The cursor was closed, explicitly or as the end of the batch was reached.
+     */
+    void onClose();
+  }
+}
@@ -1,19 +1,24 @@
 package io.resourcepool.jarpic.parser;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
 import io.resourcepool.jarpic.model.JsonRpcRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 /**
  * @author Loïc Ortola on 11/03/2016.
- *         This class maps a JsonRpcRequest into a Jackson JsonNode.
+ *         This class maps a JsonRpcRequest into a Jackson JsonNode, or writes it directly to a JsonGenerator.
  */
 public abstract class RequestMapper {
 
@@ -26,6 +31,17 @@ public abstract class RequestMapper {
    * @return the ObjectNode
    */
   public static ObjectNode map(JsonRpcRequest request) {
+    return map(JacksonJsonRpcCodec.getDefault(), request);
+  }
+
+  /**
+   * Map existing JsonRpcRequest to Jackson JsonNode.
+   *
+   * @param codec   the codec to use
+   * @param request the JsonRpcRequest
+   * @return the ObjectNode
+   */
+  public static ObjectNode map(JsonRpcCodec codec, JsonRpcRequest request) {
     if (request == null) {
       return null;
     }
@@ -36,15 +52,18 @@ public abstract class RequestMapper {
     node.set("method", new TextNode(request.getMethod()));
 
     // Set id
-    if (request.getId() != null) {
+    if (request.isNumericId()) {
+      node.set("id", new LongNode(request.getNumericId()));
+    } else if (request.getId() != null) {
       node.set("id", new TextNode(request.getId()));
     }
 
     // Set Params
-    Map<String, String> params = request.getParams();
-    if (params != null && !params.isEmpty()) {
-      ObjectMapper mapper = new ObjectMapper();
-      node.set("params", mapper.valueToTree(params));
+    Object params = request.getParamsValue();
+    if (params instanceof RawValue) {
+      node.putRawValue("params", (RawValue) params);
+    } else if (params != null && !isEmptyMap(params)) {
+      node.set("params", codec.getMapper().valueToTree(params));
     }
     return node;
   }
@@ -56,10 +75,113 @@ public abstract class RequestMapper {
    * @return the JsonNode (ArrayNode)
    */
   public static JsonNode map(List<JsonRpcRequest> requests) {
+    return map(JacksonJsonRpcCodec.getDefault(), requests);
+  }
+
+  /**
+   * Map existing JsonRpcRequests to Jackson JsonNode.
+   *
+   * @param codec    the codec to use
+   * @param requests the JsonRpcRequests
+   * @return the JsonNode (ArrayNode)
+   */
+  public static JsonNode map(JsonRpcCodec codec, List<JsonRpcRequest> requests) {
     ArrayNode node = new ArrayNode(JsonNodeFactory.instance);
     for (JsonRpcRequest request : requests) {
-      node.add(map(request));
+      node.add(map(codec, request));
     }
     return node;
   }
-}
\ No newline at end of file
+
+  /**
+   * Write existing JsonRpcRequest to a Jackson JsonGenerator, without building any intermediate tree.
+   *
+   * @param gen     the JsonGenerator
+   * @param request the JsonRpcRequest
+   * @throws IOException if writing fails
+   */
+  public static void write(JsonGenerator gen, JsonRpcRequest request) throws IOException {
+    if (request == null) {
+      gen.writeNull();
+      return;
+    }
+    gen.writeStartObject();
+    // Set protocol version
+    gen.writeStringField("jsonrpc", "2.0");
+    // Set method
+    gen.writeStringField("method", request.getMethod());
+
+    // Set id
+    if (request.isNumericId()) {
+      gen.writeNumberField("id", request.getNumericId());
+    } else if (request.getId() != null) {
+      gen.writeStringField("id", request.getId());
+    }
+
+    // Set Params
+    Object params = request.getParamsValue();
+    if (params instanceof RawValue) {
+      // Pre-encoded params are spliced in verbatim
+      gen.writeFieldName("params");
+      ((RawValue) params).serialize(gen, null);
+    } else if (params instanceof Map) {
+      Map<?, ?> named = (Map<?, ?>) params;
+      if (!named.isEmpty()) {
+        gen.writeObjectFieldStart("params");
+        for (Map.Entry<?, ?> param : named.entrySet()) {
+          gen.writeFieldName(String.valueOf(param.getKey()));
+          writeValue(gen, param.getValue());
+        }
+        gen.writeEndObject();
+      }
+    } else if (params instanceof List) {
+      gen.writeArrayFieldStart("params");
+      for (Object param : (List<?>) params) {
+        writeValue(gen, param);
+      }
+      gen.writeEndArray();
+    } else if (params != null) {
+      gen.writeFieldName("params");
+      gen.writeObject(params);
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * Write existing JsonRpcRequests to a Jackson JsonGenerator as a JSON array, without building any intermediate tree.
+   *
+   * @param gen      the JsonGenerator
+   * @param requests the JsonRpcRequests
+   * @throws IOException if writing fails
+   */
+  public static void write(JsonGenerator gen, List<JsonRpcRequest> requests) throws IOException {
+    gen.writeStartArray();
+    for (JsonRpcRequest request : requests) {
+      write(gen, request);
+    }
+    gen.writeEndArray();
+  }
+
+  /**
+   * Write a param value, avoiding the ObjectMapper lookup for plain strings.
+   *
+   * @param gen   the JsonGenerator
+   * @param value the param value
+   * @throws IOException if writing fails
+   */
+  private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+    if (value instanceof String) {
+      gen.writeString((String) value);
+    } else {
+      gen.writeObject(value);
+    }
+  }
+
+  /**
+   * @param params the params
+   * @return true if params are named, and empty
+   */
+  private static boolean isEmptyMap(Object params) {
+    return params instanceof Map && ((Map<?, ?>) params).isEmpty();
+  }
+}
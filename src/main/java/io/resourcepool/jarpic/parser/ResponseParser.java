@@ -1,11 +1,18 @@
 package io.resourcepool.jarpic.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
 import io.resourcepool.jarpic.model.Error;
 import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.LazyResult;
 import io.resourcepool.jarpic.validator.JsonRpc2SchemaValidator;
 
 import java.io.IOException;
@@ -16,7 +23,11 @@ import java.util.List;
 
 /**
  * @author Loïc Ortola on 11/03/2016.
- *         This class parses a response (inputstream or JsonNode) to create a JsonRpcResponse object
+ *         This class parses a response (inputstream, text or JsonNode) to create a JsonRpcResponse object.
+ *         Responses are read in a single streaming pass: the JSON RPC 2.0 schema rules of {@link JsonRpc2SchemaValidator}
+ *         are checked while reading, and the result is bound to its target class directly from the token stream.
+ *         Generic results (TypeReference or JavaType) go through the same single pass, using the reader cached by the codec.
+ *         With a lazy codec, results are only buffered as JSON tokens, and bound once accessed.
  */
 public abstract class ResponseParser {
 
@@ -50,11 +61,64 @@ public abstract class ResponseParser {
    * @throws ParseException     if response is null, empty, or invalid
    */
   public static <T> JsonRpcResponse<T> parseOne(JsonNode content, Class<T> resultClass) throws IOException, ParseException {
-    ObjectMapper mapper = new ObjectMapper();
-    assertValid(content);
-    // One should only return a JSON object
-    return parse(mapper, (ObjectNode) content, resultClass);
+    return parseOne(JacksonJsonRpcCodec.getDefault(), content, resultClass);
+  }
+
+  /**
+   * Parse JsonNode to JsonRpcResponse with resultClass.
+   *
+   * @param codec       the codec to use
+   * @param content     the ObjectNode JSON tree
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
+   * @param <T>         the type inference for the result
+   * @return the JsonRpcResponse
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, JsonNode content, Class<T> resultClass) throws IOException, ParseException {
+    return parseOne(codec, content, codec.readerFor(resultClass));
+  }
 
+  /**
+   * Parse JsonNode to JsonRpcResponse with a generic result type.
+   *
+   * @param codec      the codec to use
+   * @param content    the ObjectNode JSON tree
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, JsonNode content, JavaType resultType) throws IOException, ParseException {
+    return parseOne(codec, content, codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse JsonNode to JsonRpcResponse with the provided result reader.
+   *
+   * @param codec        the codec to use
+   * @param content      the ObjectNode JSON tree
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null, empty, or invalid
+   */
+  private static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, JsonNode content, ObjectReader resultReader) throws IOException, ParseException {
+    if (content == null) {
+      throw new ParseException("The provided JSON cannot be null", 0);
+    }
+    if (!content.isObject()) {
+      throw new ParseException("The provided JSON is not an Object", 0);
+    }
+    JsonParser parser = codec.getMapper().treeAsTokens(content);
+    try {
+      parser.nextToken();
+      return read(codec, parser, resultReader);
+    } finally {
+      parser.close();
+    }
   }
 
   /**
@@ -68,13 +132,109 @@ public abstract class ResponseParser {
    * @throws ParseException     if response is null, empty, or invalid
    */
   public static <T> JsonRpcResponse<T> parseOne(InputStream content, Class<T> resultClass) throws IOException, ParseException {
-    ObjectMapper mapper = new ObjectMapper();
-    // One should only return a JSON object
-    JsonNode node = mapper.readTree(content);
-    if (!node.isObject()) {
-      return null;
+    return parseOne(JacksonJsonRpcCodec.getDefault(), content, resultClass);
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse with resultClass.
+   *
+   * @param codec       the codec to use
+   * @param content     the InputStream content
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
+   * @param <T>         the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, InputStream content, Class<T> resultClass) throws IOException, ParseException {
+    return parseOne(codec, content, codec.readerFor(resultClass));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse with a generic result type.
+   *
+   * @param content    the InputStream content
+   * @param resultType the type reference for the result
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(InputStream content, TypeReference<T> resultType) throws IOException, ParseException {
+    JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+    return parseOne(codec, content, codec.constructType(resultType.getType()));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse with a generic result type.
+   *
+   * @param codec      the codec to use
+   * @param content    the InputStream content
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, InputStream content, JavaType resultType) throws IOException, ParseException {
+    return parseOne(codec, content, codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse with the provided result reader.
+   *
+   * @param codec        the codec to use
+   * @param content      the InputStream content
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null, empty, or invalid
+   */
+  private static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, InputStream content, ObjectReader resultReader) throws IOException, ParseException {
+    return parseOne(codec, codec.getFactory().createParser(content), resultReader);
+  }
+
+  /**
+   * Parse JSON text to JsonRpcResponse, as received in a text message.
+   *
+   * @param codec      the codec to use
+   * @param content    the JSON text
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null, empty, or invalid
+   */
+  public static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, String content, JavaType resultType) throws IOException, ParseException {
+    return parseOne(codec, codec.getFactory().createParser(content), codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse a JSON token stream to JsonRpcResponse, then close it.
+   *
+   * @param codec        the codec to use
+   * @param parser       the parser, before its first token
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse, or null if content is not a JSON object
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null, empty, or invalid
+   */
+  private static <T> JsonRpcResponse<T> parseOne(JsonRpcCodec codec, JsonParser parser, ObjectReader resultReader) throws IOException, ParseException {
+    try {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        throw new ParseException("The provided JSON cannot be null", 0);
+      }
+      // One should only return a JSON object
+      if (token != JsonToken.START_OBJECT) {
+        return null;
+      }
+      return read(codec, parser, resultReader);
+    } finally {
+      parser.close();
     }
-    return parseOne(node, resultClass);
   }
 
   /**
@@ -85,15 +245,64 @@ public abstract class ResponseParser {
    * @param <T>         the type inference for the result
    * @return the JsonRpcResponse List
    * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
    */
-  public static <T> List<JsonRpcResponse<T>> parseList(JsonNode content, Class<T> resultClass) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    List<JsonRpcResponse<T>> responses = new ArrayList<JsonRpcResponse<T>>(content.size());
-    for (int i = 0; i < content.size(); i++) {
-      ObjectNode node = (ObjectNode) content.get(i);
-      responses.add(parse(mapper, node, resultClass));
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonNode content, Class<T> resultClass) throws IOException, ParseException {
+    return parseList(JacksonJsonRpcCodec.getDefault(), content, resultClass);
+  }
+
+  /**
+   * Parse JsonNode to JsonRpcResponse List with resultClass.
+   *
+   * @param codec       the codec to use
+   * @param content     the ArrayNode JSON Tree
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
+   * @param <T>         the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, JsonNode content, Class<T> resultClass) throws IOException, ParseException {
+    return parseList(codec, content, codec.readerFor(resultClass));
+  }
+
+  /**
+   * Parse JsonNode to JsonRpcResponse List with a generic result type.
+   *
+   * @param codec      the codec to use
+   * @param content    the ArrayNode JSON Tree
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, JsonNode content, JavaType resultType) throws IOException, ParseException {
+    return parseList(codec, content, codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse JsonNode to JsonRpcResponse List with the provided result reader.
+   *
+   * @param codec        the codec to use
+   * @param content      the ArrayNode JSON Tree
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if one of the responses is null, empty, or invalid
+   */
+  private static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, JsonNode content, ObjectReader resultReader) throws IOException, ParseException {
+    if (content == null || !content.isArray()) {
+      return null;
+    }
+    JsonParser parser = codec.getMapper().treeAsTokens(content);
+    try {
+      parser.nextToken();
+      return ResponseParser.<T>readList(codec, parser, resultReader, content.size());
+    } finally {
+      parser.close();
     }
-    return responses;
   }
 
   /**
@@ -104,37 +313,336 @@ public abstract class ResponseParser {
    * @param <T>         the type inference for the result
    * @return the JsonRpcResponse List
    * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
    */
-  public static <T> List<JsonRpcResponse<T>> parseList(InputStream content, Class<T> resultClass) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    // List should return a JSON Array
-    JsonNode nodes = mapper.readTree(content);
-    if (!nodes.isArray()) {
-      return null;
+  public static <T> List<JsonRpcResponse<T>> parseList(InputStream content, Class<T> resultClass) throws IOException, ParseException {
+    return parseList(JacksonJsonRpcCodec.getDefault(), content, resultClass);
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse List with resultClass.
+   *
+   * @param codec       the codec to use
+   * @param content     the InputStream content
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
+   * @param <T>         the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, InputStream content, Class<T> resultClass) throws IOException, ParseException {
+    return parseList(codec, content, codec.readerFor(resultClass));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse List with a generic result type.
+   *
+   * @param content    the InputStream content
+   * @param resultType the type reference for the result
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(InputStream content, TypeReference<T> resultType) throws IOException, ParseException {
+    JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+    return parseList(codec, content, codec.constructType(resultType.getType()));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse List with a generic result type.
+   *
+   * @param codec      the codec to use
+   * @param content    the InputStream content
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, InputStream content, JavaType resultType) throws IOException, ParseException {
+    return parseList(codec, content, codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse InputStream to JsonRpcResponse List with the provided result reader.
+   *
+   * @param codec        the codec to use
+   * @param content      the InputStream content
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if one of the responses is null, empty, or invalid
+   */
+  private static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, InputStream content, ObjectReader resultReader) throws IOException, ParseException {
+    return parseList(codec, codec.getFactory().createParser(content), resultReader);
+  }
+
+  /**
+   * Parse JSON text to JsonRpcResponse List, as received in a text message.
+   *
+   * @param codec      the codec to use
+   * @param content    the JSON text
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if one of the responses is null, empty, or invalid
+   */
+  public static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, String content, JavaType resultType) throws IOException, ParseException {
+    return parseList(codec, codec.getFactory().createParser(content), codec.readerFor(resultType));
+  }
+
+  /**
+   * Parse a JSON token stream to JsonRpcResponse List, then close it.
+   *
+   * @param codec        the codec to use
+   * @param parser       the parser, before its first token
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse List, or null if content is not a JSON array
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if one of the responses is null, empty, or invalid
+   */
+  private static <T> List<JsonRpcResponse<T>> parseList(JsonRpcCodec codec, JsonParser parser, ObjectReader resultReader) throws IOException, ParseException {
+    try {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        throw new ParseException("The provided JSON cannot be null", 0);
+      }
+      // List should return a JSON Array
+      if (token != JsonToken.START_ARRAY) {
+        return null;
+      }
+      return ResponseParser.<T>readList(codec, parser, resultReader, 10);
+    } finally {
+      parser.close();
     }
-    return parseList(nodes, resultClass);
   }
 
   /**
-   * Private parsing method.
+   * Open a cursor reading JsonRpcResponses from an InputStream one at a time, as they are received.
+   *
+   * @param content     the InputStream content
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
+   * @param <T>         the type inference for the result
+   * @return the cursor, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null or empty
+   */
+  public static <T> JsonRpcResponseCursor<T> stream(InputStream content, Class<T> resultClass) throws IOException, ParseException {
+    return stream(JacksonJsonRpcCodec.getDefault(), content, resultClass);
+  }
+
+  /**
+   * Open a cursor reading JsonRpcResponses from an InputStream one at a time, as they are received.
+   * The cursor owns the InputStream and closes it once closed itself.
    *
-   * @param mapper      the Jackson ObjectMapper
-   * @param node        the Original JsonNode onto which place the following object
-   * @param resultClass the result class
+   * @param codec       the codec to use
+   * @param content     the InputStream content
+   * @param resultClass the result payload DTO class. Should be a Serializable POJO
    * @param <T>         the type inference for the result
-   * @return the JsonRpcResponse
+   * @return the cursor, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null or empty
+   */
+  public static <T> JsonRpcResponseCursor<T> stream(JsonRpcCodec codec, InputStream content, Class<T> resultClass) throws IOException, ParseException {
+    return stream(codec, content, codec.readerFor(resultClass));
+  }
+
+  /**
+   * Open a cursor reading JsonRpcResponses with a generic result type from an InputStream one at a time, as they are received.
+   *
+   * @param content    the InputStream content
+   * @param resultType the type reference for the result
+   * @param <T>        the type inference for the result
+   * @return the cursor, or null if content is not a JSON array
    * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null or empty
    */
-  private static <T> JsonRpcResponse<T> parse(ObjectMapper mapper, ObjectNode node, Class<T> resultClass) throws IOException {
-    JsonRpcResponse.Builder builder = JsonRpcResponse.builder();
-    builder.id(node.get("id").asText());
-    if (node.has("error")) {
-      Error err = mapper.readValue(node.get("error").traverse(), Error.class);
-      builder.error(err);
-    } else {
-      T result = mapper.readValue(node.get("result").traverse(), resultClass);
-      builder.result(result);
+  public static <T> JsonRpcResponseCursor<T> stream(InputStream content, TypeReference<T> resultType) throws IOException, ParseException {
+    JsonRpcCodec codec = JacksonJsonRpcCodec.getDefault();
+    return stream(codec, content, codec.constructType(resultType.getType()));
+  }
+
+  /**
+   * Open a cursor reading JsonRpcResponses with a generic result type from an InputStream one at a time, as they are received.
+   * The cursor owns the InputStream and closes it once closed itself.
+   *
+   * @param codec      the codec to use
+   * @param content    the InputStream content
+   * @param resultType the resolved result type
+   * @param <T>        the type inference for the result
+   * @return the cursor, or null if content is not a JSON array
+   * @throws IOException              if response is parsing error occurs
+   * @throws ParseException     if response is null or empty
+   */
+  public static <T> JsonRpcResponseCursor<T> stream(JsonRpcCodec codec, InputStream content, JavaType resultType) throws IOException, ParseException {
+    return stream(codec, content, codec.readerFor(resultType));
+  }
+
+  /**
+   * Open a cursor reading JsonRpcResponses from an InputStream with the provided result reader.
+   *
+   * @param codec        the codec to use
+   * @param content      the InputStream content
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the cursor, or null if content is not a JSON array
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is null or empty
+   */
+  private static <T> JsonRpcResponseCursor<T> stream(JsonRpcCodec codec, InputStream content, ObjectReader resultReader) throws IOException, ParseException {
+    JsonParser parser = codec.getFactory().createParser(content);
+    boolean opened = false;
+    try {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        throw new ParseException("The provided JSON cannot be null", 0);
+      }
+      // List should return a JSON Array
+      if (token != JsonToken.START_ARRAY) {
+        return null;
+      }
+      opened = true;
+      return new JsonRpcResponseCursor<T>(codec, parser, resultReader);
+    } finally {
+      if (!opened) {
+        parser.close();
+      }
+    }
+  }
+
+  /**
+   * Read all responses of an array. Parser must be positioned on the START_ARRAY token.
+   *
+   * @param codec        the codec holding the cached readers
+   * @param parser       the JSON parser
+   * @param resultReader the reader for the result payload
+   * @param sizeHint     the expected amount of responses
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse List
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if one of the responses is invalid
+   */
+  private static <T> List<JsonRpcResponse<T>> readList(JsonRpcCodec codec, JsonParser parser, ObjectReader resultReader, int sizeHint) throws IOException, ParseException {
+    List<JsonRpcResponse<T>> responses = new ArrayList<JsonRpcResponse<T>>(sizeHint);
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.START_OBJECT) {
+        throw new ParseException("The provided JSON is not an Object", 0);
+      }
+      responses.add(ResponseParser.<T>read(codec, parser, resultReader));
+    }
+    return responses;
+  }
+
+  /**
+   * Read one response object while validating it against the JSON RPC 2.0 schema.
+   * Parser must be positioned on the START_OBJECT token, and will be left on the matching END_OBJECT token.
+   *
+   * @param codec        the codec holding the cached readers
+   * @param parser       the JSON parser
+   * @param resultReader the reader for the result payload
+   * @param <T>          the type inference for the result
+   * @return the JsonRpcResponse
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if response is invalid
+   */
+  @SuppressWarnings("unchecked")
+  static <T> JsonRpcResponse<T> read(JsonRpcCodec codec, JsonParser parser, ObjectReader resultReader) throws IOException, ParseException {
+    boolean validVersion = false;
+    boolean hasId = false;
+    boolean hasResult = false;
+    boolean hasError = false;
+    JsonRpcResponse.Builder builder = JsonRpcResponse.builder().codec(codec);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ("jsonrpc".equals(field)) {
+        validVersion = token.isScalarValue() && "2.0".equals(parser.getText());
+        parser.skipChildren();
+      } else if ("id".equals(field)) {
+        hasId = true;
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+          // Keep numeric ids as primitives
+          builder.id(parser.getLongValue());
+        } else if (token == JsonToken.VALUE_STRING || token.isNumeric()) {
+          builder.id(parser.getText());
+        } else if (token != JsonToken.VALUE_NULL) {
+          throw new ParseException("When provided, JSON member 'id' must be a String, a number, or NULL.", 3);
+        }
+      } else if ("result".equals(field)) {
+        hasResult = true;
+        if (codec.isLazyResults()) {
+          // Only copy the tokens, binding is deferred until the result is accessed
+          TokenBuffer buffer = new TokenBuffer(parser);
+          buffer.copyCurrentStructure(parser);
+          builder.lazyResult(new LazyResult<T>(codec, resultReader, buffer));
+        } else {
+          T result = resultReader.readValue(parser);
+          builder.result(result);
+        }
+      } else if ("error".equals(field)) {
+        hasError = true;
+        builder.error(readError(codec, parser));
+      } else if ("method".equals(field)) {
+        throw new ParseException("JSON member 'method' is only allowed in requests.", 3);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if (!validVersion) {
+      throw new ParseException("Only JSON RPC 2.0 schema is supported. Please supply a valid format.", 1);
+    }
+    if (!hasId) {
+      throw new ParseException("JSON member 'id' must be provided.", 3);
+    }
+    if (hasError && hasResult) {
+      throw new ParseException("JSON member 'result' cannot be provided when 'error' is present.", 3);
+    }
+    if (!hasError && !hasResult) {
+      throw new ParseException("JSON member 'result' is mandatory.", 3);
     }
     return builder.build();
   }
+
+  /**
+   * Read and validate the error member of a response.
+   * Parser must be positioned on the first token of the error value.
+   *
+   * @param codec  the codec holding the cached readers
+   * @param parser the JSON parser
+   * @return the Error
+   * @throws IOException    if response is parsing error occurs
+   * @throws ParseException if error is invalid
+   */
+  private static Error readError(JsonRpcCodec codec, JsonParser parser) throws IOException, ParseException {
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      throw new ParseException("JSON member 'error' is not valid.", 3);
+    }
+    Integer code = null;
+    String message = null;
+    Object data = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ("code".equals(field) && token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+        code = parser.getIntValue();
+      } else if ("message".equals(field) && token == JsonToken.VALUE_STRING) {
+        message = parser.getText();
+      } else if ("data".equals(field)) {
+        data = codec.readerFor(Object.class).readValue(parser);
+      } else if ("code".equals(field) || "message".equals(field)) {
+        throw new ParseException("JSON member 'error' is not valid.", 3);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if (code == null || message == null) {
+      throw new ParseException("JSON member 'error' is not valid.", 3);
+    }
+    return new Error(code, message, data);
+  }
 }
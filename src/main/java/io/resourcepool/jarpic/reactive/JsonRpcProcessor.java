@@ -0,0 +1,307 @@
+package io.resourcepool.jarpic.reactive;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.resourcepool.jarpic.client.AbstractJsonRpcClient;
+import io.resourcepool.jarpic.client.JsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This Reactive Streams processor sends every JsonRpcRequest it receives, and emits the matching JsonRpcResponse.
+ * At most maxInFlight requests are pulled from upstream without their response having been emitted downstream:
+ * this caps both the outstanding calls and the responses buffered for a slow subscriber.
+ * Responses are emitted as they arrive, which may differ from the request order. Notifications emit nothing.
+ * A failed call (IOException) cancels upstream and terminates the stream with that error.
+ * Only one subscriber is supported.
+ */
+public class JsonRpcProcessor<T> implements Processor<JsonRpcRequest, JsonRpcResponse<T>> {
+
+  private final JsonRpcClient client;
+  private final JavaType resultType;
+  private final int maxInFlight;
+
+  private final Queue<JsonRpcResponse<T>> ready = new ConcurrentLinkedQueue<JsonRpcResponse<T>>();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger dropped = new AtomicInteger();
+  private final AtomicLong requested = new AtomicLong();
+  private final Callback callback = new Callback();
+
+  private volatile Subscription upstream;
+  private volatile Subscriber<? super JsonRpcResponse<T>> downstream;
+  private volatile boolean upstreamDone;
+  private volatile Throwable error;
+  private volatile boolean cancelled;
+  // Requests pulled from upstream whose response was not emitted yet. Only accessed from the drain loop.
+  private int window;
+  private boolean terminated;
+
+  /**
+   * Construct a new JsonRpcProcessor.
+   *
+   * @param client      the client sending the requests
+   * @param resultClass the class for the result. Needs to be a POJO, Serializable
+   * @param maxInFlight the maximum amount of requests pulled from upstream and not emitted downstream yet
+   */
+  public JsonRpcProcessor(JsonRpcClient client, Class<T> resultClass, int maxInFlight) {
+    this(client, typeOf(client, resultClass), maxInFlight);
+  }
+
+  /**
+   * Construct a new JsonRpcProcessor.
+   *
+   * @param client      the client sending the requests
+   * @param resultType  the resolved type for the result
+   * @param maxInFlight the maximum amount of requests pulled from upstream and not emitted downstream yet
+   */
+  public JsonRpcProcessor(JsonRpcClient client, JavaType resultType, int maxInFlight) {
+    if (client == null) {
+      throw new IllegalArgumentException("Client cannot be null");
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Max in flight must be at least 1");
+    }
+    this.client = client;
+    this.resultType = resultType;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * @param client      the client
+   * @param resultClass the class for the result
+   * @return the type resolved by the codec of the client
+   */
+  private static JavaType typeOf(JsonRpcClient client, Class<?> resultClass) {
+    return AbstractJsonRpcClient.codecOf(client).constructType(resultClass);
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    if (s == null) {
+      throw new NullPointerException("Subscription cannot be null");
+    }
+    if (upstream != null || cancelled) {
+      s.cancel();
+      return;
+    }
+    upstream = s;
+    drain();
+  }
+
+  @Override
+  public void onNext(JsonRpcRequest req) {
+    if (req == null) {
+      throw new NullPointerException("Request cannot be null");
+    }
+    if (upstreamDone || cancelled) {
+      return;
+    }
+    inFlight.incrementAndGet();
+    client.send(req, resultType, callback);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    if (t == null) {
+      throw new NullPointerException("Error cannot be null");
+    }
+    if (error == null) {
+      error = t;
+    }
+    upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super JsonRpcResponse<T>> s) {
+    if (s == null) {
+      throw new NullPointerException("Subscriber cannot be null");
+    }
+    boolean accepted = false;
+    synchronized (this) {
+      if (downstream == null) {
+        downstream = s;
+        accepted = true;
+      }
+    }
+    if (accepted) {
+      s.onSubscribe(new Downstream());
+      drain();
+      return;
+    }
+    s.onSubscribe(new Subscription() {
+      @Override
+      public void request(long n) {
+        // Rejected subscriber
+      }
+
+      @Override
+      public void cancel() {
+        // Rejected subscriber
+      }
+    });
+    s.onError(new IllegalStateException("JsonRpcProcessor only supports one subscriber"));
+  }
+
+  /**
+   * Emit what can be emitted, and pull more requests from upstream if the window allows it.
+   * Only one thread runs the loop at a time: other callers just flag it for another pass.
+   */
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Subscriber<? super JsonRpcResponse<T>> s = downstream;
+      if (s != null && !terminated) {
+        emit(s);
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /**
+   * One pass of the drain loop, for a subscribed downstream.
+   *
+   * @param s the downstream subscriber
+   */
+  private void emit(Subscriber<? super JsonRpcResponse<T>> s) {
+    if (cancelled) {
+      ready.clear();
+      terminated = true;
+      return;
+    }
+    window -= dropped.getAndSet(0);
+    Throwable failure = error;
+    if (failure != null) {
+      terminate();
+      s.onError(failure);
+      return;
+    }
+    long r = requested.get();
+    long emitted = 0;
+    while (emitted != r) {
+      JsonRpcResponse<T> response = ready.poll();
+      if (response == null) {
+        break;
+      }
+      s.onNext(response);
+      emitted++;
+      window--;
+      if (cancelled) {
+        return;
+      }
+    }
+    if (emitted != 0 && r != Long.MAX_VALUE) {
+      requested.addAndGet(-emitted);
+    }
+    if (upstreamDone && inFlight.get() == 0 && ready.isEmpty()) {
+      terminate();
+      s.onComplete();
+      return;
+    }
+    Subscription up = upstream;
+    if (up != null && !upstreamDone && window < maxInFlight) {
+      int toRequest = maxInFlight - window;
+      window = maxInFlight;
+      up.request(toRequest);
+    }
+  }
+
+  /**
+   * Release everything once the stream is over.
+   */
+  private void terminate() {
+    terminated = true;
+    ready.clear();
+    Subscription up = upstream;
+    if (up != null && !upstreamDone) {
+      upstreamDone = true;
+      up.cancel();
+    }
+  }
+
+  /**
+   * Callback shared by every call, queueing the responses for the drain loop.
+   */
+  private class Callback implements JsonRpcCallback<T> {
+    @Override
+    public void onResponse(JsonRpcResponse<T> result) {
+      if (result == null) {
+        // Notification: nothing to emit, but its slot in the window is free again
+        dropped.incrementAndGet();
+      } else {
+        ready.offer(result);
+      }
+      inFlight.decrementAndGet();
+      drain();
+    }
+
+    @Override
+    public void onFailure(IOException ex) {
+      if (error == null) {
+        error = ex;
+      }
+      inFlight.decrementAndGet();
+      drain();
+    }
+  }
+
+  /**
+   * The subscription handed out to the downstream subscriber.
+   */
+  private class Downstream implements Subscription {
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        if (error == null) {
+          error = new IllegalArgumentException("Rule 3.9: request amount must be positive, got " + n);
+        }
+        drain();
+        return;
+      }
+      long current;
+      long next;
+      do {
+        current = requested.get();
+        if (current == Long.MAX_VALUE) {
+          break;
+        }
+        next = current + n;
+        if (next < 0) {
+          next = Long.MAX_VALUE;
+        }
+      } while (!requested.compareAndSet(current, next));
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      if (!cancelled) {
+        cancelled = true;
+        Subscription up = upstream;
+        if (up != null) {
+          up.cancel();
+        }
+        drain();
+      }
+    }
+  }
+}
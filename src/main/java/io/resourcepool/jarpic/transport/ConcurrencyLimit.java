@@ -0,0 +1,24 @@
+package io.resourcepool.jarpic.transport;
+
+/**
+ * This interface adjusts the amount of exchanges a LimitingTransport lets run at once,
+ * from the round-trip times it measures.
+ * Implementations must be thread-safe, as samples are recorded concurrently.
+ * Built-in implementations are available in {@link ConcurrencyLimits}.
+ */
+public interface ConcurrencyLimit {
+
+  /**
+   * @return the current maximum amount of exchanges in flight, at least 1
+   */
+  int getLimit();
+
+  /**
+   * Record the outcome of an exchange.
+   *
+   * @param rttNanos the round-trip time of the exchange
+   * @param inFlight the amount of exchanges in flight when it was sent, itself included
+   * @param dropped  true if the exchange failed or the server was overloaded
+   */
+  void onSample(long rttNanos, int inFlight, boolean dropped);
+}
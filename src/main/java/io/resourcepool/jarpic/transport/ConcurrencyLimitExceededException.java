@@ -0,0 +1,27 @@
+package io.resourcepool.jarpic.transport;
+
+import java.io.IOException;
+
+/**
+ * This exception is raised when a LimitingTransport refuses a payload: too many exchanges were in flight,
+ * and it could not wait in the queue. Nothing was sent, so the call can safely be retried later.
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int limit;
+
+  /**
+   * @param message the detail message
+   * @param limit   the concurrency limit when the payload was refused
+   */
+  public ConcurrencyLimitExceededException(String message, int limit) {
+    super(message);
+    this.limit = limit;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+}
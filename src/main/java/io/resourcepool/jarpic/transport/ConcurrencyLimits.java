@@ -0,0 +1,224 @@
+package io.resourcepool.jarpic.transport;
+
+/**
+ * This class provides the built-in concurrency limit algorithms.
+ * They only grow the limit while it is actually used, so that an idle client does not drift to its maximum.
+ */
+public abstract class ConcurrencyLimits {
+
+  /**
+   * A fixed limit.
+   *
+   * @param limit the maximum amount of exchanges in flight
+   * @return a new limit
+   */
+  public static ConcurrencyLimit fixed(final int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be at least 1");
+    }
+    return new ConcurrencyLimit() {
+      @Override
+      public int getLimit() {
+        return limit;
+      }
+
+      @Override
+      public void onSample(long rttNanos, int inFlight, boolean dropped) {
+        // Never changes
+      }
+    };
+  }
+
+  /**
+   * Additive increase, multiplicative decrease: one more per successful exchange, 10% less per drop.
+   * Only reacts to failures, not to latency.
+   *
+   * @param initial the initial limit
+   * @param max     the maximum limit
+   * @return a new limit
+   */
+  public static ConcurrencyLimit aimd(int initial, int max) {
+    return new Aimd(check(initial, max), max);
+  }
+
+  /**
+   * TCP Vegas: estimates the queue building up at the server from how much the RTT exceeds the lowest one seen,
+   * grows the limit while that queue is short and shrinks it once it gets long.
+   *
+   * @param initial the initial limit
+   * @param max     the maximum limit
+   * @return a new limit
+   */
+  public static ConcurrencyLimit vegas(int initial, int max) {
+    return new Vegas(check(initial, max), max);
+  }
+
+  /**
+   * Gradient: compares the latest RTT with its long-term average, shrinks the limit as the ratio degrades,
+   * and otherwise grows it by a small headroom (square root of the limit).
+   *
+   * @param initial the initial limit
+   * @param max     the maximum limit
+   * @return a new limit
+   */
+  public static ConcurrencyLimit gradient(int initial, int max) {
+    return new Gradient(check(initial, max), max);
+  }
+
+  /**
+   * @param initial the initial limit
+   * @param max     the maximum limit
+   * @return the initial limit
+   */
+  private static int check(int initial, int max) {
+    if (initial < 1 || max < initial) {
+      throw new IllegalArgumentException("Limits must verify 1 <= initial <= max");
+    }
+    return initial;
+  }
+
+  /**
+   * @param limit a limit
+   * @return the base 10 logarithm of the limit, at least 1, used as step by Vegas
+   */
+  private static double log10(double limit) {
+    return Math.max(1, Math.log10(limit));
+  }
+
+  /**
+   * Additive increase, multiplicative decrease.
+   */
+  private static final class Aimd implements ConcurrencyLimit {
+    private final int max;
+    private double limit;
+
+    /**
+     * @param initial the initial limit
+     * @param max     the maximum limit
+     */
+    Aimd(int initial, int max) {
+      this.limit = initial;
+      this.max = max;
+    }
+
+    @Override
+    public synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+      if (dropped) {
+        limit = Math.max(1, limit * 0.9);
+      } else if (inFlight * 2 >= limit) {
+        limit = Math.min(max, limit + 1);
+      }
+    }
+  }
+
+  /**
+   * TCP Vegas.
+   */
+  private static final class Vegas implements ConcurrencyLimit {
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final int max;
+    private double limit;
+    private long rttNoLoad;
+    private int samples;
+
+    /**
+     * @param initial the initial limit
+     * @param max     the maximum limit
+     */
+    Vegas(int initial, int max) {
+      this.limit = initial;
+      this.max = max;
+    }
+
+    @Override
+    public synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+      if (dropped) {
+        // A failure tells nothing about the RTT: it may have been refused at once, or timed out
+        limit = Math.max(1, limit - log10(limit));
+        return;
+      }
+      if (++samples % PROBE_INTERVAL == 0) {
+        // Forget the lowest RTT now and then, in case the server got durably slower
+        rttNoLoad = 0;
+      }
+      if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+        rttNoLoad = rttNanos;
+        return;
+      }
+      double step = log10(limit);
+      if (inFlight * 2 < limit) {
+        return;
+      }
+      double queue = Math.ceil(limit * (1 - (double) rttNoLoad / rttNanos));
+      if (queue <= step) {
+        limit = Math.min(max, limit + 6 * step);
+      } else if (queue < 3 * step) {
+        limit = Math.min(max, limit + step);
+      } else if (queue > 6 * step) {
+        limit = Math.max(1, limit - step);
+      }
+    }
+  }
+
+  /**
+   * Gradient of the short-term RTT over the long-term one.
+   */
+  private static final class Gradient implements ConcurrencyLimit {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int max;
+    private double limit;
+    private double longRtt;
+    private int samples;
+
+    /**
+     * @param initial the initial limit
+     * @param max     the maximum limit
+     */
+    Gradient(int initial, int max) {
+      this.limit = initial;
+      this.max = max;
+    }
+
+    @Override
+    public synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+      if (dropped) {
+        // Back off without the usual headroom, which would outgrow the decrease on small limits.
+        // Keep the RTT of failures out of the long-term average
+        limit = Math.max(1, limit * (1 - SMOOTHING * 0.5));
+        return;
+      }
+      samples = Math.min(samples + 1, LONG_WINDOW);
+      // Average over the first samples, then exponential average over the long window
+      longRtt += (rttNanos - longRtt) / samples;
+      if (longRtt > rttNanos * 2) {
+        // Recovering from a slow phase: let the long-term RTT catch up faster
+        longRtt *= 0.95;
+      }
+      if (inFlight * 2 < limit) {
+        return;
+      }
+      double gradient = Math.max(0.5, Math.min(1, TOLERANCE * longRtt / rttNanos));
+      double target = limit * gradient + Math.sqrt(limit);
+      limit = Math.max(1, Math.min(max, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+  }
+}
@@ -0,0 +1,478 @@
+package io.resourcepool.jarpic.transport;
+
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This transport hedges payloads made of idempotent calls only: if no response came after a delay,
+ * a duplicate is sent through the same delegate, the first response wins, and the other exchange is cancelled.
+ * Over a LoadBalancedTransport the duplicate usually goes to another replica, as the first one is busier;
+ * over an HttpTransport it goes through another connection.
+ * The delay is either fixed, or a percentile of the latencies observed recently.
+ * The latency observed is the one of the first exchange: when the duplicate wins, the first exchange is recorded
+ * as lasting until it was cancelled, so that fast duplicates do not drag the delay down.
+ * A budget caps the extra load: every hedgeable payload earns a fraction of a hedge, and bursts are bounded.
+ * A failure only wins once every exchange sent has failed.
+ * Every exchange, even of synchronous calls, is sent with enqueue(), so that the loser can be cancelled.
+ * Over HTTP, they all go through the OkHttp Dispatcher, which runs at most 5 calls per host by default:
+ * raise maxRequestsPerHost (e.g. with JsonRpcClientFactory) to at least the expected concurrency, plus the duplicates.
+ */
+public class HedgingTransport implements JsonRpcTransport, Closeable {
+
+  private static final int MIN_SAMPLES = 100;
+
+  private final JsonRpcTransport delegate;
+  private final Set<String> methods;
+  private final long delayNanos;
+  private final double percentile;
+  private final double budgetRatio;
+  private final int budgetBurst;
+  private final LatencyWindow latencies = new LatencyWindow();
+  private final ScheduledExecutorService scheduler;
+  private final AtomicLong hedges = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
+  private double tokens;
+
+  /**
+   * Construct a new HedgingTransport.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private HedgingTransport(Builder builder) {
+    this.delegate = builder.delegate;
+    this.methods = new HashSet<String>(builder.methods);
+    this.delayNanos = builder.delayNanos;
+    this.percentile = builder.percentile;
+    this.budgetRatio = builder.budgetRatio;
+    this.budgetBurst = builder.budgetBurst;
+    this.tokens = builder.budgetBurst;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "jarpic-hedger");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * @param delegate the transport used for every exchange
+   * @return a new Builder
+   */
+  public static Builder builder(JsonRpcTransport delegate) {
+    return new Builder(delegate);
+  }
+
+  /**
+   * Send a payload and wait for the winning outcome.
+   * Hedged payloads are sent asynchronously, as a blocking exchange could not be cancelled once the duplicate wins:
+   * the calling thread only waits.
+   *
+   * @param payload the payload
+   * @return the transport response
+   * @throws IOException if every exchange failed
+   */
+  @Override
+  public JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException {
+    if (!isHedgeable(payload)) {
+      return delegate.execute(payload);
+    }
+    final CountDownLatch done = new CountDownLatch(1);
+    final JsonRpcTransportResponse[] response = new JsonRpcTransportResponse[1];
+    final IOException[] failure = new IOException[1];
+    Cancellable hedge = hedge(payload, new Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse res) {
+        response[0] = res;
+        done.countDown();
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        failure[0] = ex;
+        done.countDown();
+      }
+    });
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      hedge.cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the response");
+    }
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return response[0];
+  }
+
+  @Override
+  public Cancellable enqueue(JsonRpcPayload payload, Callback callback) {
+    if (!isHedgeable(payload)) {
+      return delegate.enqueue(payload, callback);
+    }
+    return hedge(payload, callback);
+  }
+
+  /**
+   * @return the amount of duplicates sent
+   */
+  public long getHedgeCount() {
+    return hedges.get();
+  }
+
+  /**
+   * @return the amount of duplicates whose response came first
+   */
+  public long getHedgeWinCount() {
+    return hedgeWins.get();
+  }
+
+  /**
+   * @return the current hedge delay, in nanoseconds
+   */
+  public long getDelayNanos() {
+    if (percentile > 0) {
+      long observed = latencies.percentile(percentile);
+      if (observed >= 0) {
+        return observed;
+      }
+    }
+    return delayNanos;
+  }
+
+  /**
+   * Stop hedging. Pending exchanges complete without duplicates.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * @param payload the payload
+   * @return true if every call of the payload is idempotent and expects a response
+   */
+  private boolean isHedgeable(JsonRpcPayload payload) {
+    for (JsonRpcRequest req : payload.getRequests()) {
+      if (req.getId() == null || !methods.contains(req.getMethod())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Send a payload, and schedule its duplicate.
+   *
+   * @param payload  the payload
+   * @param callback the callback receiving the winning outcome
+   * @return a handle cancelling every exchange
+   */
+  private Cancellable hedge(JsonRpcPayload payload, Callback callback) {
+    synchronized (this) {
+      tokens = Math.min(budgetBurst, tokens + budgetRatio);
+    }
+    Hedge hedge = new Hedge(payload, callback);
+    hedge.start();
+    return hedge;
+  }
+
+  /**
+   * @return true if the budget allows one more duplicate, which is then spent
+   */
+  private synchronized boolean acquireToken() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  /**
+   * A payload sent once, and maybe twice.
+   */
+  private final class Hedge implements Cancellable, Runnable {
+    private final JsonRpcPayload payload;
+    private final Callback callback;
+    private final long start = System.nanoTime();
+    private Cancellable primary;
+    private Cancellable secondary;
+    private ScheduledFuture<?> timer;
+    private int pending = 1;
+    private boolean done;
+
+    /**
+     * @param payload  the payload
+     * @param callback the callback receiving the winning outcome
+     */
+    Hedge(JsonRpcPayload payload, Callback callback) {
+      this.payload = payload;
+      this.callback = callback;
+    }
+
+    /**
+     * Send the payload, and schedule the duplicate.
+     */
+    void start() {
+      Cancellable exchange = delegate.enqueue(payload, new Attempt(false));
+      synchronized (this) {
+        primary = exchange;
+        if (done) {
+          return;
+        }
+        try {
+          timer = scheduler.schedule(this, getDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+          // Closed: no duplicate
+        }
+      }
+    }
+
+    /**
+     * Send the duplicate, if still useful and allowed by the budget.
+     */
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (done || !acquireToken()) {
+          return;
+        }
+        pending++;
+      }
+      hedges.incrementAndGet();
+      Cancellable exchange = delegate.enqueue(payload, new Attempt(true));
+      boolean late;
+      synchronized (this) {
+        secondary = exchange;
+        late = done;
+      }
+      if (late) {
+        exchange.cancel();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      Cancellable[] exchanges;
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+        exchanges = stop();
+      }
+      cancelAll(exchanges);
+      callback.onFailure(new IOException("Canceled"));
+    }
+
+    /**
+     * End the hedge. Must be called while holding its lock.
+     *
+     * @return the exchanges to cancel
+     */
+    private Cancellable[] stop() {
+      if (timer != null) {
+        timer.cancel(false);
+      }
+      return new Cancellable[]{primary, secondary};
+    }
+
+    /**
+     * @param exchanges the exchanges to cancel, possibly null
+     */
+    private void cancelAll(Cancellable... exchanges) {
+      for (Cancellable exchange : exchanges) {
+        if (exchange != null) {
+          exchange.cancel();
+        }
+      }
+    }
+
+    /**
+     * Receives the outcome of one of the exchanges.
+     */
+    private final class Attempt implements Callback {
+      private final boolean duplicate;
+
+      /**
+       * @param duplicate true if this is the hedge
+       */
+      Attempt(boolean duplicate) {
+        this.duplicate = duplicate;
+      }
+
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        Cancellable loser;
+        synchronized (Hedge.this) {
+          if (done) {
+            response.close();
+            return;
+          }
+          done = true;
+          stop();
+          loser = duplicate ? primary : secondary;
+        }
+        // Latency of the first exchange, cut short if the duplicate won
+        latencies.add(System.nanoTime() - start);
+        if (duplicate) {
+          hedgeWins.incrementAndGet();
+        }
+        cancelAll(loser);
+        callback.onResponse(response);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        synchronized (Hedge.this) {
+          if (done || --pending > 0) {
+            // Cancelled, or the other exchange may still succeed
+            return;
+          }
+          done = true;
+          stop();
+        }
+        callback.onFailure(ex);
+      }
+    }
+  }
+
+  /**
+   * The latencies of the last responses, to estimate percentiles.
+   */
+  private static final class LatencyWindow {
+    private static final int REFRESH = 64;
+
+    private final long[] samples = new long[1024];
+    private int count;
+    private int next;
+    private int sinceRefresh;
+    private long[] sorted;
+
+    /**
+     * @param latencyNanos a latency, in nanoseconds
+     */
+    synchronized void add(long latencyNanos) {
+      samples[next] = latencyNanos;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+      sinceRefresh++;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 1
+     * @return the estimated latency at the percentile, or -1 if too few responses were observed
+     */
+    synchronized long percentile(double percentile) {
+      if (count < MIN_SAMPLES) {
+        return -1;
+      }
+      if (sorted == null || sinceRefresh >= REFRESH) {
+        // Sorting on every call would cost more than the hedge saves
+        sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        sinceRefresh = 0;
+      }
+      return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+    }
+  }
+
+  public static class Builder {
+    private final JsonRpcTransport delegate;
+    private final Set<String> methods = new HashSet<String>();
+    private long delayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    private double percentile;
+    private double budgetRatio = 0.1;
+    private int budgetBurst = 10;
+
+    /**
+     * @param delegate the transport used for every exchange
+     */
+    private Builder(JsonRpcTransport delegate) {
+      if (delegate == null) {
+        throw new IllegalArgumentException("Delegate transport cannot be null");
+      }
+      this.delegate = delegate;
+    }
+
+    /**
+     * @param methods the methods which can safely be sent twice. Payloads with any other call are never hedged
+     * @return the builder
+     */
+    public Builder idempotent(String... methods) {
+      return idempotent(Arrays.asList(methods));
+    }
+
+    /**
+     * @param methods the methods which can safely be sent twice. Payloads with any other call are never hedged
+     * @return the builder
+     */
+    public Builder idempotent(Collection<String> methods) {
+      this.methods.addAll(methods);
+      return this;
+    }
+
+    /**
+     * @param delay the time without response after which a duplicate is sent. Defaults to 50ms.
+     *              Also used until enough latencies are observed, if the delay is a percentile
+     * @param unit  the time unit
+     * @return the builder
+     */
+    public Builder delay(long delay, TimeUnit unit) {
+      if (delay < 0) {
+        throw new IllegalArgumentException("Delay cannot be negative");
+      }
+      this.delayNanos = unit.toNanos(delay);
+      return this;
+    }
+
+    /**
+     * @param percentile send a duplicate once this percentile of the recent latencies is exceeded, e.g. 0.95
+     * @return the builder
+     */
+    public Builder delayPercentile(double percentile) {
+      if (percentile <= 0 || percentile >= 1) {
+        throw new IllegalArgumentException("Percentile must be between 0 and 1, exclusive");
+      }
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * @param ratio the maximum amount of duplicates per hedgeable payload on the long run. Defaults to 0.1
+     * @param burst the maximum amount of duplicates sent in a row, budget permitting. Defaults to 10
+     * @return the builder
+     */
+    public Builder budget(double ratio, int burst) {
+      if (ratio < 0 || burst < 1) {
+        throw new IllegalArgumentException("Ratio cannot be negative, and burst must be at least 1");
+      }
+      this.budgetRatio = ratio;
+      this.budgetBurst = burst;
+      return this;
+    }
+
+    /**
+     * @return the HedgingTransport
+     */
+    public HedgingTransport build() {
+      return new HedgingTransport(this);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.resourcepool.jarpic.transport;
+
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * This factory bridges the OkHttp events of the calls made by an HttpTransport to the JsonRpcEventListener
+ * of their payload: DNS, connect, TLS handshake, request sent, and first byte of the response.
+ * Install it on the OkHttpClient given to the HttpTransport:
+ * new OkHttpClient.Builder().eventListenerFactory(new HttpEventListenerFactory()).build()
+ * Calls whose payload has no listener, or not made by an HttpTransport, get no listener at all.
+ */
+public class HttpEventListenerFactory implements EventListener.Factory {
+
+  @Override
+  public EventListener create(Call call) {
+    JsonRpcEventListener listener = call.request().tag(JsonRpcEventListener.class);
+    if (listener == null || listener == JsonRpcEventListener.NONE) {
+      return EventListener.NONE;
+    }
+    return new Bridge(listener);
+  }
+
+  /**
+   * OkHttp listener forwarding the events of one call, timestamped.
+   */
+  private static final class Bridge extends EventListener {
+    private final JsonRpcEventListener listener;
+
+    /**
+     * @param listener the listener of the attempt
+     */
+    Bridge(JsonRpcEventListener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+      listener.dnsStart(System.nanoTime());
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+      listener.dnsEnd(System.nanoTime());
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      listener.connectStart(System.nanoTime());
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+      listener.secureConnectStart(System.nanoTime());
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+      listener.secureConnectEnd(System.nanoTime());
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+      listener.connectEnd(System.nanoTime(), null);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+      listener.connectEnd(System.nanoTime(), ioe);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      listener.connectionAcquired(System.nanoTime());
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+      listener.requestSent(System.nanoTime());
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+      listener.responseStart(System.nanoTime());
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package io.resourcepool.jarpic.transport;
+
+import io.resourcepool.jarpic.client.JsonRpcRequestBody;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.model.Error;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * This transport POSTs every payload to an HTTP endpoint with OkHttp.
+ * HTTP status codes of 300 and above are mapped to JSON RPC errors, 500 and above being server failures.
+ * A response without JSON content type is considered empty: if 200, we assume it was a notification.
+ */
+public class HttpTransport implements JsonRpcTransport {
+
+  private final OkHttpClient client;
+  private final String endpoint;
+
+  /**
+   * Construct a new HttpTransport.
+   *
+   * @param endpoint the target url endpoint
+   * @param client   the http client instance
+   */
+  public HttpTransport(String endpoint, OkHttpClient client) {
+    this.endpoint = endpoint;
+    this.client = client;
+  }
+
+  public OkHttpClient getClient() {
+    return client;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  @Override
+  public JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException {
+    return read(client.newCall(buildOkHttpRequest(payload)).execute());
+  }
+
+  @Override
+  public Cancellable enqueue(JsonRpcPayload payload, final Callback callback) {
+    final Call call = client.newCall(buildOkHttpRequest(payload));
+    call.enqueue(new okhttp3.Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        callback.onFailure(e);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        callback.onResponse(read(response));
+      }
+    });
+    return new Cancellable() {
+      @Override
+      public void cancel() {
+        call.cancel();
+      }
+    };
+  }
+
+  /**
+   * Build regular json-rpc http request.
+   *
+   * @param payload the payload
+   * @return the OkHttp request
+   */
+  private Request buildOkHttpRequest(JsonRpcPayload payload) {
+    // Every call is an attempt of its own, hedged calls included
+    JsonRpcEventListener attempt = payload.startAttempt();
+    return new Request.Builder()
+        .url(endpoint)
+        .post(new JsonRpcRequestBody(payload, attempt))
+        // Lets the HttpEventListenerFactory find the listener of the attempt
+        .tag(JsonRpcEventListener.class, attempt)
+        .build();
+  }
+
+  /**
+   * Map the OkHttp response to a transport response.
+   *
+   * @param response the OkHttp response
+   * @return the transport response
+   */
+  private static JsonRpcTransportResponse read(Response response) {
+    if (response.code() >= 500) {
+      response.close();
+      return JsonRpcTransportResponse.serverFailure(errorOf(response));
+    }
+    if (response.code() >= 300) {
+      response.close();
+      return JsonRpcTransportResponse.error(errorOf(response));
+    }
+    String contentType = response.header("content-type");
+    if (contentType != null && contentType.contains("application/json")) {
+      return JsonRpcTransportResponse.body(response.body().byteStream());
+    }
+    // No JSON response. If 200, we assume it was a notification.
+    response.close();
+    return JsonRpcTransportResponse.empty();
+  }
+
+  /**
+   * Build Error depending on statuscode.
+   *
+   * @param response the OkHttp response
+   * @return the JSON RPC error
+   */
+  private static Error errorOf(Response response) {
+    if (response.code() == 400) {
+      return new Error(-32602, "Invalid params", null);
+    } else if (response.code() == 404) {
+      return new Error(-32601, "Method not found", null);
+    }
+    return new Error(-32000, Integer.toString(response.code()) + " - " + response.message(), null);
+  }
+}
@@ -0,0 +1,200 @@
+package io.resourcepool.jarpic.transport;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.resourcepool.jarpic.codec.JsonRpcCodec;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.parser.RequestMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds what a transport has to send: one JsonRpcRequest, or a batch of them.
+ * The payload is encoded on demand, straight into the stream of the transport.
+ * Encoding is compact: the JSON holds no line break, unless some raw params contain one.
+ * The bytes written are counted, over every time the payload is sent (e.g. retries or hedged attempts).
+ */
+public final class JsonRpcPayload {
+
+  private final JsonRpcCodec codec;
+  private final JsonRpcRequest request;
+  private final List<JsonRpcRequest> requests;
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicInteger attempts = new AtomicInteger();
+  private volatile JsonRpcEventListener eventListener = JsonRpcEventListener.NONE;
+
+  /**
+   * Construct a new payload for a single request.
+   *
+   * @param codec   the codec used to create the JSON generator
+   * @param request the JsonRpcRequest
+   */
+  public JsonRpcPayload(JsonRpcCodec codec, JsonRpcRequest request) {
+    this.codec = codec;
+    this.request = request;
+    this.requests = Collections.singletonList(request);
+  }
+
+  /**
+   * Construct a new payload for a batch of requests.
+   *
+   * @param codec    the codec used to create the JSON generator
+   * @param requests the list of JsonRpcRequest objects
+   */
+  public JsonRpcPayload(JsonRpcCodec codec, List<JsonRpcRequest> requests) {
+    this.codec = codec;
+    this.request = null;
+    this.requests = requests;
+  }
+
+  public JsonRpcCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * @return the listener notified of the phases of the exchange, NONE by default
+   */
+  public JsonRpcEventListener getEventListener() {
+    return eventListener;
+  }
+
+  /**
+   * @param eventListener the listener notified of the phases of the exchange
+   */
+  public void setEventListener(JsonRpcEventListener eventListener) {
+    if (eventListener == null) {
+      throw new IllegalArgumentException("Event listener cannot be null");
+    }
+    this.eventListener = eventListener;
+  }
+
+  /**
+   * Start a new attempt at sending the payload.
+   *
+   * @return the listener of the attempt, or NONE
+   */
+  public JsonRpcEventListener startAttempt() {
+    JsonRpcEventListener listener = eventListener;
+    if (listener == JsonRpcEventListener.NONE) {
+      return listener;
+    }
+    return listener.attempt(attempts.getAndIncrement());
+  }
+
+  /**
+   * @return true if the payload is sent as a JSON array
+   */
+  public boolean isBatch() {
+    return request == null;
+  }
+
+  /**
+   * @return the requests of the payload. A single request is returned as a one element list
+   */
+  public List<JsonRpcRequest> getRequests() {
+    return requests;
+  }
+
+  /**
+   * @return true if at least one of the requests is not a notification
+   */
+  public boolean expectsResponse() {
+    for (JsonRpcRequest req : requests) {
+      if (req.getId() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the amount of bytes written by every call to writeTo so far
+   */
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  /**
+   * Encode the payload into the provided stream, as a new attempt. The stream is neither flushed nor closed.
+   *
+   * @param out the target stream
+   * @throws IOException if an error occurs while writing
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    writeTo(out, startAttempt());
+  }
+
+  /**
+   * Encode the payload into the provided stream. The stream is neither flushed nor closed.
+   *
+   * @param out      the target stream
+   * @param listener the listener of the attempt (see startAttempt), or NONE
+   * @throws IOException if an error occurs while writing
+   */
+  public void writeTo(OutputStream out, JsonRpcEventListener listener) throws IOException {
+    if (listener != JsonRpcEventListener.NONE) {
+      listener.writeStart(System.nanoTime());
+    }
+    CountingOutputStream counting = new CountingOutputStream(out);
+    JsonGenerator gen = codec.getFactory().createGenerator(counting, JsonEncoding.UTF8);
+    // The stream belongs to the transport
+    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    try {
+      if (request == null) {
+        RequestMapper.write(gen, requests);
+      } else {
+        RequestMapper.write(gen, request);
+      }
+    } finally {
+      gen.close();
+      bytesWritten.addAndGet(counting.count);
+      if (listener != JsonRpcEventListener.NONE) {
+        listener.writeEnd(System.nanoTime(), counting.count);
+      }
+    }
+  }
+
+  /**
+   * Stream counting the bytes written through it. The generator writes whole buffers, so counting costs little.
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+    private long count;
+
+    /**
+     * @param out the target stream
+     */
+    CountingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
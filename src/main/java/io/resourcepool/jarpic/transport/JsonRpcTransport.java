@@ -0,0 +1,59 @@
+package io.resourcepool.jarpic.transport;
+
+import java.io.IOException;
+
+/**
+ * This interface carries encoded JSON RPC payloads to a server, and hands back what was received.
+ * It knows nothing about the JSON RPC protocol beyond framing: encoding, parsing and mapping to JsonRpcResponses
+ * are done by the protocol layer (see TransportJsonRpcClient).
+ * Implementations must be thread-safe.
+ */
+public interface JsonRpcTransport {
+
+  /**
+   * Send a payload and wait for what is received in return.
+   *
+   * @param payload the payload
+   * @return the transport response
+   * @throws IOException if the payload could not be sent, or nothing was received
+   */
+  JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException;
+
+  /**
+   * Send a payload asynchronously.
+   *
+   * @param payload  the payload
+   * @param callback the callback receiving the transport response
+   * @return a handle to cancel the exchange
+   */
+  Cancellable enqueue(JsonRpcPayload payload, Callback callback);
+
+  /**
+   * Receives the outcome of an asynchronous exchange. Exactly one of the methods is called, once.
+   */
+  interface Callback {
+    /**
+     * Called when the transport received a response.
+     *
+     * @param response the transport response
+     */
+    void onResponse(JsonRpcTransportResponse response);
+
+    /**
+     * Called when the exchange failed.
+     *
+     * @param ex the exception
+     */
+    void onFailure(IOException ex);
+  }
+
+  /**
+   * Handle on an asynchronous exchange.
+   */
+  interface Cancellable {
+    /**
+     * Cancel the exchange if still running. The callback then receives a failure, if it did not complete already.
+     */
+    void cancel();
+  }
+}
@@ -0,0 +1,104 @@
+package io.resourcepool.jarpic.transport;
+
+import io.resourcepool.jarpic.model.Error;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class holds what a transport received for a payload. It is one of:
+ * - a JSON body, to be parsed by the protocol layer. Reading it to the end, or closing it, releases it.
+ * - an error, when the transport itself rejected the payload (e.g. HTTP status code). It applies to every request.
+ * When the server itself failed (e.g. HTTP 5xx), the error is flagged as a server failure: another replica may succeed.
+ * - nothing, when no response is expected or none was returned (notifications).
+ */
+public final class JsonRpcTransportResponse {
+
+  private static final JsonRpcTransportResponse EMPTY = new JsonRpcTransportResponse(null, null, false);
+
+  private final InputStream body;
+  private final Error error;
+  private final boolean serverFailure;
+
+  /**
+   * @param body          the JSON body
+   * @param error         the transport error
+   * @param serverFailure true if the error comes from a failing server
+   */
+  private JsonRpcTransportResponse(InputStream body, Error error, boolean serverFailure) {
+    this.body = body;
+    this.error = error;
+    this.serverFailure = serverFailure;
+  }
+
+  /**
+   * @param body the JSON body
+   * @return a response holding the body
+   */
+  public static JsonRpcTransportResponse body(InputStream body) {
+    if (body == null) {
+      throw new IllegalArgumentException("Body cannot be null");
+    }
+    return new JsonRpcTransportResponse(body, null, false);
+  }
+
+  /**
+   * @param error the error applying to every request of the payload
+   * @return a response holding the error
+   */
+  public static JsonRpcTransportResponse error(Error error) {
+    if (error == null) {
+      throw new IllegalArgumentException("Error cannot be null");
+    }
+    return new JsonRpcTransportResponse(null, error, false);
+  }
+
+  /**
+   * @param error the error applying to every request of the payload
+   * @return a response holding the error, flagged as a failure of the server
+   */
+  public static JsonRpcTransportResponse serverFailure(Error error) {
+    if (error == null) {
+      throw new IllegalArgumentException("Error cannot be null");
+    }
+    return new JsonRpcTransportResponse(null, error, true);
+  }
+
+  /**
+   * @return a response holding nothing
+   */
+  public static JsonRpcTransportResponse empty() {
+    return EMPTY;
+  }
+
+  @Nullable
+  public InputStream getBody() {
+    return body;
+  }
+
+  @Nullable
+  public Error getError() {
+    return error;
+  }
+
+  /**
+   * @return true if the server failed to handle the payload, rather than rejected it
+   */
+  public boolean isServerFailure() {
+    return serverFailure;
+  }
+
+  /**
+   * Release the body without reading it.
+   */
+  public void close() {
+    if (body != null) {
+      try {
+        body.close();
+      } catch (IOException e) {
+        // Nothing left to release
+      }
+    }
+  }
+}
@@ -0,0 +1,409 @@
+package io.resourcepool.jarpic.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This transport bounds the amount of exchanges in flight through its delegate, typically one endpoint,
+ * with a limit adapted from the measured round-trip times (see ConcurrencyLimits).
+ * Payloads beyond the limit wait in a bounded queue for at most a given time, or are refused at once:
+ * they fail with a ConcurrencyLimitExceededException instead of piling up in OkHttp's unbounded queue.
+ * I/O failures, timeouts and server failures (HTTP 5xx) count as drops, which make the limit shrink.
+ */
+public class LimitingTransport implements JsonRpcTransport, Closeable {
+
+  private final JsonRpcTransport delegate;
+  private final ConcurrencyLimit limit;
+  private final int maxQueue;
+  private final long queueTimeoutNanos;
+  private final ArrayDeque<Waiter> queue = new ArrayDeque<Waiter>();
+  private final ScheduledExecutorService scheduler;
+  private final AtomicLong rejected = new AtomicLong();
+  private int inFlight;
+  private boolean closed;
+
+  /**
+   * Construct a new LimitingTransport.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private LimitingTransport(Builder builder) {
+    this.delegate = builder.delegate;
+    this.limit = builder.limit;
+    this.maxQueue = builder.maxQueue;
+    this.queueTimeoutNanos = builder.queueTimeoutNanos;
+    this.scheduler = maxQueue == 0 ? null : Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "jarpic-limiter");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * @param delegate the transport whose exchanges are limited
+   * @return a new Builder
+   */
+  public static Builder builder(JsonRpcTransport delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException {
+    int sentWith = acquire();
+    long start = System.nanoTime();
+    JsonRpcTransportResponse response;
+    try {
+      response = delegate.execute(payload);
+    } catch (IOException e) {
+      release(start, sentWith, true);
+      throw e;
+    } catch (RuntimeException e) {
+      release(start, sentWith, true);
+      throw e;
+    }
+    release(start, sentWith, response.isServerFailure());
+    return response;
+  }
+
+  @Override
+  public Cancellable enqueue(JsonRpcPayload payload, Callback callback) {
+    Waiter waiter = new Waiter(payload, callback);
+    boolean send;
+    synchronized (this) {
+      send = !closed && inFlight < limit.getLimit() && queue.isEmpty();
+      if (send) {
+        waiter.sentWith = ++inFlight;
+      } else if (!closed && queue.size() < maxQueue) {
+        queue.add(waiter);
+        waiter.timer = scheduler.schedule(new Expire(waiter), queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        return waiter;
+      }
+    }
+    if (send) {
+      waiter.send();
+    } else {
+      callback.onFailure(reject());
+    }
+    return waiter;
+  }
+
+  /**
+   * @return the current concurrency limit
+   */
+  public int getLimit() {
+    return limit.getLimit();
+  }
+
+  /**
+   * @return the amount of exchanges in flight
+   */
+  public synchronized int getInFlightCount() {
+    return inFlight;
+  }
+
+  /**
+   * @return the amount of payloads waiting for a slot
+   */
+  public synchronized int getQueuedCount() {
+    return queue.size();
+  }
+
+  /**
+   * @return the amount of payloads refused since creation
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Stop the queue timer. Payloads waiting asynchronously are refused, synchronous callers wait until their timeout.
+   * Payloads sent afterwards are refused as well.
+   */
+  @Override
+  public void close() {
+    List<Waiter> waiting = new ArrayList<Waiter>();
+    synchronized (this) {
+      closed = true;
+      for (Waiter waiter : queue) {
+        if (waiter.callback != null) {
+          waiting.add(waiter);
+        }
+      }
+      queue.removeAll(waiting);
+    }
+    for (Waiter waiter : waiting) {
+      waiter.callback.onFailure(reject());
+    }
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Take a slot for a synchronous exchange, waiting in the queue if allowed.
+   *
+   * @return the amount of exchanges in flight, this one included
+   * @throws IOException if no slot was available in time
+   */
+  private int acquire() throws IOException {
+    Waiter waiter;
+    synchronized (this) {
+      if (closed) {
+        waiter = null;
+      } else if (inFlight < limit.getLimit() && queue.isEmpty()) {
+        return ++inFlight;
+      } else if (queue.size() >= maxQueue) {
+        waiter = null;
+      } else {
+        waiter = new Waiter(null, null);
+        queue.add(waiter);
+      }
+    }
+    if (waiter == null) {
+      throw reject();
+    }
+    synchronized (waiter) {
+      long deadline = System.nanoTime() + queueTimeoutNanos;
+      try {
+        while (waiter.sentWith == 0) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            break;
+          }
+          TimeUnit.NANOSECONDS.timedWait(waiter, remaining);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (!withdraw(waiter)) {
+          // Granted meanwhile: give the slot back
+          releaseSlot();
+        }
+        throw new InterruptedIOException("Interrupted while waiting for a slot");
+      }
+    }
+    if (waiter.sentWith == 0 && withdraw(waiter)) {
+      throw reject();
+    }
+    return waiter.sentWith;
+  }
+
+  /**
+   * Remove a waiter from the queue.
+   *
+   * @param waiter the waiter
+   * @return true if it was still waiting
+   */
+  private synchronized boolean withdraw(Waiter waiter) {
+    return queue.remove(waiter);
+  }
+
+  /**
+   * @return a new rejection, counted
+   */
+  private ConcurrencyLimitExceededException reject() {
+    rejected.incrementAndGet();
+    int current = limit.getLimit();
+    return new ConcurrencyLimitExceededException("Concurrency limit of " + current + " exchanges exceeded", current);
+  }
+
+  /**
+   * Record the end of an exchange and hand its slot over.
+   *
+   * @param start    the start nanoTime
+   * @param sentWith the amount of exchanges in flight when it was sent
+   * @param dropped  true if the exchange failed
+   */
+  private void release(long start, int sentWith, boolean dropped) {
+    limit.onSample(System.nanoTime() - start, sentWith, dropped);
+    releaseSlot();
+  }
+
+  /**
+   * Free a slot, and grant the freed slots to waiting payloads.
+   */
+  private void releaseSlot() {
+    List<Waiter> granted = new ArrayList<Waiter>(1);
+    synchronized (this) {
+      inFlight--;
+      while (!queue.isEmpty() && inFlight < limit.getLimit()) {
+        Waiter waiter = queue.poll();
+        waiter.sentWith = ++inFlight;
+        granted.add(waiter);
+      }
+    }
+    for (Waiter waiter : granted) {
+      waiter.grant();
+    }
+  }
+
+  /**
+   * A payload, sent or waiting for a slot. Synchronous waiters have no payload: they only wait to be notified.
+   */
+  private final class Waiter implements Cancellable {
+    private final JsonRpcPayload payload;
+    private final Callback callback;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile int sentWith;
+    private volatile Cancellable exchange;
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param payload  the payload
+     * @param callback the callback of the caller
+     */
+    Waiter(JsonRpcPayload payload, Callback callback) {
+      this.payload = payload;
+      this.callback = callback;
+    }
+
+    /**
+     * Called once a slot was taken for this waiter.
+     */
+    void grant() {
+      if (payload == null) {
+        synchronized (this) {
+          notifyAll();
+        }
+        return;
+      }
+      if (timer != null) {
+        timer.cancel(false);
+      }
+      send();
+    }
+
+    /**
+     * Send the payload through the delegate, within the slot taken.
+     */
+    void send() {
+      final long start = System.nanoTime();
+      exchange = delegate.enqueue(payload, new Callback() {
+        @Override
+        public void onResponse(JsonRpcTransportResponse response) {
+          release(start, sentWith, response.isServerFailure());
+          callback.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(IOException ex) {
+          if (cancelled.get()) {
+            // Says nothing about the server
+            releaseSlot();
+          } else {
+            release(start, sentWith, true);
+          }
+          callback.onFailure(ex);
+        }
+      });
+      if (cancelled.get()) {
+        exchange.cancel();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (!cancelled.compareAndSet(false, true)) {
+        return;
+      }
+      if (withdraw(this)) {
+        if (timer != null) {
+          timer.cancel(false);
+        }
+        callback.onFailure(new IOException("Canceled"));
+        return;
+      }
+      Cancellable sent = exchange;
+      if (sent != null) {
+        sent.cancel();
+      }
+    }
+  }
+
+  /**
+   * Timer task refusing a payload which waited too long.
+   */
+  private final class Expire implements Runnable {
+    private final Waiter waiter;
+
+    /**
+     * @param waiter the waiter
+     */
+    Expire(Waiter waiter) {
+      this.waiter = waiter;
+    }
+
+    @Override
+    public void run() {
+      if (withdraw(waiter)) {
+        waiter.callback.onFailure(reject());
+      }
+    }
+  }
+
+  public static class Builder {
+    private final JsonRpcTransport delegate;
+    private ConcurrencyLimit limit = ConcurrencyLimits.gradient(20, 200);
+    private int maxQueue;
+    private long queueTimeoutNanos;
+
+    /**
+     * @param delegate the transport whose exchanges are limited
+     */
+    private Builder(JsonRpcTransport delegate) {
+      if (delegate == null) {
+        throw new IllegalArgumentException("Delegate transport cannot be null");
+      }
+      this.delegate = delegate;
+    }
+
+    /**
+     * @param limit the limit algorithm. Defaults to ConcurrencyLimits.gradient(20, 200)
+     * @return the builder
+     */
+    public Builder limit(ConcurrencyLimit limit) {
+      if (limit == null) {
+        throw new IllegalArgumentException("Limit cannot be null");
+      }
+      this.limit = limit;
+      return this;
+    }
+
+    /**
+     * Let payloads beyond the limit wait for a slot. By default they are refused at once.
+     *
+     * @param maxQueue the maximum amount of waiting payloads
+     * @param timeout  the maximum time a payload waits before being refused
+     * @param unit     the time unit
+     * @return the builder
+     */
+    public Builder queue(int maxQueue, long timeout, TimeUnit unit) {
+      if (maxQueue < 0 || timeout < 0) {
+        throw new IllegalArgumentException("Queue size and timeout cannot be negative");
+      }
+      this.maxQueue = maxQueue;
+      this.queueTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @return the LimitingTransport
+     */
+    public LimitingTransport build() {
+      return new LimitingTransport(this);
+    }
+  }
+}
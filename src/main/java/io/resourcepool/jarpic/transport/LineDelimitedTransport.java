@@ -0,0 +1,574 @@
+package io.resourcepool.jarpic.transport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This transport speaks newline-delimited JSON over one stream socket connection, as many JSON RPC daemons do.
+ * Subclasses only open the socket: TCP, or Unix domain sockets on recent JDKs.
+ * Each payload is written as one line. Payloads are pipelined: many can be in flight at once,
+ * and each received line is matched back to its payload by id, whatever the order.
+ * All reads and writes run on one non-blocking selector thread per connection.
+ * The selector thread also enforces timeouts, sweeping the pending table every tenth of the timeout while payloads are in flight.
+ * The connection is opened on first use, and opened again by the first payload following a disconnection.
+ * Callbacks run on the selector thread, so they must not block. Exceptions they throw are ignored.
+ * A received line longer than the maximum line size fails the connection, as the peer is not speaking the protocol.
+ * Raw params containing line breaks would break the framing and must not be used with this transport.
+ */
+public abstract class LineDelimitedTransport implements JsonRpcTransport, Closeable {
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int DEFAULT_MAX_LINE_SIZE = 16 * 1024 * 1024;
+  private static final long MIN_SWEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long MAX_SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final long timeoutNanos;
+  private final long sweepNanos;
+  private final int maxLineSize;
+  private Connection connection;
+  private boolean closed;
+
+  /**
+   * Construct a new LineDelimitedTransport.
+   *
+   * @param timeoutNanos the maximum time to wait for a response, in nanoseconds
+   */
+  protected LineDelimitedTransport(long timeoutNanos) {
+    this(timeoutNanos, DEFAULT_MAX_LINE_SIZE);
+  }
+
+  /**
+   * Construct a new LineDelimitedTransport.
+   *
+   * @param timeoutNanos the maximum time to wait for a response, in nanoseconds
+   * @param maxLineSize  the maximum size of a received line, in bytes
+   */
+  protected LineDelimitedTransport(long timeoutNanos, int maxLineSize) {
+    if (timeoutNanos <= 0) {
+      throw new IllegalArgumentException("Timeout must be positive");
+    }
+    if (maxLineSize <= 0) {
+      throw new IllegalArgumentException("Max line size must be positive");
+    }
+    this.timeoutNanos = timeoutNanos;
+    this.maxLineSize = maxLineSize;
+    this.sweepNanos = Math.min(Math.max(timeoutNanos / 10, MIN_SWEEP_NANOS), MAX_SWEEP_NANOS);
+  }
+
+  /**
+   * Open a new connection to the server. Called on first use, and after every disconnection.
+   *
+   * @return a connected channel, in blocking mode
+   * @throws IOException if the connection could not be opened
+   */
+  protected abstract SocketChannel openChannel() throws IOException;
+
+  @Override
+  public JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException {
+    final JsonRpcFuture<JsonRpcTransportResponse> future = new JsonRpcFuture<JsonRpcTransportResponse>();
+    Cancellable call = enqueue(payload, new Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        future.complete(response);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        future.fail(ex);
+      }
+    });
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      call.cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for JSON RPC response");
+    } catch (ExecutionException e) {
+      throw (IOException) e.getCause();
+    }
+  }
+
+  @Override
+  public Cancellable enqueue(JsonRpcPayload payload, Callback callback) {
+    Pending call = new Pending(payload, callback);
+    ByteBuffer frame;
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+      payload.writeTo(out);
+      out.write('\n');
+      frame = ByteBuffer.wrap(out.toByteArray());
+    } catch (IOException e) {
+      call.fail(e);
+      return call;
+    }
+    Connection current;
+    try {
+      current = connect();
+    } catch (IOException e) {
+      call.fail(e);
+      return call;
+    }
+    if (current.register(call)) {
+      current.write(frame);
+      if (call.keys.isEmpty()) {
+        // Notifications only: no response expected
+        call.complete(JsonRpcTransportResponse.empty());
+      }
+    }
+    return call;
+  }
+
+  /**
+   * Close the connection, and fail every pending payload.
+   */
+  @Override
+  public void close() {
+    Connection current;
+    synchronized (this) {
+      closed = true;
+      current = connection;
+      connection = null;
+    }
+    if (current != null) {
+      current.fail(new IOException("Transport is closed"));
+    }
+  }
+
+  /**
+   * @return the amount of payloads waiting for their response
+   */
+  public int getPendingCount() {
+    Connection current;
+    synchronized (this) {
+      current = connection;
+    }
+    return current == null ? 0 : current.pending.size();
+  }
+
+  /**
+   * @return the current connection, opened if needed
+   * @throws IOException if the transport is closed, or the connection could not be opened
+   */
+  private synchronized Connection connect() throws IOException {
+    if (closed) {
+      throw new IOException("Transport is closed");
+    }
+    if (connection == null) {
+      Connection opened = new Connection(openChannel());
+      Thread thread = new Thread(opened, "jarpic-transport " + this);
+      thread.setDaemon(true);
+      thread.start();
+      connection = opened;
+    }
+    return connection;
+  }
+
+  /**
+   * Forget a lost connection, so that the next payload opens a new one.
+   *
+   * @param lost the lost connection
+   */
+  private synchronized void disconnected(Connection lost) {
+    if (connection == lost) {
+      connection = null;
+    }
+  }
+
+  /**
+   * @param req the request
+   * @return the key of the request id in the pending table
+   */
+  private static Object keyOf(JsonRpcRequest req) {
+    return req.isNumericId() ? Long.valueOf(req.getNumericId()) : req.getId();
+  }
+
+  /**
+   * Find the id a received line answers: the id of the response, or the first id found in a response array.
+   *
+   * @param line the received line
+   * @return the key of the id in the pending table, or null if none
+   */
+  private static Object keyOf(byte[] line) {
+    try {
+      JsonParser parser = FACTORY.createParser(line);
+      try {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+          return readId(parser);
+        }
+        if (token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Object id = readId(parser);
+            if (id != null) {
+              return id;
+            }
+          }
+        }
+        return null;
+      } finally {
+        parser.close();
+      }
+    } catch (IOException e) {
+      // Not JSON: no way to tell which payload it answers
+      return null;
+    }
+  }
+
+  /**
+   * Read an object up to its end, looking for its id. Parser must be positioned on the START_OBJECT token.
+   *
+   * @param parser the JSON parser
+   * @return the key of the id, or null if none
+   * @throws IOException if the line is not valid JSON
+   */
+  private static Object readId(JsonParser parser) throws IOException {
+    Object id = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if ("id".equals(name) && value == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+        id = Long.valueOf(parser.getLongValue());
+      } else if ("id".equals(name) && value == JsonToken.VALUE_STRING) {
+        id = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return id;
+  }
+
+  /**
+   * One TCP connection, with its selector loop and the payloads waiting for a response on it.
+   */
+  private class Connection implements Runnable {
+    private final ConcurrentMap<Object, Pending> pending = new ConcurrentHashMap<Object, Pending>();
+    private final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private volatile boolean lost;
+
+    /**
+     * Switch the connected channel to non-blocking mode, for the selector loop.
+     *
+     * @param opened the connected channel
+     * @throws IOException if the channel could not be registered
+     */
+    Connection(SocketChannel opened) throws IOException {
+      Selector sel = null;
+      try {
+        opened.configureBlocking(false);
+        sel = Selector.open();
+        this.key = opened.register(sel, SelectionKey.OP_READ);
+      } catch (IOException e) {
+        closeQuietly(sel);
+        closeQuietly(opened);
+        throw e;
+      }
+      this.channel = opened;
+      this.selector = sel;
+    }
+
+    /**
+     * Register a payload under every id it expects a response for.
+     *
+     * @param call the pending payload
+     * @return true if registered, false if it has been failed instead
+     */
+    boolean register(Pending call) {
+      call.deadline = System.nanoTime() + timeoutNanos;
+      for (int i = 0; i < call.keys.size(); i++) {
+        if (pending.putIfAbsent(call.keys.get(i), call) != null) {
+          for (int j = 0; j < i; j++) {
+            pending.remove(call.keys.get(j), call);
+          }
+          call.fail(new IOException("A call with id " + call.keys.get(i) + " is already in flight"));
+          return false;
+        }
+      }
+      call.connection = this;
+      if (lost) {
+        // Lost while registering: the failure sweep may have missed this payload
+        unregister(call);
+        call.fail(new IOException("Connection lost"));
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Fail the payloads past their deadline.
+     *
+     * @param now the current System.nanoTime()
+     */
+    void expire(long now) {
+      for (Pending call : pending.values()) {
+        if (now - call.deadline >= 0) {
+          unregister(call);
+          call.fail(new SocketTimeoutException("No response received in time"));
+        }
+      }
+    }
+
+    /**
+     * Remove a payload from the pending table.
+     *
+     * @param call the pending payload
+     */
+    void unregister(Pending call) {
+      for (Object k : call.keys) {
+        pending.remove(k, call);
+      }
+    }
+
+    /**
+     * Queue a frame for the selector thread.
+     *
+     * @param frame the encoded line
+     */
+    void write(ByteBuffer frame) {
+      writes.offer(frame);
+      if (!lost) {
+        selector.wakeup();
+      }
+    }
+
+    /**
+     * Fail every pending payload, and stop the selector loop.
+     *
+     * @param ex the failure
+     */
+    void fail(IOException ex) {
+      lost = true;
+      disconnected(this);
+      selector.wakeup();
+      for (Pending call : pending.values()) {
+        unregister(call);
+        call.fail(ex);
+      }
+    }
+
+    @Override
+    public void run() {
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+      ByteArrayOutputStream line = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+      long sweepMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(sweepNanos));
+      long nextSweep = System.nanoTime() + sweepNanos;
+      try {
+        while (!lost) {
+          if (!writes.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+          }
+          // Payloads are registered before their frame is queued, and queuing wakes the selector up
+          selector.select(pending.isEmpty() ? 0 : sweepMillis);
+          long now = System.nanoTime();
+          if (now - nextSweep >= 0) {
+            expire(now);
+            nextSweep = now + sweepNanos;
+          }
+          if (lost || !selector.selectedKeys().remove(key)) {
+            continue;
+          }
+          if (key.isWritable()) {
+            flush();
+          }
+          if (key.isReadable()) {
+            read(buffer, line);
+          }
+        }
+      } catch (IOException e) {
+        fail(e);
+      } catch (RuntimeException e) {
+        // Never leave pending payloads behind a dead loop
+        fail(new IOException("Selector loop failed: " + e.getMessage(), e));
+      } finally {
+        closeQuietly(selector);
+        closeQuietly(channel);
+      }
+    }
+
+    /**
+     * Write as many queued frames as the socket accepts.
+     *
+     * @throws IOException if the connection is lost
+     */
+    private void flush() throws IOException {
+      ByteBuffer frame;
+      while ((frame = writes.peek()) != null) {
+        channel.write(frame);
+        if (frame.hasRemaining()) {
+          // Socket buffer is full: wait for the next write readiness
+          return;
+        }
+        writes.poll();
+      }
+      key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Read what is available, and dispatch every complete line.
+     *
+     * @param buffer the read buffer
+     * @param line   the bytes of the current, incomplete line
+     * @throws IOException if the connection is lost
+     */
+    private void read(ByteBuffer buffer, ByteArrayOutputStream line) throws IOException {
+      int read = channel.read(buffer);
+      if (read < 0) {
+        throw new EOFException("Connection closed by server");
+      }
+      byte[] bytes = buffer.array();
+      int start = 0;
+      for (int i = 0; i < read; i++) {
+        if (bytes[i] == '\n') {
+          line.write(bytes, start, i - start);
+          dispatch(line.toByteArray());
+          line.reset();
+          start = i + 1;
+        }
+      }
+      line.write(bytes, start, read - start);
+      buffer.clear();
+      if (line.size() > maxLineSize) {
+        throw new IOException("Received line exceeds " + maxLineSize + " bytes");
+      }
+    }
+
+    /**
+     * Hand out a received line to the payload it answers.
+     *
+     * @param received the received line, without its line break
+     */
+    private void dispatch(byte[] received) {
+      Object id = keyOf(received);
+      Pending call = id == null ? null : pending.get(id);
+      if (call == null) {
+        // Unknown, timed out, blank, or server level error without id
+        return;
+      }
+      unregister(call);
+      call.complete(JsonRpcTransportResponse.body(new ByteArrayInputStream(received)));
+    }
+  }
+
+  /**
+   * @param closeable the resource to close, or null
+   */
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Nothing left to release
+      }
+    }
+  }
+
+  /**
+   * A payload waiting for its response.
+   */
+  private static class Pending implements Cancellable {
+    private final Callback callback;
+    private final List<Object> keys;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private volatile Connection connection;
+    /**
+     * System.nanoTime() past which the payload times out. Set before registration, which publishes it to the selector thread.
+     */
+    private long deadline;
+
+    /**
+     * @param payload  the payload
+     * @param callback the callback receiving the outcome
+     */
+    Pending(JsonRpcPayload payload, Callback callback) {
+      this.callback = callback;
+      this.keys = new ArrayList<Object>(payload.getRequests().size());
+      for (JsonRpcRequest req : payload.getRequests()) {
+        if (req.getId() != null) {
+          keys.add(keyOf(req));
+        }
+      }
+    }
+
+    /**
+     * @return true if this call completed the pending payload
+     */
+    private boolean finish() {
+      return done.compareAndSet(false, true);
+    }
+
+    /**
+     * Complete with a response.
+     *
+     * @param response the transport response
+     */
+    void complete(JsonRpcTransportResponse response) {
+      if (finish()) {
+        try {
+          callback.onResponse(response);
+        } catch (RuntimeException e) {
+          // The caller got its response: its own failure must not reach the selector loop
+        }
+      }
+    }
+
+    /**
+     * Complete with a failure.
+     *
+     * @param ex the failure
+     */
+    void fail(IOException ex) {
+      if (finish()) {
+        try {
+          callback.onFailure(ex);
+        } catch (RuntimeException e) {
+          // The caller got its failure: its own failure must not reach the selector loop
+        }
+      }
+    }
+
+    /**
+     * Remove from the pending table, and complete with a failure.
+     *
+     * @param ex the failure
+     */
+    void abort(IOException ex) {
+      Connection c = connection;
+      if (c != null) {
+        c.unregister(this);
+      }
+      fail(ex);
+    }
+
+    @Override
+    public void cancel() {
+      abort(new IOException("Canceled"));
+    }
+  }
+}
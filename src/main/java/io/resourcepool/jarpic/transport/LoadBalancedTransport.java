@@ -0,0 +1,306 @@
+package io.resourcepool.jarpic.transport;
+
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This transport spreads payloads over replicas of the same service, each reached through its own transport.
+ * Every payload, batches included, goes as a unit to one replica, chosen by power of two choices:
+ * two replicas are drawn at random and the one with the lowest cost is used. The cost is the
+ * exponentially weighted moving average of its latency, multiplied by its amount of payloads in flight.
+ * Replicas failing several times in a row (I/O failure, or server failure such as HTTP 5xx) are ejected
+ * for a while, then tried again. If every replica is ejected, all of them are used anyway.
+ * Payloads are never retried: JSON RPC calls are not assumed to be idempotent.
+ */
+public class LoadBalancedTransport implements JsonRpcTransport {
+
+  private final Replica[] replicas;
+  private final int maxFailures;
+  private final long ejectionNanos;
+  private final long decayNanos;
+  private final Random random = new Random();
+
+  /**
+   * Construct a new LoadBalancedTransport.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private LoadBalancedTransport(Builder builder) {
+    this.replicas = new Replica[builder.transports.size()];
+    for (int i = 0; i < replicas.length; i++) {
+      replicas[i] = new Replica(builder.transports.get(i));
+    }
+    this.maxFailures = builder.maxFailures;
+    this.ejectionNanos = builder.ejectionNanos;
+    this.decayNanos = builder.decayNanos;
+  }
+
+  /**
+   * @param transports the transports to the replicas
+   * @return a new Builder
+   */
+  public static Builder builder(List<? extends JsonRpcTransport> transports) {
+    return new Builder(transports);
+  }
+
+  /**
+   * @param endpoints the url endpoints of the replicas
+   * @param client    the http client instance, shared by every replica
+   * @return a new Builder, over one HttpTransport per endpoint
+   */
+  public static Builder http(List<String> endpoints, OkHttpClient client) {
+    List<JsonRpcTransport> transports = new ArrayList<JsonRpcTransport>(endpoints.size());
+    for (String endpoint : endpoints) {
+      transports.add(new HttpTransport(endpoint, client));
+    }
+    return new Builder(transports);
+  }
+
+  @Override
+  public JsonRpcTransportResponse execute(JsonRpcPayload payload) throws IOException {
+    Replica replica = select();
+    long start = replica.start();
+    JsonRpcTransportResponse response;
+    try {
+      response = replica.transport.execute(payload);
+    } catch (IOException e) {
+      replica.end(start, false);
+      throw e;
+    } catch (RuntimeException e) {
+      replica.end(start, false);
+      throw e;
+    }
+    replica.end(start, !response.isServerFailure());
+    return response;
+  }
+
+  @Override
+  public Cancellable enqueue(JsonRpcPayload payload, final Callback callback) {
+    final Replica replica = select();
+    final long start = replica.start();
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final Cancellable exchange = replica.transport.enqueue(payload, new Callback() {
+      @Override
+      public void onResponse(JsonRpcTransportResponse response) {
+        replica.end(start, !response.isServerFailure());
+        callback.onResponse(response);
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        if (cancelled.get()) {
+          // Not the fault of the replica
+          replica.release();
+        } else {
+          replica.end(start, false);
+        }
+        callback.onFailure(ex);
+      }
+    });
+    return new Cancellable() {
+      @Override
+      public void cancel() {
+        cancelled.set(true);
+        exchange.cancel();
+      }
+    };
+  }
+
+  /**
+   * @return the amount of replicas not currently ejected
+   */
+  public int getAvailableCount() {
+    long now = System.nanoTime();
+    int available = 0;
+    for (Replica replica : replicas) {
+      if (replica.isAvailable(now)) {
+        available++;
+      }
+    }
+    return available;
+  }
+
+  /**
+   * Choose a replica: the cheapest of two drawn at random among the available ones.
+   *
+   * @return the replica
+   */
+  private Replica select() {
+    if (replicas.length == 1) {
+      return replicas[0];
+    }
+    long now = System.nanoTime();
+    List<Replica> candidates = new ArrayList<Replica>(replicas.length);
+    for (Replica replica : replicas) {
+      if (replica.isAvailable(now)) {
+        candidates.add(replica);
+      }
+    }
+    if (candidates.isEmpty()) {
+      // Every replica is ejected: better try them than fail every call
+      for (Replica replica : replicas) {
+        candidates.add(replica);
+      }
+    }
+    if (candidates.size() == 1) {
+      return candidates.get(0);
+    }
+    int first;
+    int second;
+    synchronized (random) {
+      first = random.nextInt(candidates.size());
+      second = random.nextInt(candidates.size() - 1);
+    }
+    if (second >= first) {
+      second++;
+    }
+    Replica a = candidates.get(first);
+    Replica b = candidates.get(second);
+    return a.cost() <= b.cost() ? a : b;
+  }
+
+  /**
+   * The state of one replica.
+   */
+  private final class Replica {
+    private final JsonRpcTransport transport;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double latencyNanos;
+    private long lastUpdate = System.nanoTime();
+    private int failures;
+    private long ejectedUntil;
+    private boolean ejected;
+
+    /**
+     * @param transport the transport to the replica
+     */
+    Replica(JsonRpcTransport transport) {
+      this.transport = transport;
+    }
+
+    /**
+     * @param now the current nanoTime
+     * @return true if the replica is not ejected
+     */
+    synchronized boolean isAvailable(long now) {
+      return !ejected || now - ejectedUntil >= 0;
+    }
+
+    /**
+     * @return the cost of sending one more payload to the replica
+     */
+    synchronized double cost() {
+      return (latencyNanos + 1) * (inFlight.get() + 1);
+    }
+
+    /**
+     * Record the start of an exchange.
+     *
+     * @return the start nanoTime
+     */
+    long start() {
+      inFlight.incrementAndGet();
+      return System.nanoTime();
+    }
+
+    /**
+     * Record the end of an exchange.
+     *
+     * @param start   the start nanoTime
+     * @param success false if the replica failed
+     */
+    synchronized void end(long start, boolean success) {
+      inFlight.decrementAndGet();
+      long now = System.nanoTime();
+      // Time-decayed average: recent latencies weigh more, whatever the rate of calls
+      double weight = Math.exp(-(double) (now - lastUpdate) / decayNanos);
+      latencyNanos = latencyNanos * weight + (now - start) * (1 - weight);
+      lastUpdate = now;
+      if (success) {
+        failures = 0;
+        ejected = false;
+      } else if (++failures >= maxFailures) {
+        ejected = true;
+        ejectedUntil = now + ejectionNanos;
+        // Give it another chance once back, without waiting for maxFailures more failures to eject it again
+        failures = maxFailures - 1;
+      }
+    }
+
+    /**
+     * Record the end of a cancelled exchange, which says nothing about the replica.
+     */
+    void release() {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  public static class Builder {
+    private final List<JsonRpcTransport> transports;
+    private int maxFailures = 5;
+    private long ejectionNanos = TimeUnit.SECONDS.toNanos(30);
+    private long decayNanos = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * @param transports the transports to the replicas
+     */
+    private Builder(List<? extends JsonRpcTransport> transports) {
+      if (transports == null || transports.isEmpty()) {
+        throw new IllegalArgumentException("At least one transport is required");
+      }
+      this.transports = new ArrayList<JsonRpcTransport>(transports);
+    }
+
+    /**
+     * @param maxFailures the amount of consecutive failures after which a replica is ejected. Defaults to 5
+     * @return the builder
+     */
+    public Builder maxFailures(int maxFailures) {
+      if (maxFailures < 1) {
+        throw new IllegalArgumentException("Max failures must be at least 1");
+      }
+      this.maxFailures = maxFailures;
+      return this;
+    }
+
+    /**
+     * @param ejection how long a failing replica is left aside. Defaults to 30s
+     * @param unit     the time unit
+     * @return the builder
+     */
+    public Builder ejection(long ejection, TimeUnit unit) {
+      if (ejection <= 0) {
+        throw new IllegalArgumentException("Ejection must be positive");
+      }
+      this.ejectionNanos = unit.toNanos(ejection);
+      return this;
+    }
+
+    /**
+     * @param decay how fast past latencies are forgotten: their weight is divided by e over this time. Defaults to 10s
+     * @param unit  the time unit
+     * @return the builder
+     */
+    public Builder decay(long decay, TimeUnit unit) {
+      if (decay <= 0) {
+        throw new IllegalArgumentException("Decay must be positive");
+      }
+      this.decayNanos = unit.toNanos(decay);
+      return this;
+    }
+
+    /**
+     * @return the LoadBalancedTransport
+     */
+    public LoadBalancedTransport build() {
+      return new LoadBalancedTransport(this);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package io.resourcepool.jarpic.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This transport speaks newline-delimited JSON over one plain TCP connection.
+ * Nagle's algorithm is disabled, as pipelined payloads are small and latency bound.
+ */
+public class TcpTransport extends LineDelimitedTransport {
+
+  private final InetSocketAddress address;
+  private final int connectTimeoutMillis;
+
+  /**
+   * Construct a new TcpTransport.
+   *
+   * @param builder the builder holding the configuration
+   */
+  private TcpTransport(Builder builder) {
+    super(builder.timeoutNanos, builder.maxLineSize);
+    this.address = builder.address;
+    this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(builder.connectTimeoutNanos));
+  }
+
+  /**
+   * @param host the server host
+   * @param port the server port
+   * @return a new Builder
+   */
+  public static Builder builder(String host, int port) {
+    return new Builder(InetSocketAddress.createUnresolved(host, port));
+  }
+
+  @Override
+  protected SocketChannel openChannel() throws IOException {
+    SocketChannel channel = SocketChannel.open();
+    try {
+      // Resolved on every connection, so that DNS changes are followed
+      InetSocketAddress resolved = new InetSocketAddress(address.getHostName(), address.getPort());
+      channel.socket().connect(resolved, connectTimeoutMillis);
+      channel.socket().setTcpNoDelay(true);
+      return channel;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TcpTransport[" + address.getHostName() + ":" + address.getPort() + "]";
+  }
+
+  public static class Builder {
+    private final InetSocketAddress address;
+    private long connectTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(30);
+    private int maxLineSize = 16 * 1024 * 1024;
+
+    /**
+     * @param address the server address
+     */
+    private Builder(InetSocketAddress address) {
+      this.address = address;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for the connection to be established. Defaults to 10s
+     * @param unit    the time unit
+     * @return the builder
+     */
+    public Builder connectTimeout(long timeout, TimeUnit unit) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Timeout must be positive");
+      }
+      this.connectTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for a response. Defaults to 30s
+     * @param unit    the time unit
+     * @return the builder
+     */
+    public Builder timeout(long timeout, TimeUnit unit) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Timeout must be positive");
+      }
+      this.timeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * @param bytes the maximum size of a received line: a longer one fails the connection. Defaults to 16 MiB
+     * @return the builder
+     */
+    public Builder maxLineSize(int bytes) {
+      if (bytes <= 0) {
+        throw new IllegalArgumentException("Max line size must be positive");
+      }
+      this.maxLineSize = bytes;
+      return this;
+    }
+
+    /**
+     * @return the TcpTransport
+     */
+    public TcpTransport build() {
+      return new TcpTransport(this);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package io.resourcepool.jarpic;
+
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.model.IdGenerator;
+import io.resourcepool.jarpic.model.IdGenerators;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests of the correlation of batch responses with their requests.
+ */
+public class BatchResponseTest {
+
+  @SuppressWarnings("unchecked")
+  private static JsonRpcResponse<String> response(String id, String result) {
+    return JsonRpcResponse.<String>builder().id(id).result(result).build();
+  }
+
+  @Test
+  public void correlateById() {
+    JsonRpcRequest req1 = JsonRpcRequest.builder().method("a").build();
+    JsonRpcRequest req2 = JsonRpcRequest.notifBuilder().method("b").build();
+    JsonRpcRequest req3 = JsonRpcRequest.builder().method("c").build();
+    JsonRpcRequest req4 = JsonRpcRequest.builder().method("d").build();
+    List<JsonRpcResponse<String>> responses = new ArrayList<JsonRpcResponse<String>>();
+    responses.add(response(req3.getId(), "c"));
+    responses.add(response(req1.getId(), "a"));
+    responses.add(response(req1.getId(), "again"));
+    responses.add(response(null, "unknown"));
+
+    JsonRpcBatchResponse<String> batch = JsonRpcBatchResponse.of(JsonRpcRequest.combine(req1, req2, req3, req4), responses);
+
+    Assert.assertEquals("a", batch.getAt(0).getResult());
+    Assert.assertNull(batch.getAt(1));
+    Assert.assertFalse(batch.isMissing(1));
+    Assert.assertEquals("c", batch.getById(req3.getId()).getResult());
+    Assert.assertTrue(batch.isMissing(3));
+    Assert.assertEquals(1, batch.getMissing().size());
+    Assert.assertTrue(batch.getDuplicateIds().contains(req1.getId()));
+    Assert.assertEquals(1, batch.getUnmatched().size());
+    Assert.assertFalse(batch.isComplete());
+  }
+
+  @Test
+  public void sendBatchOutOfOrder() throws IOException {
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher());
+    server.start();
+    try {
+      List<JsonRpcRequest> reqs = new ArrayList<JsonRpcRequest>();
+      for (int i = 0; i < 50; i++) {
+        reqs.add(JsonRpcRequest.builder().method("cmd::" + i).build());
+      }
+
+      JsonRpcBatchResponse<String> batch = new HttpJsonRpcClient(server.url("/").toString()).sendBatch(reqs, String.class);
+
+      Assert.assertTrue(batch.isComplete());
+      for (int i = 0; i < 50; i++) {
+        Assert.assertEquals("cmd::" + i, batch.getAt(i).getResult());
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void sendBatchNumericIds() throws IOException {
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher());
+    server.start();
+    try {
+      IdGenerator ids = IdGenerators.counter();
+      List<JsonRpcRequest> reqs = new ArrayList<JsonRpcRequest>();
+      for (int i = 0; i < 10; i++) {
+        reqs.add(JsonRpcRequest.builder().idGenerator(ids).method("cmd::" + i).build());
+      }
+
+      JsonRpcBatchResponse<String> batch = new HttpJsonRpcClient(server.url("/").toString()).sendBatch(reqs, String.class);
+
+      Assert.assertTrue(batch.isComplete());
+      for (int i = 0; i < 10; i++) {
+        JsonRpcResponse<String> res = batch.getById(reqs.get(i).getNumericId());
+        Assert.assertTrue(res.isNumericId());
+        Assert.assertEquals(reqs.get(i).getNumericId(), res.getNumericId());
+        Assert.assertEquals("cmd::" + i, res.getResult());
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+}
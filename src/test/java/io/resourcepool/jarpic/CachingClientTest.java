@@ -0,0 +1,136 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.resourcepool.jarpic.client.CachePolicy;
+import io.resourcepool.jarpic.client.CachingJsonRpcClient;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the caching client and of its eviction policy.
+ */
+public class CachingClientTest {
+
+  private MockWebServer server;
+  private EchoDispatcher dispatcher;
+
+  @Before
+  public void startServer() throws IOException {
+    dispatcher = new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        if (!request.get("method").asText().equals("cmd::fail")) {
+          return super.respond(request);
+        }
+        ObjectNode error = new ObjectNode(JsonNodeFactory.instance);
+        error.put("code", -32000);
+        error.put("message", "Failure");
+        ObjectNode response = new ObjectNode(JsonNodeFactory.instance);
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        response.set("error", error);
+        return response;
+      }
+    };
+    server = new MockWebServer();
+    server.setDispatcher(dispatcher);
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    server.shutdown();
+  }
+
+  private CachingJsonRpcClient client(CachePolicy policy) {
+    return CachingJsonRpcClient.builder(new HttpJsonRpcClient(server.url("/").toString()))
+      .cache("cmd::cached", policy)
+      .cache("cmd::fail", policy)
+      .build();
+  }
+
+  @Test
+  public void sameParamsHitTheCacheWhateverTheirOrder() throws Exception {
+    CachingJsonRpcClient client = client(CachePolicy.builder().ttl(1, TimeUnit.MINUTES).build());
+    Map<String, Object> first = new LinkedHashMap<String, Object>();
+    first.put("a", 1);
+    first.put("b", "two");
+    Map<String, Object> second = new LinkedHashMap<String, Object>();
+    second.put("b", "two");
+    second.put("a", 1);
+
+    JsonRpcRequest req1 = JsonRpcRequest.builder().method("cmd::cached").params(first).build();
+    JsonRpcRequest req2 = JsonRpcRequest.builder().method("cmd::cached").params(second).build();
+    JsonRpcRequest req3 = JsonRpcRequest.builder().method("cmd::cached").rawParams("{\"b\": \"two\", \"a\": 1}").build();
+    Assert.assertEquals("cmd::cached", client.send(req1, String.class).getResult());
+    JsonRpcResponse<String> hit = client.send(req2, String.class);
+    Assert.assertEquals("cmd::cached", hit.getResult());
+    Assert.assertEquals(req2.getId(), hit.getId());
+    Assert.assertEquals("cmd::cached", client.sendAsync(req3, String.class).get().getResult());
+    Assert.assertEquals(1, dispatcher.getCalls());
+
+    // Other params, or methods without a policy, are sent
+    client.send(JsonRpcRequest.builder().method("cmd::cached").param("a", 2).build(), String.class);
+    client.send(JsonRpcRequest.builder().method("cmd::other").build(), String.class);
+    client.send(JsonRpcRequest.builder().method("cmd::other").build(), String.class);
+    Assert.assertEquals(4, dispatcher.getCalls());
+    Assert.assertEquals(2, client.getStats("cmd::cached").getHitCount());
+    Assert.assertEquals(2, client.getStats("cmd::cached").getMissCount());
+  }
+
+  @Test
+  public void errorsAndNotificationsAreNotCached() throws IOException {
+    CachingJsonRpcClient client = client(CachePolicy.builder().ttl(1, TimeUnit.MINUTES).build());
+    Assert.assertNotNull(client.send(JsonRpcRequest.builder().method("cmd::fail").build(), String.class).getError());
+    Assert.assertNotNull(client.send(JsonRpcRequest.builder().method("cmd::fail").build(), String.class).getError());
+    Assert.assertNull(client.send(JsonRpcRequest.notifBuilder().method("cmd::cached").build(), String.class));
+    Assert.assertNull(client.send(JsonRpcRequest.notifBuilder().method("cmd::cached").build(), String.class));
+    Assert.assertEquals(4, dispatcher.getCalls());
+    Assert.assertEquals(0, client.getStats().getEntryCount());
+  }
+
+  @Test
+  public void expiredResultsAreFetchedAgain() throws Exception {
+    CachingJsonRpcClient client = client(CachePolicy.builder().ttl(50, TimeUnit.MILLISECONDS).build());
+    client.send(JsonRpcRequest.builder().method("cmd::cached").build(), String.class);
+    client.send(JsonRpcRequest.builder().method("cmd::cached").build(), String.class);
+    Assert.assertEquals(1, dispatcher.getCalls());
+    Thread.sleep(100);
+    client.send(JsonRpcRequest.builder().method("cmd::cached").build(), String.class);
+    Assert.assertEquals(2, dispatcher.getCalls());
+    Assert.assertEquals(1, client.getStats().getExpirationCount());
+  }
+
+  @Test
+  public void frequentResultsSurviveOneOffCalls() throws IOException {
+    CachingJsonRpcClient client = client(CachePolicy.builder().ttl(1, TimeUnit.MINUTES).maxEntries(10).build());
+    Map<String, Object> hot = new HashMap<String, Object>();
+    hot.put("key", "hot");
+    for (int i = 0; i < 5; i++) {
+      client.send(JsonRpcRequest.builder().method("cmd::cached").params(hot).build(), String.class);
+    }
+    for (int i = 0; i < 100; i++) {
+      client.send(JsonRpcRequest.builder().method("cmd::cached").param("key", i).build(), String.class);
+    }
+    int calls = dispatcher.getCalls();
+    client.send(JsonRpcRequest.builder().method("cmd::cached").params(hot).build(), String.class);
+    Assert.assertEquals(calls, dispatcher.getCalls());
+    Assert.assertTrue(client.getStats().getEntryCount() <= 10);
+    Assert.assertTrue(client.getStats().getEvictionCount() >= 90);
+  }
+}
@@ -0,0 +1,91 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.resourcepool.jarpic.client.ConnectionPoolStats;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.client.JsonRpcClientFactory;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import io.resourcepool.jarpic.transport.HttpTransport;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the client factory and of the HTTP core its clients share.
+ */
+public class ClientFactoryTest {
+
+  private MockWebServer server;
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Before
+  public void startServer() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.respond(request);
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    release.countDown();
+    server.shutdown();
+  }
+
+  @Test
+  public void clientsShareOneBoundedCore() throws Exception {
+    JsonRpcClientFactory factory = JsonRpcClientFactory.builder()
+      .maxRequests(8)
+      .maxRequestsPerHost(2)
+      .keepAlive(1, TimeUnit.MINUTES)
+      .build();
+    try {
+      HttpJsonRpcClient first = factory.create(server.url("/a").toString());
+      HttpJsonRpcClient second = factory.create(server.url("/b").toString());
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+      for (int i = 0; i < 5; i++) {
+        HttpJsonRpcClient client = i % 2 == 0 ? first : second;
+        futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+      }
+
+      // Both endpoints are on the same host: only 2 calls run, on 2 threads
+      ConnectionPoolStats stats = factory.getStats();
+      Assert.assertEquals(2, stats.getRunningCallCount());
+      Assert.assertEquals(3, stats.getQueuedCallCount());
+      Assert.assertTrue(stats.getThreadCount() <= 2);
+
+      release.countDown();
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+      for (int i = 0; i < 5; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+      stats = factory.getStats();
+      Assert.assertTrue(stats.getConnectionCount() >= 1 && stats.getConnectionCount() <= 2);
+      Assert.assertSame(factory.getClient(), ((HttpTransport) first.getTransport()).getClient());
+      Assert.assertSame(factory.getClient(), ((HttpTransport) second.getTransport()).getClient());
+    } finally {
+      factory.close();
+    }
+    Assert.assertEquals(0, factory.getStats().getConnectionCount());
+  }
+}
@@ -0,0 +1,128 @@
+package io.resourcepool.jarpic;
+
+import io.resourcepool.jarpic.client.CoalescingJsonRpcClient;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests of the coalescing client, which sends concurrent calls as one batch.
+ */
+public class CoalescingClientTest {
+
+  private MockWebServer server;
+  private EchoDispatcher dispatcher;
+
+  @Before
+  public void startServer() throws IOException {
+    dispatcher = new EchoDispatcher();
+    server = new MockWebServer();
+    server.setDispatcher(dispatcher);
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void concurrentCallsShareOneBatch() throws InterruptedException {
+    final CoalescingJsonRpcClient client = CoalescingJsonRpcClient
+      .builder(new HttpJsonRpcClient(server.url("/").toString()))
+      .window(10, TimeUnit.SECONDS)
+      .maxBatchSize(8)
+      .build();
+    final CountDownLatch done = new CountDownLatch(8);
+    final AtomicInteger matched = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 8; i++) {
+      final String method = "cmd::" + i;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            JsonRpcRequest req = JsonRpcRequest.builder().method(method).build();
+            JsonRpcResponse<String> res = client.send(req, String.class);
+            if (req.getId().equals(res.getId()) && method.equals(res.getResult())) {
+              matched.incrementAndGet();
+            }
+          } catch (IOException e) {
+            // Counted as a mismatch
+          } finally {
+            done.countDown();
+          }
+        }
+      }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(8, matched.get());
+    Assert.assertEquals(1, dispatcher.getCalls());
+    client.close();
+  }
+
+  @Test
+  public void throwingCallbackDoesNotStarveTheBatch() throws Exception {
+    CoalescingJsonRpcClient client = CoalescingJsonRpcClient
+      .builder(new HttpJsonRpcClient(server.url("/").toString()))
+      .window(10, TimeUnit.SECONDS)
+      .maxBatchSize(3)
+      .build();
+    final CountDownLatch thrown = new CountDownLatch(1);
+    client.send(JsonRpcRequest.builder().method("cmd::throw").build(), String.class, new JsonRpcCallback<String>() {
+      @Override
+      public void onResponse(JsonRpcResponse<String> result) {
+        thrown.countDown();
+        throw new IllegalStateException("Callback failure");
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        thrown.countDown();
+        throw new IllegalStateException("Callback failure");
+      }
+    });
+    JsonRpcFuture<JsonRpcResponse<String>> future = client.sendAsync(JsonRpcRequest.builder().method("cmd::async").build(), String.class);
+    // Fills the batch, which is then sent
+    Assert.assertEquals("cmd::sync", client.send(JsonRpcRequest.builder().method("cmd::sync").build(), String.class).getResult());
+
+    Assert.assertTrue(thrown.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals("cmd::async", future.get(10, TimeUnit.SECONDS).getResult());
+    Assert.assertEquals(1, dispatcher.getCalls());
+    client.close();
+  }
+
+  @Test
+  public void windowFlushesPartialBatch() throws IOException {
+    CoalescingJsonRpcClient client = CoalescingJsonRpcClient
+      .builder(new HttpJsonRpcClient(server.url("/").toString()))
+      .window(1, TimeUnit.MILLISECONDS)
+      .build();
+    JsonRpcRequest req = JsonRpcRequest.builder().method("hello").build();
+
+    JsonRpcResponse<String> res = client.send(req, String.class);
+
+    Assert.assertEquals(req.getId(), res.getId());
+    Assert.assertEquals("hello", res.getResult());
+    client.close();
+  }
+}
@@ -0,0 +1,83 @@
+package io.resourcepool.jarpic;
+
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the future-based calls: fan-out, cancellation and failures.
+ */
+public class FutureClientTest {
+
+  @Test
+  public void fanOutAndJoin() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher());
+    server.start();
+    try {
+      HttpJsonRpcClient client = new HttpJsonRpcClient(server.url("/").toString());
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+      }
+
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+      Assert.assertEquals(200, responses.size());
+      for (int i = 0; i < 200; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void cancelAbortsCall() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    server.start();
+    try {
+      OkHttpClient okHttpClient = new OkHttpClient();
+      HttpJsonRpcClient client = new HttpJsonRpcClient(server.url("/").toString(), okHttpClient);
+      JsonRpcFuture<JsonRpcResponse<String>> future = client.sendAsync(JsonRpcRequest.builder().method("cmd::hang").build(), String.class);
+      server.takeRequest(5, TimeUnit.SECONDS);
+
+      Assert.assertTrue(future.cancel(true));
+      Assert.assertTrue(future.isCancelled());
+      long deadline = System.currentTimeMillis() + 5000;
+      while (okHttpClient.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(0, okHttpClient.dispatcher().runningCallsCount());
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void failurePropagates() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+    server.start();
+    try {
+      HttpJsonRpcClient client = new HttpJsonRpcClient(server.url("/").toString());
+      client.sendAsync(JsonRpcRequest.builder().method("cmd::fail").build(), String.class).get(5, TimeUnit.SECONDS);
+    } finally {
+      server.shutdown();
+    }
+  }
+}
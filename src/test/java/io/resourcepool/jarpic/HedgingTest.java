@@ -0,0 +1,203 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.metrics.DefaultJsonRpcMetrics;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import io.resourcepool.jarpic.transport.HedgingTransport;
+import io.resourcepool.jarpic.transport.HttpEventListenerFactory;
+import io.resourcepool.jarpic.transport.HttpTransport;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import io.resourcepool.jarpic.transport.JsonRpcTransport;
+import io.resourcepool.jarpic.transport.JsonRpcTransportResponse;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the hedging transport: duplicate requests, their budget and their delay.
+ */
+public class HedgingTest {
+
+  private MockWebServer server;
+  private EchoDispatcher dispatcher;
+  private OkHttpClient okHttpClient;
+
+  @Before
+  public void startServer() throws IOException {
+    // The first exchange of every call is slow, its duplicate is not
+    final Set<String> seen = Collections.synchronizedSet(new HashSet<String>());
+    dispatcher = new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        if (seen.add(request.get("id").asText())) {
+          try {
+            Thread.sleep(1000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.respond(request);
+      }
+    };
+    server = new MockWebServer();
+    server.setDispatcher(dispatcher);
+    server.start();
+    okHttpClient = new OkHttpClient();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    server.shutdown();
+  }
+
+  private HedgingTransport.Builder transport() {
+    return HedgingTransport.builder(new HttpTransport(server.url("/").toString(), okHttpClient))
+      .idempotent("cmd::read")
+      .delay(50, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void duplicateWinsAndLoserIsCancelled() throws Exception {
+    HedgingTransport transport = transport().build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+
+    long start = System.nanoTime();
+    JsonRpcResponse<String> res = client.send(JsonRpcRequest.builder().method("cmd::read").build(), String.class);
+    Assert.assertEquals("cmd::read", res.getResult());
+    JsonRpcFuture<JsonRpcResponse<String>> future = client.sendAsync(JsonRpcRequest.builder().method("cmd::read").build(), String.class);
+    Assert.assertEquals("cmd::read", future.get(5, TimeUnit.SECONDS).getResult());
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+
+    Assert.assertEquals(2, transport.getHedgeCount());
+    Assert.assertEquals(2, transport.getHedgeWinCount());
+    // The slow exchanges were cancelled, not left running until the server answers
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+    while (okHttpClient.dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, okHttpClient.dispatcher().runningCallsCount());
+    transport.close();
+  }
+
+  @Test
+  public void otherMethodsAreNotHedged() throws IOException {
+    HedgingTransport transport = transport().build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    Assert.assertEquals("cmd::write", client.send(JsonRpcRequest.builder().method("cmd::write").build(), String.class).getResult());
+    Assert.assertEquals(0, transport.getHedgeCount());
+    Assert.assertEquals(1, dispatcher.getCalls());
+    transport.close();
+  }
+
+  @Test
+  public void budgetCapsDuplicates() throws Exception {
+    HedgingTransport transport = transport().budget(0, 1).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    JsonRpcFuture<JsonRpcResponse<String>> first = client.sendAsync(JsonRpcRequest.builder().method("cmd::read").build(), String.class);
+    JsonRpcFuture<JsonRpcResponse<String>> second = client.sendAsync(JsonRpcRequest.builder().method("cmd::read").build(), String.class);
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(1, transport.getHedgeCount());
+    Assert.assertEquals(3, dispatcher.getCalls());
+    transport.close();
+  }
+
+  @Test
+  public void attemptsHaveTheirOwnListener() throws Exception {
+    final List<Integer> attempts = Collections.synchronizedList(new ArrayList<Integer>());
+    final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+    final JsonRpcEventListener listener = new JsonRpcEventListener() {
+      @Override
+      public JsonRpcEventListener attempt(final int index) {
+        attempts.add(index);
+        return new JsonRpcEventListener() {
+          @Override
+          public void writeEnd(long nanos, long bytesWritten) {
+            written.add(index);
+          }
+        };
+      }
+    };
+    okHttpClient = okHttpClient.newBuilder().eventListenerFactory(new HttpEventListenerFactory()).build();
+    HedgingTransport transport = transport().build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport, JacksonJsonRpcCodec.getDefault(), new DefaultJsonRpcMetrics(),
+      new JsonRpcEventListener.Factory() {
+        @Override
+        public JsonRpcEventListener create(JsonRpcPayload payload) {
+          return listener;
+        }
+      });
+    client.send(JsonRpcRequest.builder().method("cmd::read").build(), String.class);
+
+    Assert.assertEquals(Arrays.asList(0, 1), attempts);
+    Assert.assertEquals(new HashSet<Integer>(Arrays.asList(0, 1)), new HashSet<Integer>(written));
+    transport.close();
+  }
+
+  @Test
+  public void delayFollowsFirstExchangeLatency() throws Exception {
+    // The first exchange only ends when cancelled, the duplicate answers at once
+    final Set<JsonRpcPayload> seen = Collections.synchronizedSet(new HashSet<JsonRpcPayload>());
+    JsonRpcTransport delegate = new JsonRpcTransport() {
+      @Override
+      public JsonRpcTransportResponse execute(JsonRpcPayload payload) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Cancellable enqueue(JsonRpcPayload payload, final Callback callback) {
+        if (seen.add(payload)) {
+          return new Cancellable() {
+            @Override
+            public void cancel() {
+              callback.onFailure(new IOException("Canceled"));
+            }
+          };
+        }
+        new Thread(new Runnable() {
+          @Override
+          public void run() {
+            callback.onResponse(JsonRpcTransportResponse.empty());
+          }
+        }).start();
+        return new Cancellable() {
+          @Override
+          public void cancel() {
+          }
+        };
+      }
+    };
+    HedgingTransport transport = HedgingTransport.builder(delegate)
+      .idempotent("cmd::read")
+      .delay(20, TimeUnit.MILLISECONDS)
+      .delayPercentile(0.5)
+      .budget(1, 10)
+      .build();
+    for (int i = 0; i < 100; i++) {
+      transport.execute(new JsonRpcPayload(JacksonJsonRpcCodec.getDefault(), JsonRpcRequest.builder().method("cmd::read").build()));
+    }
+
+    Assert.assertEquals(100, transport.getHedgeWinCount());
+    // First exchanges are recorded until cancelled, not as fast as the duplicates which won
+    Assert.assertTrue(transport.getDelayNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+    transport.close();
+  }
+}
@@ -0,0 +1,91 @@
+package io.resourcepool.jarpic;
+
+import io.resourcepool.jarpic.model.IdGenerator;
+import io.resourcepool.jarpic.model.IdGenerators;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests of the built-in request id generators.
+ */
+public class IdGeneratorsTest {
+
+  private static final int THREADS = 4;
+  private static final int IDS_PER_THREAD = 10000;
+
+  @Test
+  public void counterIsUniqueAcrossThreadsAndIncreasingWithinEach() throws InterruptedException {
+    final IdGenerator counter = IdGenerators.counter();
+    final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+    final AtomicBoolean increasing = new AtomicBoolean(true);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          long previous = 0;
+          for (int i = 0; i < IDS_PER_THREAD; i++) {
+            long id = counter.nextLong();
+            if (id <= previous) {
+              increasing.set(false);
+            }
+            previous = id;
+            ids.add(id);
+          }
+        }
+      }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    Assert.assertTrue(counter.isNumeric());
+    Assert.assertTrue(increasing.get());
+    Assert.assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+  }
+
+  @Test
+  public void counterStartsAtOne() {
+    IdGenerator counter = IdGenerators.counter();
+    Assert.assertEquals(1, counter.nextLong());
+    Assert.assertEquals("2", counter.nextString());
+  }
+
+  @Test
+  public void randomLongIsPositiveWithin53Bits() {
+    IdGenerator random = IdGenerators.randomLong();
+    Set<Long> ids = new HashSet<Long>();
+    for (int i = 0; i < 100000; i++) {
+      long id = random.nextLong();
+      Assert.assertTrue(id > 0);
+      Assert.assertTrue(id < (1L << 53));
+      ids.add(id);
+    }
+    Assert.assertTrue(random.isNumeric());
+    // 53 random bits: a collision among these would be a broken sequence
+    Assert.assertEquals(100000, ids.size());
+  }
+
+  @Test
+  public void uuidIsTextual() {
+    IdGenerator uuid = IdGenerators.uuid();
+    Assert.assertFalse(uuid.isNumeric());
+    Assert.assertEquals(36, uuid.nextString().length());
+    try {
+      uuid.nextLong();
+      Assert.fail("UUID ids have no numeric form");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    }
+  }
+}
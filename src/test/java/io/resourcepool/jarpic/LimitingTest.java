@@ -0,0 +1,196 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import io.resourcepool.jarpic.transport.ConcurrencyLimit;
+import io.resourcepool.jarpic.transport.ConcurrencyLimitExceededException;
+import io.resourcepool.jarpic.transport.ConcurrencyLimits;
+import io.resourcepool.jarpic.transport.HttpTransport;
+import io.resourcepool.jarpic.transport.LimitingTransport;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests of the concurrency-limiting transport and of the built-in limits.
+ */
+public class LimitingTest {
+
+  private MockWebServer server;
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Before
+  public void startServer() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.respond(request);
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    release.countDown();
+    server.shutdown();
+  }
+
+  private LimitingTransport.Builder transport(int limit) {
+    return LimitingTransport.builder(new HttpTransport(server.url("/").toString(), new OkHttpClient()))
+      .limit(ConcurrencyLimits.fixed(limit));
+  }
+
+  private static boolean isRejected(JsonRpcFuture<?> future) throws InterruptedException {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      return false;
+    } catch (ExecutionException e) {
+      return e.getCause() instanceof ConcurrencyLimitExceededException;
+    } catch (TimeoutException e) {
+      throw new AssertionError("Call did not complete");
+    }
+  }
+
+  @Test
+  public void excessCallsAreRejectedAtOnce() throws Exception {
+    LimitingTransport transport = transport(2).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+    for (int i = 0; i < 5; i++) {
+      futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+    }
+    Assert.assertEquals(2, transport.getInFlightCount());
+    for (int i = 2; i < 5; i++) {
+      Assert.assertTrue(futures.get(i).isDone());
+      Assert.assertTrue(isRejected(futures.get(i)));
+    }
+    release.countDown();
+    Assert.assertFalse(isRejected(futures.get(0)));
+    Assert.assertFalse(isRejected(futures.get(1)));
+    Assert.assertEquals(3, transport.getRejectedCount());
+    transport.close();
+  }
+
+  @Test
+  public void queuedCallsWaitForASlot() throws Exception {
+    LimitingTransport transport = transport(1).queue(1, 5, TimeUnit.SECONDS).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    JsonRpcFuture<JsonRpcResponse<String>> first = client.sendAsync(JsonRpcRequest.builder().method("cmd::1").build(), String.class);
+    JsonRpcFuture<JsonRpcResponse<String>> second = client.sendAsync(JsonRpcRequest.builder().method("cmd::2").build(), String.class);
+    JsonRpcFuture<JsonRpcResponse<String>> third = client.sendAsync(JsonRpcRequest.builder().method("cmd::3").build(), String.class);
+    Assert.assertEquals(1, transport.getQueuedCount());
+    Assert.assertTrue(isRejected(third));
+    release.countDown();
+    Assert.assertEquals("cmd::1", first.get(10, TimeUnit.SECONDS).getResult());
+    Assert.assertEquals("cmd::2", second.get(10, TimeUnit.SECONDS).getResult());
+    Assert.assertEquals(0, transport.getInFlightCount());
+    transport.close();
+  }
+
+  @Test
+  public void queuedSyncCallTimesOut() throws Exception {
+    LimitingTransport transport = transport(1).queue(10, 100, TimeUnit.MILLISECONDS).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    client.sendAsync(JsonRpcRequest.builder().method("cmd::1").build(), String.class);
+    long start = System.nanoTime();
+    try {
+      client.send(JsonRpcRequest.builder().method("cmd::2").build(), String.class);
+      Assert.fail("Call should have been rejected");
+    } catch (ConcurrencyLimitExceededException e) {
+      Assert.assertEquals(1, e.getLimit());
+    }
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    Assert.assertEquals(0, transport.getQueuedCount());
+    transport.close();
+  }
+
+  @Test
+  public void callsAfterCloseAreRejected() throws Exception {
+    LimitingTransport transport = transport(1).queue(10, 5, TimeUnit.SECONDS).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    client.sendAsync(JsonRpcRequest.builder().method("cmd::1").build(), String.class);
+    transport.close();
+    Assert.assertTrue(isRejected(client.sendAsync(JsonRpcRequest.builder().method("cmd::2").build(), String.class)));
+    try {
+      client.send(JsonRpcRequest.builder().method("cmd::3").build(), String.class);
+      Assert.fail("Call should have been rejected");
+    } catch (ConcurrencyLimitExceededException e) {
+      Assert.assertEquals(1, e.getLimit());
+    }
+    Assert.assertEquals(0, transport.getQueuedCount());
+  }
+
+  @Test
+  public void limitsFollowLatency() {
+    long fast = TimeUnit.MILLISECONDS.toNanos(10);
+    long slow = TimeUnit.MILLISECONDS.toNanos(100);
+    ConcurrencyLimit[] limits = {ConcurrencyLimits.vegas(20, 200), ConcurrencyLimits.gradient(20, 200)};
+    for (ConcurrencyLimit limit : limits) {
+      for (int i = 0; i < 200; i++) {
+        limit.onSample(fast, limit.getLimit(), false);
+      }
+      int grown = limit.getLimit();
+      Assert.assertTrue(grown > 20);
+      for (int i = 0; i < 50; i++) {
+        limit.onSample(slow, limit.getLimit(), false);
+      }
+      Assert.assertTrue(limit.getLimit() < grown);
+    }
+
+    // Failures may be refused at once: their RTT must not pass for the unloaded one
+    long refused = TimeUnit.MICROSECONDS.toNanos(100);
+    limits = new ConcurrencyLimit[]{ConcurrencyLimits.vegas(20, 200), ConcurrencyLimits.gradient(20, 200)};
+    for (ConcurrencyLimit limit : limits) {
+      for (int i = 0; i < 10; i++) {
+        limit.onSample(refused, limit.getLimit(), true);
+      }
+      int shrunk = limit.getLimit();
+      Assert.assertTrue(shrunk < 20);
+      limit.onSample(fast, limit.getLimit(), false);
+      limit.onSample(fast, limit.getLimit(), false);
+      Assert.assertTrue(limit.getLimit() > shrunk);
+    }
+
+    // Failures keep shrinking the limit, down to 1
+    limits = new ConcurrencyLimit[]{ConcurrencyLimits.vegas(20, 200), ConcurrencyLimits.gradient(20, 200), ConcurrencyLimits.aimd(20, 200)};
+    for (ConcurrencyLimit limit : limits) {
+      for (int i = 0; i < 100; i++) {
+        int before = limit.getLimit();
+        limit.onSample(slow, limit.getLimit(), true);
+        Assert.assertTrue(limit.getLimit() <= before);
+      }
+      Assert.assertEquals(1, limit.getLimit());
+    }
+
+    ConcurrencyLimit aimd = ConcurrencyLimits.aimd(20, 200);
+    aimd.onSample(fast, 20, false);
+    Assert.assertEquals(21, aimd.getLimit());
+    aimd.onSample(fast, 21, true);
+    Assert.assertEquals(18, aimd.getLimit());
+    // Not used enough to grow
+    aimd.onSample(fast, 1, false);
+    Assert.assertEquals(18, aimd.getLimit());
+  }
+}
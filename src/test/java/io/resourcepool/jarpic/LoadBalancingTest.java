@@ -0,0 +1,118 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import io.resourcepool.jarpic.transport.LoadBalancedTransport;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the load-balanced transport across several replicas.
+ */
+public class LoadBalancingTest {
+
+  private MockWebServer first;
+  private MockWebServer second;
+  private EchoDispatcher secondDispatcher;
+
+  @Before
+  public void startServers() throws IOException {
+    first = new MockWebServer();
+    second = new MockWebServer();
+    secondDispatcher = new EchoDispatcher();
+    second.setDispatcher(secondDispatcher);
+    second.start();
+  }
+
+  @After
+  public void stopServers() throws IOException {
+    first.shutdown();
+    second.shutdown();
+  }
+
+  private List<String> endpoints() {
+    return Arrays.asList(first.url("/").toString(), second.url("/").toString());
+  }
+
+  @Test
+  public void failingReplicaIsEjected() throws IOException {
+    final EchoDispatcher failing = new EchoDispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        super.dispatch(request);
+        return new MockResponse().setResponseCode(503);
+      }
+    };
+    first.setDispatcher(failing);
+    first.start();
+    LoadBalancedTransport transport = LoadBalancedTransport.http(endpoints(), new OkHttpClient())
+      .maxFailures(3)
+      .ejection(1, TimeUnit.MINUTES)
+      .build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+
+    int errors = 0;
+    for (int i = 0; i < 30; i++) {
+      JsonRpcResponse<String> res = client.send(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class);
+      if (res.getError() != null) {
+        Assert.assertEquals(-32000, res.getError().getCode());
+        errors++;
+      }
+    }
+    Assert.assertEquals(failing.getCalls(), errors);
+    Assert.assertTrue(failing.getCalls() <= 3);
+    Assert.assertEquals(30, failing.getCalls() + secondDispatcher.getCalls());
+    Assert.assertEquals(1, transport.getAvailableCount());
+  }
+
+  @Test
+  public void slowReplicaIsAvoided() throws IOException {
+    EchoDispatcher slow = new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.respond(request);
+      }
+    };
+    first.setDispatcher(slow);
+    first.start();
+    HttpJsonRpcClient client = new HttpJsonRpcClient(endpoints());
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("cmd::" + i, client.send(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class).getResult());
+    }
+    Assert.assertTrue(slow.getCalls() <= 2);
+  }
+
+  @Test
+  public void batchGoesToOneReplica() throws IOException {
+    EchoDispatcher firstDispatcher = new EchoDispatcher();
+    first.setDispatcher(firstDispatcher);
+    first.start();
+    HttpJsonRpcClient client = new HttpJsonRpcClient(endpoints());
+    List<JsonRpcResponse<String>> responses = client.send(JsonRpcRequest.combine(
+      JsonRpcRequest.builder().method("cmd::a").build(),
+      JsonRpcRequest.builder().method("cmd::b").build(),
+      JsonRpcRequest.builder().method("cmd::c").build()), String.class);
+    Assert.assertEquals(3, responses.size());
+    Assert.assertEquals(1, firstDispatcher.getCalls() + secondDispatcher.getCalls());
+  }
+}
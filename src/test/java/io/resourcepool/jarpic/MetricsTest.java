@@ -0,0 +1,209 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.metrics.DefaultJsonRpcMetrics;
+import io.resourcepool.jarpic.metrics.Histogram;
+import io.resourcepool.jarpic.metrics.JsonRpcEventListener;
+import io.resourcepool.jarpic.metrics.MethodMetrics;
+import io.resourcepool.jarpic.model.JsonRpcBatchResponse;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import io.resourcepool.jarpic.transport.HttpEventListenerFactory;
+import io.resourcepool.jarpic.transport.HttpTransport;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the metrics recorded by the clients, and of the histogram behind them.
+ */
+public class MetricsTest {
+
+  private MockWebServer server;
+  private DefaultJsonRpcMetrics metrics;
+  private TransportJsonRpcClient client;
+
+  @Before
+  public void startServer() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        if (!request.get("method").asText().startsWith("fail")) {
+          return super.respond(request);
+        }
+        ObjectNode error = new ObjectNode(JsonNodeFactory.instance);
+        error.put("code", -32001);
+        error.put("message", "Failed");
+        ObjectNode response = new ObjectNode(JsonNodeFactory.instance);
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        response.set("error", error);
+        return response;
+      }
+    });
+    server.start();
+    metrics = new DefaultJsonRpcMetrics();
+    client = new TransportJsonRpcClient(new HttpTransport(server.url("/").toString(), new OkHttpClient()),
+      JacksonJsonRpcCodec.getDefault(), metrics);
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void histogramIsAccurate() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100000; i++) {
+      histogram.record(i * 1000L);
+    }
+    Assert.assertEquals(100000, histogram.getCount());
+    Assert.assertEquals(100000000L, histogram.getMax());
+    Assert.assertEquals(50000500, histogram.getMean(), 1);
+    Assert.assertEquals(50000000, histogram.getValueAtPercentile(50), 50000000 * 0.032);
+    Assert.assertEquals(99000000, histogram.getValueAtPercentile(99), 99000000 * 0.032);
+    Assert.assertEquals(100000000L, histogram.getValueAtPercentile(100));
+    Assert.assertEquals(0, new Histogram().getValueAtPercentile(99));
+  }
+
+  @Test
+  public void callsAreRecordedByMethod() throws Exception {
+    client.send(JsonRpcRequest.builder().method("echo").build(), String.class);
+    client.sendAsync(JsonRpcRequest.builder().method("echo").build(), String.class).get(10, TimeUnit.SECONDS);
+    client.send(JsonRpcRequest.builder().method("fail").build(), String.class);
+    client.send(JsonRpcRequest.combine(
+      JsonRpcRequest.builder().method("echo").build(),
+      JsonRpcRequest.builder().method("fail::batch").build(),
+      JsonRpcRequest.notifBuilder().method("notify").build()), String.class);
+
+    MethodMetrics echo = metrics.getMethod("echo");
+    Assert.assertEquals(3, echo.getCallCount());
+    Assert.assertEquals(0, echo.getErrorCount());
+    Assert.assertEquals(0, echo.getInFlightCount());
+    Assert.assertTrue(echo.getLatency().getMax() > 0);
+    Assert.assertEquals(1, metrics.getMethod("fail").getErrorCount());
+    Assert.assertEquals(Long.valueOf(1), metrics.getMethod("fail::batch").getErrorCounts().get(-32001));
+    Assert.assertEquals(1, metrics.getMethod("notify").getCallCount());
+    Assert.assertEquals(Long.valueOf(2), metrics.getErrorCounts().get(-32001));
+    Assert.assertEquals(0, metrics.getInFlightCount());
+
+    Assert.assertEquals(1, metrics.getBatchSizes().getCount());
+    Assert.assertEquals(3, metrics.getBatchSizes().getMax());
+    Assert.assertTrue(metrics.getBytesSent() > 0);
+    Assert.assertTrue(metrics.getBytesReceived() > 0);
+  }
+
+  @Test
+  public void streamedAndFailedCallsAreRecorded() throws Exception {
+    JsonRpcBatchResponse<String> batch = client.sendBatch(JsonRpcRequest.combine(
+      JsonRpcRequest.builder().method("echo").build(),
+      JsonRpcRequest.builder().method("fail").build()), String.class);
+    Assert.assertEquals(2, batch.size());
+    Assert.assertEquals(1, metrics.getMethod("echo").getCallCount());
+    Assert.assertEquals(1, metrics.getMethod("fail").getErrorCount());
+
+    server.shutdown();
+    try {
+      client.send(JsonRpcRequest.builder().method("echo").build(), String.class);
+      Assert.fail("Server is down");
+    } catch (IOException e) {
+      // Expected
+    }
+    Assert.assertEquals(1, metrics.getMethod("echo").getFailureCount());
+    Assert.assertEquals(0, metrics.getInFlightCount());
+  }
+
+  @Test
+  public void phasesAreTimed() throws Exception {
+    final List<String> phases = new ArrayList<String>();
+    final List<Long> timestamps = new ArrayList<Long>();
+    final JsonRpcEventListener listener = new JsonRpcEventListener() {
+      private synchronized void record(String phase, long nanos) {
+        phases.add(phase);
+        timestamps.add(nanos);
+      }
+
+      @Override
+      public void callStart(long nanos) {
+        record("callStart", nanos);
+      }
+
+      @Override
+      public void connectStart(long nanos) {
+        record("connectStart", nanos);
+      }
+
+      @Override
+      public JsonRpcEventListener attempt(int index) {
+        record("attempt" + index, System.nanoTime());
+        return this;
+      }
+
+      @Override
+      public void writeStart(long nanos) {
+        record("writeStart", nanos);
+      }
+
+      @Override
+      public void writeEnd(long nanos, long bytesWritten) {
+        record("writeEnd", nanos);
+      }
+
+      @Override
+      public void requestSent(long nanos) {
+        record("requestSent", nanos);
+      }
+
+      @Override
+      public void responseStart(long nanos) {
+        record("responseStart", nanos);
+      }
+
+      @Override
+      public void parseStart(long nanos) {
+        record("parseStart", nanos);
+      }
+
+      @Override
+      public void parseEnd(long nanos, long bytesReceived) {
+        record("parseEnd", nanos);
+      }
+
+      @Override
+      public void callEnd(long nanos) {
+        record("callEnd", nanos);
+      }
+    };
+    OkHttpClient okHttpClient = new OkHttpClient.Builder().eventListenerFactory(new HttpEventListenerFactory()).build();
+    TransportJsonRpcClient traced = new TransportJsonRpcClient(new HttpTransport(server.url("/").toString(), okHttpClient),
+      JacksonJsonRpcCodec.getDefault(), metrics, new JsonRpcEventListener.Factory() {
+        @Override
+        public JsonRpcEventListener create(JsonRpcPayload payload) {
+          return listener;
+        }
+      });
+    traced.sendAsync(JsonRpcRequest.builder().method("echo").build(), String.class).get(10, TimeUnit.SECONDS);
+
+    Assert.assertEquals(Arrays.asList("callStart", "attempt0", "connectStart", "writeStart", "writeEnd", "requestSent",
+      "responseStart", "parseStart", "parseEnd", "callEnd"), phases);
+    for (int i = 1; i < timestamps.size(); i++) {
+      Assert.assertTrue(timestamps.get(i) >= timestamps.get(i - 1));
+    }
+  }
+}
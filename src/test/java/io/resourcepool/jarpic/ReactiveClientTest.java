@@ -0,0 +1,133 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.reactive.JsonRpcProcessor;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests of the reactive processor and its bound on calls in flight.
+ */
+public class ReactiveClientTest {
+
+  @Test
+  public void boundedInFlightCalls() throws Exception {
+    final AtomicInteger current = new AtomicInteger();
+    final AtomicInteger max = new AtomicInteger();
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        int now = current.incrementAndGet();
+        while (max.get() < now && !max.compareAndSet(max.get(), now)) {
+          // Retry
+        }
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        current.decrementAndGet();
+        return super.respond(request);
+      }
+    });
+    server.start();
+    try {
+      List<JsonRpcRequest> reqs = new ArrayList<JsonRpcRequest>();
+      for (int i = 0; i < 100; i++) {
+        reqs.add(JsonRpcRequest.builder().method("cmd::" + i).build());
+      }
+      JsonRpcProcessor<String> processor = new JsonRpcProcessor<String>(
+        new HttpJsonRpcClient(server.url("/").toString()), String.class, 4);
+      new ListPublisher(reqs).subscribe(processor);
+      final Set<String> results = new HashSet<String>();
+      final CountDownLatch done = new CountDownLatch(1);
+      processor.subscribe(new Subscriber<JsonRpcResponse<String>>() {
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+          subscription = s;
+          s.request(1);
+        }
+
+        @Override
+        public void onNext(JsonRpcResponse<String> res) {
+          results.add(res.getResult());
+          subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+          done.countDown();
+        }
+      });
+
+      Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+      Assert.assertEquals(100, results.size());
+      Assert.assertTrue(max.get() <= 4);
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  /**
+   * Minimal publisher emitting a list, honoring demand.
+   */
+  private static class ListPublisher implements Publisher<JsonRpcRequest> {
+    private final List<JsonRpcRequest> items;
+
+    /**
+     * @param items the items to emit
+     */
+    ListPublisher(List<JsonRpcRequest> items) {
+      this.items = items;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super JsonRpcRequest> s) {
+      final Iterator<JsonRpcRequest> it = items.iterator();
+      s.onSubscribe(new Subscription() {
+        private boolean done;
+
+        @Override
+        public synchronized void request(long n) {
+          for (long i = 0; i < n && it.hasNext(); i++) {
+            s.onNext(it.next());
+          }
+          if (!it.hasNext() && !done) {
+            done = true;
+            s.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          done = true;
+        }
+      });
+    }
+  }
+}
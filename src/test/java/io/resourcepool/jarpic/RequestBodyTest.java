@@ -0,0 +1,115 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.resourcepool.jarpic.client.JsonRpcRequestBody;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.Result;
+import io.resourcepool.jarpic.parser.RequestMapper;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the encoding of requests and of their params.
+ */
+public class RequestBodyTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void writeSingleRequest() throws IOException {
+    JsonRpcRequest req = JsonRpcRequest.builder()
+      .method("cmd::display")
+      .param("message", "Hello \"World\"!")
+      .param("apiKey", "12345")
+      .build();
+    Buffer sink = new Buffer();
+    new JsonRpcRequestBody(JacksonJsonRpcCodec.getDefault(), req).writeTo(sink);
+
+    Assert.assertEquals(RequestMapper.map(req), mapper.readTree(sink.readUtf8()));
+  }
+
+  @Test
+  public void writeBatch() throws IOException {
+    JsonRpcRequest req1 = JsonRpcRequest.builder()
+      .method("cmd::start")
+      .param("apiKey", "12345")
+      .build();
+    JsonRpcRequest req2 = JsonRpcRequest.notifBuilder()
+      .method("cmd::status")
+      .build();
+    List<JsonRpcRequest> reqs = JsonRpcRequest.combine(req1, req2);
+    Buffer sink = new Buffer();
+    new JsonRpcRequestBody(JacksonJsonRpcCodec.getDefault(), reqs).writeTo(sink);
+
+    Assert.assertEquals(RequestMapper.map(reqs), mapper.readTree(sink.readUtf8()));
+  }
+
+  @Test
+  public void writeTypedParams() throws IOException {
+    Result result = new Result();
+    result.value = "v";
+    result.collectDate = "2016-03-03";
+    JsonRpcRequest named = JsonRpcRequest.builder().method("a").param("nested", result).param("count", 3).build();
+    JsonRpcRequest positional = JsonRpcRequest.builder().method("b").params("x", 1, result).build();
+    JsonRpcRequest pojo = JsonRpcRequest.builder().method("c").params(result).build();
+    List<JsonRpcRequest> reqs = JsonRpcRequest.combine(named, positional, pojo);
+    Buffer sink = new Buffer();
+    new JsonRpcRequestBody(JacksonJsonRpcCodec.getDefault(), reqs).writeTo(sink);
+
+    JsonNode body = mapper.readTree(sink.readUtf8());
+    Assert.assertEquals(RequestMapper.map(reqs), body);
+    Assert.assertEquals("v", body.get(0).get("params").get("nested").get("value").asText());
+    Assert.assertEquals(3, body.get(0).get("params").get("count").asInt());
+    Assert.assertEquals(3, body.get(1).get("params").size());
+    Assert.assertEquals("2016-03-03", body.get(2).get("params").get("collectDate").asText());
+  }
+
+  @Test
+  public void writeRawParamsVerbatim() throws IOException {
+    String raw = "{\"a\" : [1,  2.50], \"b\":{}}";
+    JsonRpcRequest fromBytes = JsonRpcRequest.builder().method("a").rawParams(raw.getBytes("UTF-8")).build();
+    JsonRpcRequest fromString = JsonRpcRequest.builder().method("b").rawParams(raw).build();
+    Buffer sink = new Buffer();
+    new JsonRpcRequestBody(JacksonJsonRpcCodec.getDefault(), JsonRpcRequest.combine(fromBytes, fromString)).writeTo(sink);
+
+    String body = sink.readUtf8();
+    Assert.assertEquals(body.indexOf(raw), body.indexOf("\"params\":" + raw) + 9);
+    Assert.assertTrue(body.lastIndexOf(raw) > body.indexOf(raw));
+    Assert.assertEquals(2, mapper.readTree(body).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectScalarParams() {
+    JsonRpcRequest.builder().method("a").params("x");
+  }
+
+  @Test
+  public void namedParamsLeaveCallerMapAlone() {
+    Map<String, Object> shared = new HashMap<String, Object>();
+    shared.put("apiKey", "12345");
+    JsonRpcRequest req = JsonRpcRequest.builder().method("a").params(shared).param("message", "hello").build();
+
+    Assert.assertEquals(1, shared.size());
+    Assert.assertEquals(2, ((Map<?, ?>) req.getParamsValue()).size());
+  }
+
+  @Test
+  public void namedStringParamsKeepTheirTypedAccessor() {
+    JsonRpcRequest named = JsonRpcRequest.builder().method("a").param("message", "hello").build();
+    Map<String, String> params = named.getParams();
+    Assert.assertEquals("hello", params.get("message"));
+
+    JsonRpcRequest positional = JsonRpcRequest.builder().method("a").params(1, 2).build();
+    Assert.assertNull(positional.getParams());
+    Assert.assertEquals(Arrays.asList(1, 2), positional.getParamsValue());
+  }
+}
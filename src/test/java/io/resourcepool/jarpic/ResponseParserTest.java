@@ -0,0 +1,167 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.model.Error;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.model.Result;
+import io.resourcepool.jarpic.parser.JsonRpcResponseCursor;
+import io.resourcepool.jarpic.parser.ResponseParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the response parser, on valid and invalid responses.
+ */
+public class ResponseParserTest {
+
+  private static InputStream json(String content) throws IOException {
+    return new ByteArrayInputStream(content.getBytes("UTF-8"));
+  }
+
+  @Test
+  public void parseOneResult() throws IOException, ParseException {
+    JsonRpcResponse<Result> res = ResponseParser.parseOne(json(
+      "{\"result\":{\"value\":\"server-started\",\"collectDate\":\"2016-03-03\"},\"id\":\"1\",\"jsonrpc\":\"2.0\"}"), Result.class);
+
+    Result result = new Result();
+    result.value = "server-started";
+    result.collectDate = "2016-03-03";
+    Assert.assertEquals("1", res.getId());
+    Assert.assertEquals(result, res.getResult());
+    Assert.assertNull(res.getError());
+  }
+
+  @Test
+  public void parseGenericResult() throws IOException, ParseException {
+    JsonRpcResponse<Map<String, List<Result>>> res = ResponseParser.parseOne(json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"a\":[{\"value\":\"v1\"},{\"value\":\"v2\"}]}}"),
+      new TypeReference<Map<String, List<Result>>>() { });
+
+    List<Result> results = res.getResult().get("a");
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("v2", results.get(1).value);
+  }
+
+  @Test
+  public void parseLazyResult() throws IOException, ParseException {
+    JacksonJsonRpcCodec lazy = new JacksonJsonRpcCodec(new ObjectMapper(), true);
+    JsonRpcResponse<Result> res = ResponseParser.parseOne(lazy, json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"value\":\"v\",\"collectDate\":\"2016-03-03\"}}"), Result.class);
+
+    Assert.assertEquals("{\"value\":\"v\",\"collectDate\":\"2016-03-03\"}", new String(res.getRawResult(), "UTF-8"));
+    Assert.assertEquals("v", res.getResult(Map.class).get("value"));
+    Assert.assertEquals("2016-03-03", res.getResult().collectDate);
+    Assert.assertSame(res.getResult(), res.getResult());
+  }
+
+  @Test
+  public void boundResultUsesResponseCodec() throws IOException, ParseException {
+    ObjectMapper snakeCase = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+    JsonRpcResponse<Result> res = ResponseParser.parseOne(new JacksonJsonRpcCodec(snakeCase, false), json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"value\":\"v\",\"collect_date\":\"2016-03-03\"}}"), Result.class);
+
+    Assert.assertEquals("2016-03-03", res.getResult().collectDate);
+    Assert.assertEquals("2016-03-03", res.getResult(Map.class).get("collect_date"));
+    Assert.assertTrue(new String(res.getRawResult(), "UTF-8").contains("\"collect_date\""));
+  }
+
+  @Test
+  public void lazyResultIsBoundOnce() throws Exception {
+    JacksonJsonRpcCodec lazy = new JacksonJsonRpcCodec(new ObjectMapper(), true);
+    final JsonRpcResponse<Result> res = ResponseParser.parseOne(lazy, json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"value\":\"v\"}}"), Result.class);
+    final Result[] seen = new Result[8];
+    Thread[] threads = new Thread[seen.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int slot = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          seen[slot] = res.getResult();
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (Result result : seen) {
+      Assert.assertSame(seen[0], result);
+    }
+    Assert.assertEquals("{\"value\":\"v\"}", new String(res.getRawResult(), "UTF-8"));
+  }
+
+  @Test
+  public void parseOneError() throws IOException, ParseException {
+    JsonRpcResponse<Result> res = ResponseParser.parseOne(json(
+      "{\"jsonrpc\":\"2.0\",\"id\":12,\"error\":{\"code\":-32601,\"message\":\"Method not found\",\"data\":{\"a\":[1,2]}}}"), Result.class);
+
+    Assert.assertEquals("12", res.getId());
+    Assert.assertEquals(new Error(-32601, "Method not found", null), res.getError());
+    Assert.assertNotNull(res.getError().getData());
+  }
+
+  @Test(expected = ParseException.class)
+  public void parseOneInvalidVersion() throws IOException, ParseException {
+    ResponseParser.parseOne(json("{\"jsonrpc\":\"1.0\",\"id\":\"1\",\"result\":\"ok\"}"), String.class);
+  }
+
+  @Test(expected = ParseException.class)
+  public void parseOneMissingId() throws IOException, ParseException {
+    ResponseParser.parseOne(json("{\"jsonrpc\":\"2.0\",\"result\":\"ok\"}"), String.class);
+  }
+
+  @Test(expected = ParseException.class)
+  public void parseOneResultAndError() throws IOException, ParseException {
+    ResponseParser.parseOne(json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"ok\",\"error\":{\"code\":1,\"message\":\"ko\"}}"), String.class);
+  }
+
+  @Test(expected = ParseException.class)
+  public void parseOneInvalidErrorCode() throws IOException, ParseException {
+    ResponseParser.parseOne(json(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"error\":{\"code\":\"1\",\"message\":\"ko\"}}"), String.class);
+  }
+
+  @Test
+  public void parseList() throws IOException, ParseException {
+    List<JsonRpcResponse<String>> res = ResponseParser.parseList(json(
+      "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"a\"},{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}]"), String.class);
+
+    Assert.assertEquals(2, res.size());
+    Assert.assertEquals("1", res.get(0).getId());
+    Assert.assertEquals("a", res.get(0).getResult());
+    Assert.assertEquals("2", res.get(1).getId());
+    Assert.assertEquals(new Error(-32600, "Invalid Request", null), res.get(1).getError());
+  }
+
+  @Test(expected = ParseException.class)
+  public void parseListInvalidEntry() throws IOException, ParseException {
+    ResponseParser.parseList(json("[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"a\"},{\"jsonrpc\":\"2.0\",\"id\":\"2\"}]"), String.class);
+  }
+
+  @Test
+  public void streamList() throws IOException, ParseException {
+    JsonRpcResponseCursor<String> cursor = ResponseParser.stream(json(
+      "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"a\"},{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"result\":\"b\"}]"), String.class);
+    try {
+      Assert.assertTrue(cursor.hasNext());
+      Assert.assertEquals("a", cursor.next().getResult());
+      Assert.assertTrue(cursor.hasNext());
+      Assert.assertEquals("b", cursor.next().getResult());
+      Assert.assertFalse(cursor.hasNext());
+    } finally {
+      cursor.close();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.resourcepool.jarpic.client.HttpJsonRpcClient;
+import io.resourcepool.jarpic.client.SingleFlightJsonRpcClient;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.model.JsonRpcCallback;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.EchoDispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests of the single-flight client, which shares identical calls in flight.
+ */
+public class SingleFlightClientTest {
+
+  private MockWebServer server;
+  private EchoDispatcher dispatcher;
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Before
+  public void startServer() throws IOException {
+    dispatcher = new EchoDispatcher() {
+      @Override
+      protected JsonNode respond(JsonNode request) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.respond(request);
+      }
+    };
+    server = new MockWebServer();
+    server.setDispatcher(dispatcher);
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    release.countDown();
+    server.shutdown();
+  }
+
+  @Test
+  public void identicalCallsShareOneRequest() throws Exception {
+    final SingleFlightJsonRpcClient client = new SingleFlightJsonRpcClient(new HttpJsonRpcClient(server.url("/").toString()));
+    final JsonRpcRequest leader = JsonRpcRequest.builder().method("cmd::hot").param("a", 1).param("b", 2).build();
+    final AtomicReference<JsonRpcResponse<String>> leaderResponse = new AtomicReference<JsonRpcResponse<String>>();
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          leaderResponse.set(client.send(leader, String.class));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    thread.start();
+    while (dispatcher.getCalls() == 0) {
+      Thread.sleep(5);
+    }
+
+    List<JsonRpcRequest> followers = new ArrayList<JsonRpcRequest>();
+    List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+    for (int i = 0; i < 20; i++) {
+      // Same params, in another order
+      JsonRpcRequest req = JsonRpcRequest.builder().method("cmd::hot").param("b", 2).param("a", 1).build();
+      followers.add(req);
+      futures.add(client.sendAsync(req, String.class));
+    }
+    Assert.assertEquals(1, client.getInFlightCount());
+    release.countDown();
+
+    List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+    thread.join(10000);
+    Assert.assertEquals(leader.getId(), leaderResponse.get().getId());
+    for (int i = 0; i < followers.size(); i++) {
+      Assert.assertEquals(followers.get(i).getId(), responses.get(i).getId());
+      Assert.assertEquals("cmd::hot", responses.get(i).getResult());
+    }
+    Assert.assertEquals(1, dispatcher.getCalls());
+    Assert.assertEquals(0, client.getInFlightCount());
+
+    // Once landed, the next call is sent again
+    client.send(JsonRpcRequest.builder().method("cmd::hot").param("a", 1).param("b", 2).build(), String.class);
+    Assert.assertEquals(2, dispatcher.getCalls());
+  }
+
+  @Test
+  public void differentCallsAreNotShared() throws Exception {
+    SingleFlightJsonRpcClient client = new SingleFlightJsonRpcClient(new HttpJsonRpcClient(server.url("/").toString()));
+    JsonRpcFuture<JsonRpcResponse<String>> first = client.sendAsync(JsonRpcRequest.builder().method("cmd::hot").param("a", 1).build(), String.class);
+    JsonRpcFuture<JsonRpcResponse<String>> second = client.sendAsync(JsonRpcRequest.builder().method("cmd::hot").param("a", 2).build(), String.class);
+    JsonRpcFuture<JsonRpcResponse<String>> third = client.sendAsync(JsonRpcRequest.builder().method("cmd::cold").param("a", 1).build(), String.class);
+    Assert.assertEquals(3, client.getInFlightCount());
+    release.countDown();
+    first.get(10, TimeUnit.SECONDS);
+    second.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals("cmd::cold", third.get(10, TimeUnit.SECONDS).getResult());
+    Assert.assertEquals(3, dispatcher.getCalls());
+  }
+
+  @Test
+  public void lazyResultIsBoundOnceAndShared() throws Exception {
+    SingleFlightJsonRpcClient client = lazyClient();
+    JsonRpcFuture<JsonRpcResponse<String>> leader = client.sendAsync(hot(), String.class);
+    client.send(hot(), String.class, new JsonRpcCallback<String>() {
+      @Override
+      public void onResponse(JsonRpcResponse<String> result) {
+        throw new IllegalStateException("Broken caller");
+      }
+
+      @Override
+      public void onFailure(IOException ex) {
+        // Not expected
+      }
+    });
+    JsonRpcFuture<JsonRpcResponse<String>> follower = client.sendAsync(hot(), String.class);
+    release.countDown();
+
+    JsonRpcResponse<String> shared = follower.get(10, TimeUnit.SECONDS);
+    Assert.assertSame(leader.get(10, TimeUnit.SECONDS).getResult(), shared.getResult());
+    Assert.assertEquals("\"cmd::hot\"", new String(shared.getRawResult(), "UTF-8"));
+    Assert.assertEquals(1, dispatcher.getCalls());
+  }
+
+  @Test
+  public void unboundResultFailsFollowers() throws Exception {
+    SingleFlightJsonRpcClient client = lazyClient();
+    JsonRpcFuture<JsonRpcResponse<Integer>> leader = client.sendAsync(hot(), Integer.class);
+    JsonRpcFuture<JsonRpcResponse<Integer>> follower = client.sendAsync(hot(), Integer.class);
+    release.countDown();
+
+    try {
+      follower.get(10, TimeUnit.SECONDS);
+      Assert.fail("Follower should get the binding failure");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IOException);
+    }
+    // The leader still gets its own response, failing once the result is accessed
+    JsonRpcResponse<Integer> res = leader.get(10, TimeUnit.SECONDS);
+    try {
+      res.getResult();
+      Assert.fail("Result should not be bound");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * @return a client over a lazy codec
+   */
+  private SingleFlightJsonRpcClient lazyClient() {
+    JacksonJsonRpcCodec lazy = new JacksonJsonRpcCodec(new ObjectMapper(), true);
+    return new SingleFlightJsonRpcClient(new HttpJsonRpcClient(server.url("/").toString(), new OkHttpClient(), lazy));
+  }
+
+  /**
+   * @return a new request to the shared call
+   */
+  private static JsonRpcRequest hot() {
+    return JsonRpcRequest.builder().method("cmd::hot").param("a", 1).build();
+  }
+}
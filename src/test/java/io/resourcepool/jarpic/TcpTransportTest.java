@@ -0,0 +1,154 @@
+package io.resourcepool.jarpic;
+
+import io.resourcepool.jarpic.client.TransportJsonRpcClient;
+import io.resourcepool.jarpic.codec.JacksonJsonRpcCodec;
+import io.resourcepool.jarpic.model.IdGenerator;
+import io.resourcepool.jarpic.model.IdGenerators;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import io.resourcepool.jarpic.server.LineEchoServer;
+import io.resourcepool.jarpic.transport.JsonRpcPayload;
+import io.resourcepool.jarpic.transport.JsonRpcTransport;
+import io.resourcepool.jarpic.transport.JsonRpcTransportResponse;
+import io.resourcepool.jarpic.transport.TcpTransport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the TCP transport: pipelining, timeouts and failures of the connection.
+ */
+public class TcpTransportTest {
+
+  @Test
+  public void pipelineOnOneConnection() throws Exception {
+    LineEchoServer server = new LineEchoServer();
+    TcpTransport transport = TcpTransport.builder("localhost", server.getPort()).build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    try {
+      IdGenerator counter = IdGenerators.counter();
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+      for (int i = 0; i < 200; i++) {
+        JsonRpcRequest req = JsonRpcRequest.builder()
+          .idGenerator(i % 2 == 0 ? counter : IdGenerators.uuid())
+          .method("cmd::" + i)
+          .build();
+        futures.add(client.sendAsync(req, String.class));
+      }
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+      List<JsonRpcResponse<String>> batch = client.send(JsonRpcRequest.combine(
+        JsonRpcRequest.builder().method("cmd::a").build(),
+        JsonRpcRequest.builder().method("cmd::b").build()), String.class);
+      JsonRpcResponse<String> notification = client.send(JsonRpcRequest.notifBuilder().method("cmd::n").build(), String.class);
+
+      for (int i = 0; i < 200; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+      Assert.assertEquals(2, batch.size());
+      Assert.assertNull(notification);
+      Assert.assertEquals(1, server.getConnections());
+      Assert.assertEquals(0, transport.getPendingCount());
+    } finally {
+      transport.close();
+      server.close();
+    }
+  }
+
+  @Test
+  public void timeoutAndReconnect() throws Exception {
+    LineEchoServer server = new LineEchoServer();
+    TcpTransport transport = TcpTransport.builder("localhost", server.getPort())
+      .timeout(200, TimeUnit.MILLISECONDS)
+      .build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    try {
+      try {
+        client.send(JsonRpcRequest.builder().method("hang").build(), String.class);
+        Assert.fail("Call should have timed out");
+      } catch (SocketTimeoutException e) {
+        // Expected
+      }
+      Assert.assertEquals(0, transport.getPendingCount());
+      try {
+        client.send(JsonRpcRequest.builder().method("close").build(), String.class);
+        Assert.fail("Connection should have been closed");
+      } catch (IOException e) {
+        // Expected
+      }
+
+      Assert.assertEquals("cmd::again", client.send(JsonRpcRequest.builder().method("cmd::again").build(), String.class).getResult());
+      Assert.assertEquals(2, server.getConnections());
+    } finally {
+      transport.close();
+      server.close();
+    }
+  }
+
+  @Test
+  public void throwingCallbackLeavesConnectionUsable() throws Exception {
+    LineEchoServer server = new LineEchoServer();
+    TcpTransport transport = TcpTransport.builder("localhost", server.getPort())
+      .timeout(200, TimeUnit.MILLISECONDS)
+      .build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    try {
+      final CountDownLatch called = new CountDownLatch(2);
+      JsonRpcTransport.Callback throwing = new JsonRpcTransport.Callback() {
+        @Override
+        public void onResponse(JsonRpcTransportResponse response) {
+          called.countDown();
+          throw new IllegalStateException("Callback failure");
+        }
+
+        @Override
+        public void onFailure(IOException ex) {
+          called.countDown();
+          throw new IllegalStateException("Callback failure");
+        }
+      };
+      transport.enqueue(new JsonRpcPayload(JacksonJsonRpcCodec.getDefault(), JsonRpcRequest.builder().method("cmd::1").build()), throwing);
+      // Timed out by the sweep of the selector loop, which must have survived the first callback
+      transport.enqueue(new JsonRpcPayload(JacksonJsonRpcCodec.getDefault(), JsonRpcRequest.builder().method("hang").build()), throwing);
+      Assert.assertTrue(called.await(5, TimeUnit.SECONDS));
+
+      Assert.assertEquals("cmd::2", client.send(JsonRpcRequest.builder().method("cmd::2").build(), String.class).getResult());
+      Assert.assertEquals(1, server.getConnections());
+    } finally {
+      transport.close();
+      server.close();
+    }
+  }
+
+  @Test
+  public void overlongLineFailsConnection() throws Exception {
+    LineEchoServer server = new LineEchoServer();
+    TcpTransport transport = TcpTransport.builder("localhost", server.getPort())
+      .maxLineSize(1024)
+      .build();
+    TransportJsonRpcClient client = new TransportJsonRpcClient(transport);
+    try {
+      StringBuilder method = new StringBuilder("cmd::");
+      for (int i = 0; i < 20000; i++) {
+        method.append('x');
+      }
+      try {
+        client.send(JsonRpcRequest.builder().method(method.toString()).build(), String.class);
+        Assert.fail("Call should have failed");
+      } catch (IOException e) {
+        // Expected
+      }
+      Assert.assertEquals("cmd::again", client.send(JsonRpcRequest.builder().method("cmd::again").build(), String.class).getResult());
+      Assert.assertEquals(2, server.getConnections());
+    } finally {
+      transport.close();
+      server.close();
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package io.resourcepool.jarpic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.resourcepool.jarpic.client.WebSocketJsonRpcClient;
+import io.resourcepool.jarpic.model.JsonRpcFuture;
+import io.resourcepool.jarpic.model.JsonRpcRequest;
+import io.resourcepool.jarpic.model.JsonRpcResponse;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the WebSocket client: multiplexing, timeouts and reconnection.
+ */
+public class WebSocketClientTest {
+
+  @Test
+  public void multiplexOnOneConnection() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new EchoListener()));
+    server.start();
+    WebSocketJsonRpcClient client = WebSocketJsonRpcClient.builder(server.url("/").toString()).build();
+    try {
+      List<JsonRpcFuture<JsonRpcResponse<String>>> futures = new ArrayList<JsonRpcFuture<JsonRpcResponse<String>>>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(client.sendAsync(JsonRpcRequest.builder().method("cmd::" + i).build(), String.class));
+      }
+      List<JsonRpcResponse<String>> responses = JsonRpcFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+      List<JsonRpcResponse<String>> batch = client.send(JsonRpcRequest.combine(
+        JsonRpcRequest.builder().method("cmd::a").build(),
+        JsonRpcRequest.builder().method("cmd::b").build()), String.class);
+
+      for (int i = 0; i < 200; i++) {
+        Assert.assertEquals("cmd::" + i, responses.get(i).getResult());
+      }
+      Assert.assertEquals(2, batch.size());
+      Assert.assertEquals(1, server.getRequestCount());
+      Assert.assertEquals(0, client.getPendingCount());
+    } finally {
+      client.close();
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void batchFoundPastForeignResponse() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new EchoListener()));
+    server.start();
+    WebSocketJsonRpcClient client = WebSocketJsonRpcClient.builder(server.url("/").toString()).build();
+    try {
+      List<JsonRpcResponse<Object>> batch = client.send(JsonRpcRequest.combine(
+        JsonRpcRequest.builder().method("foreign").build(),
+        JsonRpcRequest.builder().method("cmd::b").build()), Object.class);
+
+      Assert.assertEquals(3, batch.size());
+      Assert.assertEquals("foreign", batch.get(0).getId());
+      Assert.assertEquals(0, client.getPendingCount());
+    } finally {
+      client.close();
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void timeoutReleasesPendingCall() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new EchoListener()));
+    server.start();
+    WebSocketJsonRpcClient client = WebSocketJsonRpcClient.builder(server.url("/").toString())
+      .timeout(200, TimeUnit.MILLISECONDS)
+      .build();
+    try {
+      JsonRpcFuture<JsonRpcResponse<String>> future = client.sendAsync(JsonRpcRequest.builder().method("hang").build(), String.class);
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        Assert.fail("Call should have timed out");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof SocketTimeoutException);
+      }
+      Assert.assertEquals(0, client.getPendingCount());
+      // The connection is still usable
+      Assert.assertEquals("cmd::ok", client.send(JsonRpcRequest.builder().method("cmd::ok").build(), String.class).getResult());
+    } finally {
+      client.close();
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void reconnectAfterServerClose() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new EchoListener()));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new EchoListener()));
+    server.start();
+    WebSocketJsonRpcClient client = WebSocketJsonRpcClient.builder(server.url("/").toString()).build();
+    try {
+      JsonRpcFuture<JsonRpcResponse<String>> pending = client.sendAsync(JsonRpcRequest.builder().method("hang").build(), String.class);
+      try {
+        client.send(JsonRpcRequest.builder().method("close").build(), String.class);
+        Assert.fail("Connection should have been closed");
+      } catch (IOException e) {
+        // Expected
+      }
+      try {
+        pending.get(5, TimeUnit.SECONDS);
+        Assert.fail("Pending call should have failed with the connection");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IOException);
+      }
+
+      Assert.assertEquals("cmd::again", client.send(JsonRpcRequest.builder().method("cmd::again").build(), String.class).getResult());
+      Assert.assertEquals(2, server.getRequestCount());
+    } finally {
+      client.close();
+      server.shutdown();
+    }
+  }
+
+  /**
+   * Server side answering every call with its method name as result, after a short random delay,
+   * so that responses come back out of order. Method "hang" gets no answer, method "close" closes the connection.
+ * A batch starting with method "foreign" is answered after a response to an unknown id, with a nested result.
+   */
+  private static class EchoListener extends WebSocketListener {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @Override
+    public void onMessage(final WebSocket webSocket, String text) {
+      final JsonNode body;
+      try {
+        body = mapper.readTree(text);
+      } catch (IOException e) {
+        webSocket.close(1003, "Invalid JSON");
+        return;
+      }
+      if (!body.isArray() && "close".equals(body.get("method").asText())) {
+        webSocket.close(1000, "Bye");
+        return;
+      }
+      if (!body.isArray() && "hang".equals(body.get("method").asText())) {
+        return;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep((long) (Math.random() * 5));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          if (body.isArray()) {
+            ArrayNode responses = new ArrayNode(JsonNodeFactory.instance);
+            if ("foreign".equals(body.get(0).get("method").asText())) {
+              ObjectNode foreign = responses.addObject();
+              foreign.put("jsonrpc", "2.0");
+              foreign.put("id", "foreign");
+              foreign.putObject("result").putObject("nested").put("id", body.get(0).get("id").asText());
+            }
+            for (int i = body.size() - 1; i >= 0; i--) {
+              responses.add(respond(body.get(i)));
+            }
+            webSocket.send(responses.toString());
+          } else {
+            webSocket.send(respond(body).toString());
+          }
+        }
+      });
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+      webSocket.close(1000, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+      executor.shutdown();
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+      executor.shutdown();
+    }
+
+    /**
+     * @param request the request
+     * @return the response
+     */
+    private JsonNode respond(JsonNode request) {
+      ObjectNode response = new ObjectNode(JsonNodeFactory.instance);
+      response.put("jsonrpc", "2.0");
+      response.set("id", request.get("id"));
+      response.put("result", request.get("method").asText());
+      return response;
+    }
+  }
+}
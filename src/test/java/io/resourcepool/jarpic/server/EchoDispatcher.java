@@ -0,0 +1,73 @@
+package io.resourcepool.jarpic.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test JSON RPC server answering every call with its method name as result.
+ * Batch responses are returned in reverse order, as the specification allows any order.
+ */
+public class EchoDispatcher extends Dispatcher {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Override
+  public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+    calls.incrementAndGet();
+    try {
+      JsonNode body = mapper.readTree(request.getBody().inputStream());
+      if (body.isArray()) {
+        ArrayNode responses = new ArrayNode(JsonNodeFactory.instance);
+        for (int i = body.size() - 1; i >= 0; i--) {
+          if (body.get(i).has("id")) {
+            responses.add(respond(body.get(i)));
+          }
+        }
+        return json(responses);
+      }
+      if (!body.has("id")) {
+        return new MockResponse().setResponseCode(204);
+      }
+      return json(respond(body));
+    } catch (IOException e) {
+      return new MockResponse().setResponseCode(500);
+    }
+  }
+
+  /**
+   * @return the amount of HTTP calls received
+   */
+  public int getCalls() {
+    return calls.get();
+  }
+
+  /**
+   * Build the answer to one request.
+   *
+   * @param request the request
+   * @return the response
+   */
+  protected JsonNode respond(JsonNode request) {
+    ObjectNode response = new ObjectNode(JsonNodeFactory.instance);
+    response.put("jsonrpc", "2.0");
+    response.set("id", request.get("id"));
+    response.put("result", request.get("method").asText());
+    return response;
+  }
+
+  private static MockResponse json(JsonNode body) {
+    return new MockResponse()
+      .setHeader("Content-Type", "application/json")
+      .setBody(body.toString());
+  }
+}
@@ -0,0 +1,206 @@
+package io.resourcepool.jarpic.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test newline-delimited JSON RPC server answering every call with its method name as result.
+ * Answers are sent after a short random delay, so that they come back out of order.
+ * Method "hang" gets no answer, method "close" closes the connection.
+ * It listens on TCP loopback. Subclasses may listen on other sockets by overriding {@link #accept()}.
+ */
+public class LineEchoServer implements Closeable {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Closeable listener;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger connections = new AtomicInteger();
+
+  /**
+   * Start listening on a random local port.
+   *
+   * @throws IOException if the socket could not be opened
+   */
+  public LineEchoServer() throws IOException {
+    this(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+    start();
+  }
+
+  /**
+   * Construct a server for subclasses, which call {@link #start()} once ready to accept connections.
+   *
+   * @param listener the listening socket, closed with the server
+   */
+  protected LineEchoServer(Closeable listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Start accepting connections.
+   */
+  protected final void start() {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        acceptAll();
+      }
+    });
+  }
+
+  public int getPort() {
+    return ((ServerSocket) listener).getLocalPort();
+  }
+
+  /**
+   * @return the amount of connections accepted
+   */
+  public int getConnections() {
+    return connections.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    listener.close();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Wait for the next connection.
+   *
+   * @return the accepted connection
+   * @throws IOException once the server is closed
+   */
+  protected Connection accept() throws IOException {
+    Socket socket = ((ServerSocket) listener).accept();
+    return new Connection(socket.getInputStream(), socket.getOutputStream(), socket);
+  }
+
+  /**
+   * Accept connections until closed.
+   */
+  private void acceptAll() {
+    try {
+      while (true) {
+        final Connection connection = accept();
+        connections.incrementAndGet();
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            serve(connection);
+          }
+        });
+      }
+    } catch (IOException e) {
+      // Closed
+    }
+  }
+
+  /**
+   * Answer every line received on a connection.
+   *
+   * @param connection the connection
+   */
+  private void serve(final Connection connection) {
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(connection.in, "UTF-8"));
+      final OutputStream out = connection.out;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final JsonNode body = mapper.readTree(line);
+        if (!body.isArray() && "close".equals(body.get("method").asText())) {
+          break;
+        }
+        if (!body.isArray() && ("hang".equals(body.get("method").asText()) || !body.has("id"))) {
+          continue;
+        }
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Thread.sleep((long) (Math.random() * 5));
+              JsonNode response = body.isArray() ? respondAll(body) : respond(body);
+              synchronized (out) {
+                out.write((response.toString() + "\n").getBytes("UTF-8"));
+                out.flush();
+              }
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            } catch (IOException e) {
+              // Connection closed
+            }
+          }
+        });
+      }
+    } catch (IOException e) {
+      // Connection closed
+    } finally {
+      try {
+        connection.socket.close();
+      } catch (IOException e) {
+        // Already closed
+      }
+    }
+  }
+
+  /**
+   * @param requests the request array
+   * @return the responses, in reverse order
+   */
+  private JsonNode respondAll(JsonNode requests) {
+    ArrayNode responses = new ArrayNode(JsonNodeFactory.instance);
+    for (int i = requests.size() - 1; i >= 0; i--) {
+      if (requests.get(i).has("id")) {
+        responses.add(respond(requests.get(i)));
+      }
+    }
+    return responses;
+  }
+
+  /**
+   * @param request the request
+   * @return the response
+   */
+  private JsonNode respond(JsonNode request) {
+    ObjectNode response = new ObjectNode(JsonNodeFactory.instance);
+    response.put("jsonrpc", "2.0");
+    response.set("id", request.get("id"));
+    response.put("result", request.get("method").asText());
+    return response;
+  }
+
+  /**
+   * An accepted connection.
+   */
+  protected static class Connection {
+    private final InputStream in;
+    private final OutputStream out;
+    private final Closeable socket;
+
+    /**
+     * @param in     the input of the connection
+     * @param out    the output of the connection
+     * @param socket the connection, closed once served
+     */
+    public Connection(InputStream in, OutputStream out, Closeable socket) {
+      this.in = in;
+      this.out = out;
+      this.socket = socket;
+    }
+  }
+}